@@ -26,19 +26,21 @@ import android.widget.Filter;
 import android.widget.Filterable;
 import android.widget.ListView;
 import android.widget.TextView;
+import android.widget.Toast;
 
-import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 import java.util.Locale;
 
 import de.jordsand.birdcensus.R;
+import de.jordsand.birdcensus.core.BirdCount;
 import de.jordsand.birdcensus.core.MonitoringArea;
 import de.jordsand.birdcensus.core.Species;
-import de.jordsand.birdcensus.database.BirdCountOpenHandler;
-import de.jordsand.birdcensus.database.repositories.SQLiteMonitoringAreaRepository;
-import de.jordsand.birdcensus.database.repositories.SQLiteSpeciesRepository;
+import de.jordsand.birdcensus.core.SpeciesSearchIndex;
+import de.jordsand.birdcensus.database.repositories.AsyncRepositoryFacade;
 import de.jordsand.birdcensus.fragments.SelectSpeciesCount;
+import de.jordsand.birdcensus.infrastructure.QueryCallback;
 import de.jordsand.birdcensus.services.census.SimpleBirdCountService;
 
 /**
@@ -61,9 +63,9 @@ public class AddSighting extends AppCompatActivity implements SelectSpeciesCount
     private SpeciesAdapter adapter;
     private Button newSpecies;
     private EditText search;
-    private SQLiteSpeciesRepository speciesRepo;
-    private SQLiteMonitoringAreaRepository areaRepo;
+    private AsyncRepositoryFacade repositories;
 
+    private String monitoringAreaCode;
     private MonitoringArea monitoringArea;
     private Species selectedSpecies;
 
@@ -72,23 +74,42 @@ public class AddSighting extends AppCompatActivity implements SelectSpeciesCount
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_add_sighting);
 
-        BirdCountOpenHandler openHandler = BirdCountOpenHandler.instance(this);
-        speciesRepo = new SQLiteSpeciesRepository(openHandler.getReadableDatabase());
-        areaRepo = new SQLiteMonitoringAreaRepository(openHandler.getReadableDatabase());
+        repositories = new AsyncRepositoryFacade(this);
+        monitoringAreaCode = getIntent().getStringExtra("area");
 
         newSpecies = (Button) findViewById(R.id.new_species);
         newSpecies.setOnClickListener(new NewSpeciesOnClickListener());
 
         list = (ListView) findViewById(R.id.species);
-        adapter = new SpeciesAdapter(this, speciesRepo.findAll());
+        adapter = new SpeciesAdapter(this, Collections.<Species>emptyList());
         list.setAdapter(adapter);
         list.setOnItemClickListener(new SpeciesListOnClickListener());
 
         search = (EditText) findViewById(R.id.search_species);
         search.addTextChangedListener(new SearchTextWatcher());
 
-        monitoringArea = areaRepo.findOne(getIntent().getStringExtra("area"));
-        setTitle(monitoringArea.getName());
+        repositories.findMonitoringArea(monitoringAreaCode, new QueryCallback<MonitoringArea>() {
+            @Override
+            public void onResult(MonitoringArea area) {
+                if (area == null) {
+                    // the area was removed or the caller passed a stale code
+                    Toast.makeText(AddSighting.this, getString(R.string.add_sighting_unknown_area, monitoringAreaCode), Toast.LENGTH_LONG).show();
+                    setResult(RESULT_CANCELED);
+                    finish();
+                    return;
+                }
+                monitoringArea = area;
+                setTitle(area.getName());
+                adapter.notifyDataSetChanged();
+            }
+        });
+        loadSpecies();
+    }
+
+    @Override
+    protected void onDestroy() {
+        repositories.cancelAll();
+        super.onDestroy();
     }
 
     @Override
@@ -129,7 +150,7 @@ public class AddSighting extends AppCompatActivity implements SelectSpeciesCount
                         .setPositiveButton(R.string.ok, new DialogInterface.OnClickListener() {
                             @Override
                             public void onClick(DialogInterface dialogInterface, int i) {
-                                birdCountService.terminateBirdCount();
+                                birdCountService.terminateBirdCount(new TerminationResultToast(getApplicationContext()));
                                 Intent intent = new Intent();
                                 intent.putExtra("terminated", true);
                                 setResult(RESULT_OK, intent);
@@ -147,7 +168,7 @@ public class AddSighting extends AppCompatActivity implements SelectSpeciesCount
 
     @Override
     public void onSpeciesCountSelected(int count) {
-        birdCountService.addSightingToCurrentBirdCount(monitoringArea.getCode(), selectedSpecies, count);
+        birdCountService.addSightingToCurrentBirdCount(monitoringAreaCode, selectedSpecies, count);
         selectedSpecies = null;
         adapter.notifyDataSetChanged();
     }
@@ -155,26 +176,45 @@ public class AddSighting extends AppCompatActivity implements SelectSpeciesCount
     @Override
     public void onActivityResult(int requestCode, int resultCode, Intent data) {
         if (requestCode == RQ_NEW_SPECIES && resultCode == RESULT_OK) {
-            adapter.setData(speciesRepo.findAll());
-            adapter.notifyDataSetChanged();
+            loadSpecies();
         } else if (requestCode == RQ_SPECIES_COUNT && resultCode == RESULT_OK) {
 
         } else if (requestCode == RQ_COUNTER && resultCode == RESULT_OK) {
             int count = data.getIntExtra("count", 0);
-            birdCountService.addSightingToCurrentBirdCount(monitoringArea.getCode(), selectedSpecies, count);
+            birdCountService.addSightingToCurrentBirdCount(monitoringAreaCode, selectedSpecies, count);
             selectedSpecies = null;
             adapter.notifyDataSetChanged();
             counterDialog.dismissAllowingStateLoss();
         }
     }
 
+    /**
+     * Fetches all available species in the background and displays them as soon as they are loaded.
+     * Species frequently observed in the current area and season will be listed first
+     */
+    private void loadSpecies() {
+        repositories.findSuggestedSpecies(monitoringAreaCode, new Date(), new QueryCallback<List<Species>>() {
+            @Override
+            public void onResult(List<Species> species) {
+                adapter.setData(species);
+                adapter.getFilter().filter(search.getText().toString());
+            }
+        });
+    }
+
     private ServiceConnection mConnection = new ServiceConnection() {
         @Override
         public void onServiceConnected(ComponentName className, IBinder service) {
             SimpleBirdCountService.BirdCountBinder binder = (SimpleBirdCountService.BirdCountBinder) service;
             birdCountService = binder.getService();
             mBound = true;
-            adapter.notifyDataSetChanged();
+            // after the app was killed the bird count may still be restored from the journal
+            birdCountService.whenReady(new QueryCallback<BirdCount>() {
+                @Override
+                public void onResult(BirdCount birdCount) {
+                    adapter.notifyDataSetChanged();
+                }
+            });
         }
 
         @Override
@@ -189,20 +229,27 @@ public class AddSighting extends AppCompatActivity implements SelectSpeciesCount
     private class SpeciesAdapter extends BaseAdapter implements Filterable {
         private LayoutInflater inflater;
 
-        private List<Species> availableSpecies;
+        /**
+         * The index over all available species. Replaced as a whole if the species change, so the
+         * filter thread always sees a consistent state
+         */
+        private volatile SpeciesSearchIndex searchIndex;
+
+        /**
+         * The species currently displayed. Immutable, only replaced on the main thread
+         */
         private List<Species> adaptedList;
+        private Filter filter;
 
-        SpeciesAdapter(Context ctx, Iterable<Species> species) {
+        SpeciesAdapter(Context ctx, List<Species> species) {
             inflater = LayoutInflater.from(ctx);
             setData(species);
         }
 
-        void setData(Iterable<Species> species) {
-            this.availableSpecies = new LinkedList<>();
-            for (Species s : species) {
-                this.availableSpecies.add(s);
-            }
-            this.adaptedList = new ArrayList<>(this.availableSpecies);
+        void setData(List<Species> species) {
+            this.searchIndex = new SpeciesSearchIndex(species);
+            this.adaptedList = species;
+            notifyDataSetChanged();
         }
 
         @Override
@@ -242,9 +289,10 @@ public class AddSighting extends AppCompatActivity implements SelectSpeciesCount
                 holder.scientific.setVisibility(View.GONE);
             }
             holder.currentCount.setVisibility(View.VISIBLE);
-            if (mBound) {
-                if (birdCountService.getCurrentBirdCount().wasObservedIn(species, monitoringArea)) {
-                    holder.currentCount.setText(String.format(Locale.GERMANY, "%d", birdCountService.getCurrentBirdCount().getObservedCountOf(species, monitoringArea)));
+            BirdCount birdCount = mBound ? birdCountService.getCurrentBirdCount() : null;
+            if (birdCount != null && monitoringArea != null) {
+                if (birdCount.wasObservedIn(species, monitoringArea)) {
+                    holder.currentCount.setText(String.format(Locale.GERMANY, "%d", birdCount.getObservedCountOf(species, monitoringArea)));
                 } else {
                     holder.currentCount.setVisibility(View.GONE);
                 }
@@ -254,39 +302,33 @@ public class AddSighting extends AppCompatActivity implements SelectSpeciesCount
             return convertView;
         }
 
+        /**
+         * A single filter is shared for all queries, so outdated queries will be skipped rather
+         * than overtaking newer ones
+         */
         @Override
         public Filter getFilter() {
+            if (filter == null) {
+                filter = createFilter();
+            }
+            return filter;
+        }
+
+        private Filter createFilter() {
             return new Filter() {
                 @Override
                 protected FilterResults performFiltering(CharSequence constraint) {
+                    List<Species> matches = searchIndex.search(constraint);
                     FilterResults results = new FilterResults();
-                    adaptedList.clear();
-
-                    CharSequence firstLetterUppercaseConstraint;
-                    if (constraint.length() > 0) {
-                        char firstLetter = Character.toUpperCase(constraint.charAt(0));
-                        firstLetterUppercaseConstraint = firstLetter + constraint.toString().substring(1);
-                    } else {
-                        firstLetterUppercaseConstraint = constraint;
-                    }
-
-                    for (Species species : availableSpecies) {
-                        if (species.getName().contains(constraint) || species.getName().contains(firstLetterUppercaseConstraint)) {
-                            adaptedList.add(species);
-                        } else if (species.hasScientificName()) {
-                            if (species.getScientificName().contains(constraint) || species.getScientificName().contains(firstLetterUppercaseConstraint)) {
-                                adaptedList.add(species);
-                            }
-                        }
-                    }
-
-                    results.count = adaptedList.size();
-                    results.values = adaptedList;
+                    results.count = matches.size();
+                    results.values = matches;
                     return results;
                 }
 
                 @Override
+                @SuppressWarnings("unchecked")
                 protected void publishResults(CharSequence constraint, FilterResults results) {
+                    adaptedList = (List<Species>) results.values;
                     notifyDataSetChanged();
                 }
             };
@@ -317,7 +359,7 @@ public class AddSighting extends AppCompatActivity implements SelectSpeciesCount
         @Override
         public void onClick(View view) {
             Intent createSpecies = new Intent(AddSighting.this, NewSpecies.class);
-            createSpecies.putExtra("area_code", monitoringArea.getCode());
+            createSpecies.putExtra("area_code", monitoringAreaCode);
             startActivityForResult(createSpecies, RQ_NEW_SPECIES);
         }
     }
@@ -20,13 +20,14 @@ import android.widget.BaseAdapter;
 import android.widget.GridView;
 import android.widget.TextView;
 
-import java.util.LinkedList;
+import java.util.Collections;
 import java.util.List;
 
 import de.jordsand.birdcensus.R;
 import de.jordsand.birdcensus.core.MonitoringArea;
-import de.jordsand.birdcensus.database.BirdCountOpenHandler;
-import de.jordsand.birdcensus.database.repositories.SQLiteMonitoringAreaRepository;
+import de.jordsand.birdcensus.core.ReferenceCatalogue;
+import de.jordsand.birdcensus.database.repositories.AsyncRepositoryFacade;
+import de.jordsand.birdcensus.infrastructure.QueryCallback;
 import de.jordsand.birdcensus.services.census.SimpleBirdCountService;
 
 public class AreaSelectionList extends AppCompatActivity {
@@ -38,20 +39,32 @@ public class AreaSelectionList extends AppCompatActivity {
 
     private GridView grid;
     private AreaAdapter adapter;
-    private SQLiteMonitoringAreaRepository repo;
+    private AsyncRepositoryFacade repositories;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_area_selection_list);
 
-        BirdCountOpenHandler openHandler = BirdCountOpenHandler.instance(this);
-        repo = new SQLiteMonitoringAreaRepository(openHandler.getReadableDatabase());
+        repositories = new AsyncRepositoryFacade(this);
 
         grid = (GridView) findViewById(R.id.area_selection_list);
-        adapter = new AreaAdapter(this, repo.findAll());
+        adapter = new AreaAdapter(this);
         grid.setAdapter(adapter);
         grid.setOnItemClickListener(new AreaGridOnClickListener());
+
+        repositories.findReferenceCatalogue(new QueryCallback<ReferenceCatalogue>() {
+            @Override
+            public void onResult(ReferenceCatalogue catalogue) {
+                adapter.setData(catalogue.getAreas());
+            }
+        });
+    }
+
+    @Override
+    protected void onDestroy() {
+        repositories.cancelAll();
+        super.onDestroy();
     }
 
     @Override
@@ -93,7 +106,7 @@ public class AreaSelectionList extends AppCompatActivity {
                         .setPositiveButton(R.string.ok, new DialogInterface.OnClickListener() {
                             @Override
                             public void onClick(DialogInterface dialogInterface, int i) {
-                                birdCountService.terminateBirdCount();
+                                birdCountService.terminateBirdCount(new TerminationResultToast(getApplicationContext()));
                                 Intent intent = new Intent();
                                 intent.putExtra("terminated", true);
                                 setResult(RESULT_OK, intent);
@@ -166,12 +179,17 @@ public class AreaSelectionList extends AppCompatActivity {
 
         private List<MonitoringArea> monitoringAreas;
 
-        AreaAdapter(Context ctx, Iterable<MonitoringArea> areas) {
+        AreaAdapter(Context ctx) {
             inflater = LayoutInflater.from(ctx);
-            monitoringAreas = new LinkedList<>();
-            for (MonitoringArea a : areas) {
-                monitoringAreas.add(a);
-            }
+            monitoringAreas = Collections.emptyList();
+        }
+
+        /**
+         * @param areas the areas to display
+         */
+        void setData(List<MonitoringArea> areas) {
+            monitoringAreas = areas;
+            notifyDataSetChanged();
         }
 
         @Override
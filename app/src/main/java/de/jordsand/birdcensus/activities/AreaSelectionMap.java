@@ -33,8 +33,8 @@ import java.util.Map;
 
 import de.jordsand.birdcensus.R;
 import de.jordsand.birdcensus.core.MonitoringArea;
-import de.jordsand.birdcensus.database.BirdCountOpenHandler;
-import de.jordsand.birdcensus.database.repositories.SQLiteMonitoringAreaRepository;
+import de.jordsand.birdcensus.database.repositories.AsyncRepositoryFacade;
+import de.jordsand.birdcensus.infrastructure.QueryCallback;
 import de.jordsand.birdcensus.services.census.SimpleBirdCountService;
 
 /**
@@ -57,15 +57,14 @@ public class AreaSelectionMap extends AppCompatActivity {
     private boolean mBound = false;
 
     private MapView areaMap;
-    private SQLiteMonitoringAreaRepository repo;
+    private AsyncRepositoryFacade repositories;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_area_selection_map);
 
-        BirdCountOpenHandler openHandler = BirdCountOpenHandler.instance(this);
-        repo = new SQLiteMonitoringAreaRepository(openHandler.getReadableDatabase());
+        repositories = new AsyncRepositoryFacade(this);
 
         areaMap = (MapView) findViewById(R.id.area_map);
         areaMap.setTileSource(new XYTileSource("4uMaps", MIN_ZOOM, MAX_ZOOM, TILE_SIZE, ".png", new String[]{}));
@@ -80,6 +79,12 @@ public class AreaSelectionMap extends AppCompatActivity {
         this.initMap();
     }
 
+    @Override
+    protected void onDestroy() {
+        repositories.cancelAll();
+        super.onDestroy();
+    }
+
     @Override
     public void onStart() {
         super.onStart();
@@ -119,7 +124,7 @@ public class AreaSelectionMap extends AppCompatActivity {
                         .setPositiveButton(R.string.ok, new DialogInterface.OnClickListener() {
                             @Override
                             public void onClick(DialogInterface dialogInterface, int i) {
-                                birdCountService.terminateBirdCount();
+                                birdCountService.terminateBirdCount(new TerminationResultToast(getApplicationContext()));
                                 Intent intent = new Intent();
                                 intent.putExtra("terminated", true);
                                 setResult(RESULT_OK, intent);
@@ -188,18 +193,29 @@ public class AreaSelectionMap extends AppCompatActivity {
         }
     };
 
-    // TODO introduce a repository cache instead of caching manually (as proxy for the repo access)
-
     /**
-     * Adds the monitoring areas to the maps
+     * Loads the monitoring areas in the background and adds them to the map afterwards
      */
     private void initMap() {
         Marker.ENABLE_TEXT_LABELS_WHEN_NO_IMAGE = true;
 
+        repositories.findAllMonitoringAreas(new QueryCallback<Iterable<MonitoringArea>>() {
+            @Override
+            public void onResult(Iterable<MonitoringArea> areas) {
+                addAreasToMap(areas);
+            }
+        });
+    }
+
+    /**
+     * Adds the monitoring areas to the maps
+     * @param monitoringAreas the areas to display
+     */
+    private void addAreasToMap(Iterable<MonitoringArea> monitoringAreas) {
         List<IGeoPoint> areaPoints = new ArrayList<>();
         List<MonitoringArea> areas = new ArrayList<>();
 
-        for (MonitoringArea area : repo.findAll()) {
+        for (MonitoringArea area : monitoringAreas) {
             areaPoints.add(new LabelledGeoPoint(area.getLocation().getLatitude(), area.getLocation().getLongitude(), area.getCode()));
             areas.add(area);
         }
@@ -223,6 +239,7 @@ public class AreaSelectionMap extends AppCompatActivity {
         SimpleFastPointOverlay overlay = new SimpleFastPointOverlay(pointTheme, overlayOptions);
         overlay.setOnClickListener(new AreaSelectionListener(areas));
         areaMap.getOverlays().add(overlay);
+        areaMap.invalidate();
     }
 
     /**
@@ -1,7 +1,6 @@
 package de.jordsand.birdcensus.activities;
 
 import android.content.DialogInterface;
-import android.support.annotation.NonNull;
 import android.support.design.widget.TabLayout;
 import android.support.v7.app.AlertDialog;
 import android.support.v7.app.AppCompatActivity;
@@ -21,6 +20,7 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.util.Date;
+import java.util.concurrent.Callable;
 
 import de.jordsand.birdcensus.R;
 import de.jordsand.birdcensus.core.BirdCount;
@@ -29,8 +29,11 @@ import de.jordsand.birdcensus.database.BirdCountOpenHandler;
 import de.jordsand.birdcensus.database.repositories.SQLiteBirdCountRepository;
 import de.jordsand.birdcensus.fragments.CensusDisplayDetailsFragment;
 import de.jordsand.birdcensus.fragments.CensusDisplayOverviewFragment;
+import de.jordsand.birdcensus.infrastructure.AsyncQueryExecutor;
+import de.jordsand.birdcensus.infrastructure.QueryCallback;
 import de.jordsand.birdcensus.services.exporter.csv.CsvBirdCountExporter;
 import de.jordsand.birdcensus.services.exporter.csv.ExportException;
+import de.jordsand.birdcensus.util.ExportFileNames;
 import de.jordsand.birdcensus.util.FileSystem;
 
 /**
@@ -48,6 +51,7 @@ public class CensusDisplay extends AppCompatActivity {
     private static final int TAB_DETAILS_POSITION = 1;
 
     private BirdCountRepository birdCountRepo;
+    private AsyncQueryExecutor exportExecutor;
 
     private Date censusStartDate;
 
@@ -78,8 +82,7 @@ public class CensusDisplay extends AppCompatActivity {
             getSupportActionBar().setDisplayHomeAsUpEnabled(true);
         }
 
-        BirdCountOpenHandler openHandler = BirdCountOpenHandler.instance(this);
-        birdCountRepo = new SQLiteBirdCountRepository(openHandler.getReadableDatabase());
+        exportExecutor = new AsyncQueryExecutor();
 
         // Create the adapter that will return a fragment for each of the three
         // primary sections of the activity.
@@ -106,24 +109,61 @@ public class CensusDisplay extends AppCompatActivity {
 
     @Override
     public boolean onOptionsItemSelected(MenuItem item) {
-        BirdCount birdCount;
-        boolean successful;
         switch (item.getItemId()) {
             case R.id.export_census_complete:
-                birdCount = birdCountRepo.findByStartDate(censusStartDate);
-                successful = exportCensusComplete(birdCount);
-                alertExportFinished(successful);
+                exportCensus(false);
                 break;
             case R.id.export_census_summary:
-                birdCount = birdCountRepo.findByStartDate(censusStartDate);
-                successful = exportCensusSummary(birdCount);
-                alertExportFinished(successful);
+                exportCensus(true);
                 break;
         }
 
         return super.onOptionsItemSelected(item);
     }
 
+    @Override
+    protected void onDestroy() {
+        exportExecutor.cancelAll();
+        super.onDestroy();
+    }
+
+    /**
+     * Exports the displayed bird count in the background and notifies the user once it is done
+     * @param summaryOnly whether only the summary or all sightings should be exported
+     */
+    private void exportCensus(final boolean summaryOnly) {
+        exportExecutor.submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                BirdCount birdCount = birdCountRepository().findByStartDate(censusStartDate);
+                return summaryOnly ? exportCensusSummary(birdCount) : exportCensusComplete(birdCount);
+            }
+        }, new QueryCallback<Boolean>() {
+            @Override
+            public void onResult(Boolean successful) {
+                alertExportFinished(successful);
+            }
+
+            @Override
+            public void onFailure(Exception error) {
+                super.onFailure(error);
+                alertExportFinished(false);
+            }
+        });
+    }
+
+    /**
+     * Opens the database on first access, which may have to run lengthy migrations. Thus it must
+     * not be called on the main thread.
+     * @return the repository to load the displayed bird count from
+     */
+    private synchronized BirdCountRepository birdCountRepository() {
+        if (birdCountRepo == null) {
+            birdCountRepo = new SQLiteBirdCountRepository(BirdCountOpenHandler.instance(this).getReaderDatabase());
+        }
+        return birdCountRepo;
+    }
+
     /**
      * Creates a CSV-file containing all the summary of the displayed bird count
      * @param birdCount the bird count to export
@@ -131,13 +171,10 @@ public class CensusDisplay extends AppCompatActivity {
      */
     private boolean exportCensusSummary(BirdCount birdCount) {
         File documentDir = FileSystem.getDocumentDirectoryRoot();
-        String filename = generateExportFilename(birdCount, getString(R.string.census_export_summary_suffix), documentDir);
+        String filename = ExportFileNames.forCensus(this, birdCount.getStartTime(), getString(R.string.census_export_summary_suffix));
         File exportFile = new File(documentDir, filename);
 
         try {
-            if (!exportFile.exists()) {
-                exportFile.createNewFile();
-            }
             FileOutputStream fos = new FileOutputStream(exportFile);
             CsvBirdCountExporter exporter = new CsvBirdCountExporter(new OutputStreamWriter(fos), this);
             exporter.exportBirdCountSummary(birdCount);
@@ -155,13 +192,10 @@ public class CensusDisplay extends AppCompatActivity {
      */
     private boolean exportCensusComplete(BirdCount birdCount) {
         File documentDir = FileSystem.getDocumentDirectoryRoot();
-        String filename = generateExportFilename(birdCount, getString(R.string.census_export_complete_suffix), documentDir);
+        String filename = ExportFileNames.forCensus(this, birdCount.getStartTime(), getString(R.string.census_export_complete_suffix));
         File exportFile = new File(documentDir, filename);
 
         try {
-            if (!exportFile.exists()) {
-                exportFile.createNewFile();
-            }
             FileOutputStream fos = new FileOutputStream(exportFile);
             CsvBirdCountExporter exporter = new CsvBirdCountExporter(new OutputStreamWriter(fos), this);
             exporter.exportCompleteBirdCount(birdCount);
@@ -172,40 +206,6 @@ public class CensusDisplay extends AppCompatActivity {
         return true;
     }
 
-    /**
-     * Creates the name for the CSV file to contain the bird count.
-     * It is guaranteed to not conflict with any existing files.
-     * @param birdCount the bird count to export+
-     * @param suffix the file name suffix (e.g. "<em>summary</em>" or "<em>complete</em>")
-     * @param path where the file will be created. This parameter is especially important to
-     *             generate a unique file name
-     * @return the file name
-     */
-    @NonNull
-    private String generateExportFilename(BirdCount birdCount, String suffix, @NonNull File path) {
-        String fileType = ".csv";
-        String prefix = getString(R.string.census_export_prefix);
-        String date = String.format(getString(R.string.census_export_date_pattern), birdCount.getStartTime(), birdCount.getStartTime(), birdCount.getStartTime());
-        String separator = getString(R.string.census_export_fname_separator);
-
-        String filename = prefix + separator + date + separator + suffix;
-
-        File file = new File(path, filename + fileType);
-        int exportNumber = file.exists() ? 1 : -1;
-
-        while (file.exists()) {
-            exportNumber++;
-            String fname = filename + separator + exportNumber + fileType;
-            file = new File(path, fname);
-        }
-
-        if (exportNumber > -1) {
-            filename += separator + exportNumber;
-        }
-
-        return filename + fileType;
-    }
-
     /**
      * Displays an {@link AlertDialog} to notify the user about the termination of the export
      * @param successful whether the export finished without any errors
@@ -1,63 +1,89 @@
 package de.jordsand.birdcensus.activities;
 
+import android.app.ProgressDialog;
 import android.content.Context;
+import android.content.DialogInterface;
 import android.content.Intent;
 import android.content.res.Resources;
 import android.os.Bundle;
 import android.support.v4.util.Pair;
+import android.support.v7.app.AlertDialog;
 import android.support.v7.app.AppCompatActivity;
 import android.text.Editable;
 import android.text.TextWatcher;
+import android.util.Log;
 import android.view.LayoutInflater;
+import android.view.Menu;
+import android.view.MenuItem;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.AbsListView;
 import android.widget.AdapterView;
 import android.widget.BaseAdapter;
 import android.widget.EditText;
-import android.widget.Filter;
-import android.widget.Filterable;
 import android.widget.ListView;
 import android.widget.TextView;
 
+import java.io.File;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Calendar;
 import java.util.Date;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 
 import de.jordsand.birdcensus.R;
-import de.jordsand.birdcensus.core.BirdCount;
-import de.jordsand.birdcensus.database.BirdCountOpenHandler;
-import de.jordsand.birdcensus.database.repositories.SQLiteBirdCountRepository;
+import de.jordsand.birdcensus.core.CensusFilter;
+import de.jordsand.birdcensus.core.CensusSummary;
+import de.jordsand.birdcensus.database.repositories.AsyncRepositoryFacade;
+import de.jordsand.birdcensus.infrastructure.AsyncQueryExecutor.PendingQuery;
+import de.jordsand.birdcensus.infrastructure.QueryCallback;
+import de.jordsand.birdcensus.services.exporter.csv.CsvBulkExportJob;
+import de.jordsand.birdcensus.util.ExportFileNames;
+import de.jordsand.birdcensus.util.FileSystem;
 
 /**
  * Displaying a list of all past bird counts
+ * <p>
+ * Only summaries of the bird counts are loaded, one page at a time as the user scrolls down.
+ * All bird counts matching the current filter may be exported into a single file at once.
+ * </p>
  * @author Rico Bergmann
  */
 public class CensusSelection extends AppCompatActivity {
+    private static final String TAG = CensusSelection.class.getSimpleName();
+    private static final int PAGE_SIZE = 50;
+
+    /**
+     * The number of remaining items at which the next page should be requested
+     */
+    private static final int PREFETCH_DISTANCE = 10;
+
     private Resources res;
     private ListView list;
     private CensusAdapter adapter;
     private EditText searchDay;
     private EditText searchMonth;
     private EditText searchYear;
-    private SQLiteBirdCountRepository repo;
+    private AsyncRepositoryFacade repositories;
+
+    private CensusFilter filter = CensusFilter.NONE;
+    private PendingQuery<List<CensusSummary>> pendingPage;
+    private boolean allPagesLoaded;
+    private CsvBulkExportJob exportJob;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_census_selection);
 
-        BirdCountOpenHandler openHandler = BirdCountOpenHandler.instance(this);
-        repo = new SQLiteBirdCountRepository(openHandler.getReadableDatabase());
+        repositories = new AsyncRepositoryFacade(this);
 
         res = getResources();
         list = (ListView) findViewById(R.id.census_selection);
-        adapter = new CensusAdapter(this, repo.findAll());
+        adapter = new CensusAdapter(this);
         list.setAdapter(adapter);
         list.setOnItemClickListener(new CensusSelectionOnClickListener());
+        list.setOnScrollListener(new PagingOnScrollListener());
 
 
         SearchTextWatcher textWatcher = new SearchTextWatcher();
@@ -68,40 +94,192 @@ public class CensusSelection extends AppCompatActivity {
         searchMonth.addTextChangedListener(textWatcher);
         searchYear = (EditText) findViewById(R.id.search_date_year);
         searchYear.addTextChangedListener(textWatcher);
+
+        loadNextPage();
+    }
+
+    @Override
+    protected void onDestroy() {
+        repositories.cancelAll();
+        if (exportJob != null) {
+            exportJob.cancel();
+            exportJob = null;
+        }
+        super.onDestroy();
+    }
+
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.menu_census_selection, menu);
+        return super.onCreateOptionsMenu(menu);
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        switch (item.getItemId()) {
+            case R.id.export_census_period:
+                exportFilteredCensuses();
+                return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+
+    /**
+     * Exports all bird counts which satisfy the current filter, i.e. exactly the listed ones, into
+     * one file. The export runs in the background while its progress is displayed.
+     */
+    private void exportFilteredCensuses() {
+        if (exportJob != null) {
+            return;
+        }
+        String filename = ExportFileNames.forFilter(this, filter, getString(R.string.census_export_complete_suffix));
+        File exportFile = new File(FileSystem.getDocumentDirectoryRoot(), filename);
+
+        final ProgressDialog progressDialog = new ProgressDialog(this);
+        progressDialog.setMessage(getString(R.string.census_export_progress));
+        progressDialog.setProgressStyle(ProgressDialog.STYLE_HORIZONTAL);
+        progressDialog.setIndeterminate(true);
+        progressDialog.setCancelable(false);
+        progressDialog.setButton(DialogInterface.BUTTON_NEGATIVE, getString(R.string.abort), new DialogInterface.OnClickListener() {
+            @Override
+            public void onClick(DialogInterface dialogInterface, int i) {
+                if (exportJob != null) {
+                    exportJob.cancel();
+                    exportJob = null;
+                }
+            }
+        });
+        progressDialog.show();
+
+        exportJob = CsvBulkExportJob.start(this, filter, exportFile, new CsvBulkExportJob.Listener() {
+            @Override
+            public void onProgress(int exported, int total) {
+                progressDialog.setIndeterminate(false);
+                progressDialog.setMax(total);
+                progressDialog.setProgress(exported);
+            }
+
+            @Override
+            public void onFinished(File exportFile, int exported) {
+                exportJob = null;
+                progressDialog.dismiss();
+                alertExportFinished(getString(R.string.census_export_bulk_success, exported, exportFile.getName()), true);
+            }
+
+            @Override
+            public void onFailed(Exception error) {
+                Log.e(TAG, "Export failed", error);
+                exportJob = null;
+                progressDialog.dismiss();
+                alertExportFinished(getString(R.string.census_export_error), false);
+            }
+        });
+    }
+
+    /**
+     * Displays an {@link AlertDialog} to notify the user about the termination of the export
+     * @param message the message to display
+     * @param successful whether the export finished without any errors
+     */
+    private void alertExportFinished(String message, boolean successful) {
+        AlertDialog.Builder alertDialog = new AlertDialog.Builder(this);
+        alertDialog.setMessage(message);
+        alertDialog.setIcon(successful ? R.drawable.ic_info : R.drawable.ic_warning);
+        alertDialog.setPositiveButton(R.string.ok, new DialogInterface.OnClickListener() {
+            @Override
+            public void onClick(DialogInterface dialog, int which) {
+                dialog.dismiss();
+            }
+        });
+        alertDialog.show();
+    }
+
+    /**
+     * Discards all loaded summaries and starts over with the current filter
+     */
+    private void restartPaging() {
+        if (pendingPage != null) {
+            pendingPage.cancel();
+            pendingPage = null;
+        }
+        allPagesLoaded = false;
+        adapter.clear();
+        loadNextPage();
+    }
+
+    /**
+     * Requests the next page of summaries, unless it is already being loaded
+     */
+    private void loadNextPage() {
+        if (pendingPage != null || allPagesLoaded) {
+            return;
+        }
+        pendingPage = repositories.findCensusSummaries(filter, adapter.getLastItem(), PAGE_SIZE, new QueryCallback<List<CensusSummary>>() {
+            @Override
+            public void onResult(List<CensusSummary> summaries) {
+                pendingPage = null;
+                allPagesLoaded = summaries.size() < PAGE_SIZE;
+                adapter.append(summaries);
+            }
+
+            @Override
+            public void onFailure(Exception error) {
+                pendingPage = null;
+                super.onFailure(error);
+            }
+        });
     }
 
     /**
      * Adapter for displaying a census
      */
-    private class CensusAdapter extends BaseAdapter implements Filterable {
+    private class CensusAdapter extends BaseAdapter {
         private LayoutInflater inflater;
 
-        private List<BirdCount> availableBirdCounts;
-        private List<BirdCount> adaptedBirdCounts;
+        private List<CensusSummary> summaries;
 
-        CensusAdapter(Context ctx, Iterable<BirdCount> birdCounts) {
+        CensusAdapter(Context ctx) {
             inflater = LayoutInflater.from(ctx);
-            this.availableBirdCounts = new LinkedList<>();
-            this.adaptedBirdCounts = new ArrayList<>();
-            for (BirdCount bc : birdCounts) {
-                this.availableBirdCounts.add(bc);
-                this.adaptedBirdCounts.add(bc);
-            }
+            summaries = new ArrayList<>(PAGE_SIZE);
+        }
+
+        /**
+         * Adds another page to the list
+         * @param page the summaries to add
+         */
+        void append(List<CensusSummary> page) {
+            summaries.addAll(page);
+            notifyDataSetChanged();
+        }
+
+        /**
+         * Removes all summaries from the list
+         */
+        void clear() {
+            summaries.clear();
+            notifyDataSetChanged();
+        }
+
+        /**
+         * @return the last summary loaded, or {@code null} if the list is empty
+         */
+        CensusSummary getLastItem() {
+            return summaries.isEmpty() ? null : summaries.get(summaries.size() - 1);
         }
 
         @Override
         public int getCount() {
-            return adaptedBirdCounts.size();
+            return summaries.size();
         }
 
         @Override
         public Object getItem(int i) {
-            return adaptedBirdCounts.get(i);
+            return summaries.get(i);
         }
 
         @Override
         public long getItemId(int i) {
-            return i;
+            return summaries.get(i).getId();
         }
 
         @Override
@@ -117,75 +295,13 @@ public class CensusSelection extends AppCompatActivity {
             } else {
                 holder = (ViewHolder) convertView.getTag();
             }
-            BirdCount birdCount = (BirdCount) getItem(position);
-            holder.startDate.setText(formatDate(birdCount.getStartTime()));
-            holder.observer.setText(birdCount.getObserverName());
-            holder.totalSpecies.setText(res.getString(R.string.total_species_count, birdCount.getDifferentSpeciesCount(), birdCount.getTotalObservedSpeciesCount()));
+            CensusSummary summary = (CensusSummary) getItem(position);
+            holder.startDate.setText(formatDate(summary.getStartTime()));
+            holder.observer.setText(summary.getObserverName());
+            holder.totalSpecies.setText(res.getString(R.string.total_species_count, summary.getDifferentSpeciesCount(), summary.getTotalObservedSpeciesCount()));
             return convertView;
         }
 
-        @Override
-        public Filter getFilter() {
-            return new Filter() {
-                @Override
-                protected FilterResults performFiltering(CharSequence charSequence) {
-                    FilterResults results = new FilterResults();
-                    adaptedBirdCounts.clear();
-
-                    int day = -1;
-                    int month = -1;
-                    int year = -1;
-
-                    if (searchDay.getText().length() > 0) {
-                        day = Integer.parseInt(searchDay.getText().toString());
-                    }
-
-                    if (searchMonth.getText().length() > 0) {
-                        month = Integer.parseInt(searchMonth.getText().toString());
-                    }
-
-                    if (searchYear.getText().length() > 0) {
-                        year = Integer.parseInt(searchYear.getText().toString());
-                    }
-
-                    filterBirdCounts(day, month, year);
-
-                    results.count = adaptedBirdCounts.size();
-                    results.values = adaptedBirdCounts;
-                    return results;
-                }
-
-                @Override
-                protected void publishResults(CharSequence charSequence, FilterResults filterResults) {
-                    notifyDataSetChanged();
-                }
-
-                private void filterBirdCounts(int day, int month, int year) {
-                    for (BirdCount bc : availableBirdCounts) {
-                        Calendar cal = Calendar.getInstance();
-                        cal.setTime(bc.getStartTime());
-
-                        int calDay = cal.get(Calendar.DAY_OF_MONTH);
-                        if (day != -1 && day != calDay) {
-                            continue;
-                        }
-
-                        int calMonth = cal.get(Calendar.MONTH) + 1;
-                        if (month != -1 && month != calMonth) {
-                            continue;
-                        }
-
-                        int calYear = cal.get(Calendar.YEAR);
-                        if (year != -1 && year != calYear && year != calYear - 2000) {
-                            continue;
-                        }
-
-                        adaptedBirdCounts.add(bc);
-                    }
-                }
-            };
-        }
-
         String formatDate(Date date) {
             SimpleDateFormat format = new SimpleDateFormat("dd.MM.yy", Locale.GERMANY);
             return format.format(date);
@@ -203,11 +319,28 @@ public class CensusSelection extends AppCompatActivity {
         @Override
         public void onItemClick(AdapterView<?> parent, View view, int position, long id) {
             Intent censusDisplay = new Intent(CensusSelection.this, CensusDisplay.class);
-            censusDisplay.putExtra("census_start_date", ((BirdCount)adapter.getItem(position)).getStartTime().getTime());
+            censusDisplay.putExtra("census_start_date", ((CensusSummary)adapter.getItem(position)).getStartTime().getTime());
             startActivity(censusDisplay);
         }
     }
 
+    /**
+     * Requests further summaries as soon as the end of the list comes into sight
+     */
+    private class PagingOnScrollListener implements AbsListView.OnScrollListener {
+        @Override
+        public void onScrollStateChanged(AbsListView view, int scrollState) {
+
+        }
+
+        @Override
+        public void onScroll(AbsListView view, int firstVisibleItem, int visibleItemCount, int totalItemCount) {
+            if (firstVisibleItem + visibleItemCount + PREFETCH_DISTANCE >= totalItemCount) {
+                loadNextPage();
+            }
+        }
+    }
+
     /**
      * Handler for the date search field
      */
@@ -224,24 +357,23 @@ public class CensusSelection extends AppCompatActivity {
 
         @Override
         public void afterTextChanged(Editable editable) {
-            adapter.getFilter().filter(joinDates());
+            filter = new CensusFilter(parseField(searchDay), parseField(searchMonth), parseField(searchYear));
+            restartPaging();
         }
 
-        private String joinDates() {
-            String result = "";
-            if (searchDay.getText().length() > 0) {
-                result += searchDay.getText().toString() + ".";
+        /**
+         * @param field the search field
+         * @return the number entered into the field or {@link CensusFilter#UNSET} if it is empty
+         */
+        private int parseField(EditText field) {
+            if (field.getText().length() == 0) {
+                return CensusFilter.UNSET;
             }
-
-            if (searchMonth.getText().length() > 0) {
-                result += searchMonth.getText().toString() + ".";
+            try {
+                return Integer.parseInt(field.getText().toString());
+            } catch (NumberFormatException e) {
+                return CensusFilter.UNSET;
             }
-
-            if (searchYear.getText().length() > 0) {
-                result += searchYear.getText().toString();
-            }
-
-            return result;
         }
     }
 
@@ -4,31 +4,23 @@ import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
 import android.content.ServiceConnection;
-import android.content.SharedPreferences;
-import android.os.Environment;
 import android.os.IBinder;
 import android.support.v7.app.AppCompatActivity;
 import android.os.Bundle;
-import android.util.Log;
 import android.view.View;
 import android.widget.Button;
+import android.widget.ProgressBar;
+import android.widget.TextView;
 import android.widget.Toast;
 
-import java.io.File;
-import java.io.IOException;
-import java.io.InputStream;
-
 import de.jordsand.birdcensus.R;
-import de.jordsand.birdcensus.core.MonitoringAreaRepository;
-import de.jordsand.birdcensus.core.SpeciesRepository;
-import de.jordsand.birdcensus.database.BirdCountOpenHandler;
-import de.jordsand.birdcensus.database.repositories.SQLiteMonitoringAreaRepository;
-import de.jordsand.birdcensus.database.repositories.SQLiteSpeciesRepository;
-import de.jordsand.birdcensus.database.repositories.setup.DatabaseInflater;
+import de.jordsand.birdcensus.core.BirdCount;
+import de.jordsand.birdcensus.core.ReferenceCatalogue;
+import de.jordsand.birdcensus.database.repositories.AsyncRepositoryFacade;
+import de.jordsand.birdcensus.infrastructure.QueryCallback;
 import de.jordsand.birdcensus.services.census.BirdCountService;
-import de.jordsand.birdcensus.services.maps.OfflineMapSetupService;
-import de.jordsand.birdcensus.services.maps.OsmDroidOfflineMapSetupService;
 import de.jordsand.birdcensus.services.census.SimpleBirdCountService;
+import de.jordsand.birdcensus.services.setup.FirstStartSetup;
 
 /**
  * Main activity.
@@ -38,7 +30,6 @@ import de.jordsand.birdcensus.services.census.SimpleBirdCountService;
  * @author Rico Bergmann
  */
 public class Overview extends AppCompatActivity {
-    private static final String TAG = Overview.class.getSimpleName();
     private static final int RQ_NEW_CENSUS = 111;
     private static final int RQ_CONTINUE_CENSUS = 222;
 
@@ -48,18 +39,29 @@ public class Overview extends AppCompatActivity {
     private Button showData;
     private Button newCensus;
     private Button continueCensus;
+    private TextView setupStatus;
+    private ProgressBar setupProgress;
+    private AsyncRepositoryFacade repositories;
+    private FirstStartSetup setup;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_overview);
 
+        repositories = new AsyncRepositoryFacade(this);
+
         showData = (Button) findViewById(R.id.show_data);
         showData.setOnClickListener(new ShowDataBtnOnClickListener());
         newCensus = (Button) findViewById(R.id.start_census);
         newCensus.setOnClickListener(new StartCensusBtnOnClickListener());
         continueCensus = (Button) findViewById(R.id.continue_census);
         continueCensus.setOnClickListener(new ContinueCensusBtnOnClickListener());
+        setupStatus = (TextView) findViewById(R.id.setup_status);
+        setupProgress = (ProgressBar) findViewById(R.id.setup_progress);
+
+        setup = FirstStartSetup.instance(this);
+        setupProgress.setMax(FirstStartSetup.Step.values().length);
     }
 
     @Override
@@ -72,24 +74,32 @@ public class Overview extends AppCompatActivity {
         }
         bindService(intent, mConnection, Context.BIND_AUTO_CREATE);
 
-        if (mBound && birdCountService.isBirdCountOngoing()) {
-            continueCensus.setEnabled(true);
-            newCensus.setEnabled(false);
+        updateCensusButtons();
+
+        setup.addListener(setupListener);
+        if (setup.isComplete()) {
+            hideSetupProgress();
         } else {
-            continueCensus.setEnabled(false);
-            newCensus.setEnabled(true);
+            // the setup may still be running from an earlier start of this activity
+            setupProgress.setVisibility(View.VISIBLE);
+            setupStatus.setVisibility(View.VISIBLE);
+            setup.start();
         }
 
-        if (isFirstStart()) {
-            BirdCountOpenHandler openHandler = BirdCountOpenHandler.instance(this);
-            MonitoringAreaRepository areaRepo = new SQLiteMonitoringAreaRepository(openHandler.getWritableDatabase());
-            SpeciesRepository speciesRepo = new SQLiteSpeciesRepository(openHandler.getWritableDatabase());
-            initFirstStart(speciesRepo, areaRepo);
+        if (setup.isDone(FirstStartSetup.Step.REFERENCE_DATA)) {
+            warmUpCatalogue();
         }
     }
 
+    @Override
+    protected void onStop() {
+        setup.removeListener(setupListener);
+        super.onStop();
+    }
+
     @Override
     protected void onDestroy() {
+        repositories.cancelAll();
         super.onDestroy();
         if (mBound) {
             unbindService(mConnection);
@@ -102,7 +112,11 @@ public class Overview extends AppCompatActivity {
         if (requestCode == RQ_NEW_CENSUS || requestCode == RQ_CONTINUE_CENSUS) {
             if (resultCode == RESULT_OK) {
                 if (data.getBooleanExtra("terminated", false)) {
-                    Toast.makeText(this, R.string.census_terminated, Toast.LENGTH_SHORT).show();
+                    // whether the bird count could be saved is reported by the terminating screen
+                    updateCensusButtons();
+                    if (mBound) {
+                        birdCountService.whenReady(updateOnReady);
+                    }
                 } else if (data.getBooleanExtra("aborted", false)) {
                     Toast.makeText(this, R.string.census_aborted, Toast.LENGTH_SHORT).show();
                 }
@@ -111,43 +125,88 @@ public class Overview extends AppCompatActivity {
     }
 
     /**
-     * @return {@code true} if the app was started for the first time ever, {@code false} otherwise
+     * Enables the buttons according to whether a bird count is ongoing. A new bird count may only
+     * be started once the reference data is available and the service is ready, i.e. an interrupted
+     * bird count was restored and a terminated one was saved.
      */
-    private boolean isFirstStart() {
-        final String FIRST_START_KEY = "first_start";
-
-        SharedPreferences preferences = getPreferences(MODE_PRIVATE);
-        boolean firstStart = preferences.getBoolean(FIRST_START_KEY, true);
-
-        if (firstStart) {
-            SharedPreferences.Editor editor = preferences.edit();
-            editor.putBoolean(FIRST_START_KEY, false);
-            editor.apply();
+    private void updateCensusButtons() {
+        if (mBound && !birdCountService.isReady()) {
+            continueCensus.setEnabled(false);
+            newCensus.setEnabled(false);
+        } else if (mBound && birdCountService.isBirdCountOngoing()) {
+            continueCensus.setEnabled(true);
+            newCensus.setEnabled(false);
+        } else {
+            continueCensus.setEnabled(false);
+            newCensus.setEnabled(setup.isDone(FirstStartSetup.Step.REFERENCE_DATA));
         }
+    }
 
-        return firstStart;
+    /**
+     * Loads the catalogue in the background, so the census screens will not have to wait for it
+     */
+    private void warmUpCatalogue() {
+        repositories.findReferenceCatalogue(new QueryCallback<ReferenceCatalogue>() {
+            @Override
+            public void onResult(ReferenceCatalogue catalogue) {
+                // nothing to do, the catalogue is kept by the shared repositories
+            }
+        });
+    }
+
+    private void hideSetupProgress() {
+        setupProgress.setVisibility(View.GONE);
+        setupStatus.setVisibility(View.GONE);
     }
 
     /**
-     * Setup specifically for the first start. It will inflate the repositories.
-     * @param speciesRepo the species repository
-     * @param areaRepo the monitoring area repository
+     * Displays the progress of the first start setup
      */
-    private void initFirstStart(SpeciesRepository speciesRepo, MonitoringAreaRepository areaRepo) {
-        try {
-            InputStream managementIndicatorSpeciesXML = getAssets().open("xml/management_indicator_species.xml");
-            InputStream monitoringAreasXML = getAssets().open("xml/monitoring_areas.xml");
-            DatabaseInflater inflater = DatabaseInflater.fromXML(managementIndicatorSpeciesXML, monitoringAreasXML, speciesRepo, areaRepo);
-            inflater.inflate();
+    private FirstStartSetup.Listener setupListener = new FirstStartSetup.Listener() {
+        @Override
+        public void onStepStarted(FirstStartSetup.Step step, int completed, int total) {
+            setupProgress.setMax(total);
+            setupProgress.setProgress(completed);
+            switch (step) {
+                case REFERENCE_DATA:
+                    setupStatus.setText(R.string.overview_setup_reference_data);
+                    break;
+                case OFFLINE_MAPS:
+                    setupStatus.setText(R.string.overview_setup_offline_maps);
+                    break;
+            }
+        }
 
-            OfflineMapSetupService offlineMapSetupService = new OsmDroidOfflineMapSetupService();
-            InputStream offlineMapData = getAssets().open("Schleimuendung.zip");
-            offlineMapSetupService.setup(offlineMapData, Environment.getExternalStorageDirectory().getPath() + File.separator + "osmdroid" + File.separator + "Schleimuendung.zip");
+        @Override
+        public void onStepFinished(FirstStartSetup.Step step) {
+            setupProgress.incrementProgressBy(1);
+            if (step == FirstStartSetup.Step.REFERENCE_DATA) {
+                updateCensusButtons();
+                warmUpCatalogue();
+            }
+        }
 
-        } catch (IOException e) {
-            Log.e(TAG, "Unable to open assets: " + e);
+        @Override
+        public void onSetupFinished() {
+            hideSetupProgress();
         }
-    }
+
+        @Override
+        public void onSetupFailed(FirstStartSetup.Step step, Exception error) {
+            hideSetupProgress();
+            Toast.makeText(Overview.this, R.string.overview_setup_failed, Toast.LENGTH_LONG).show();
+        }
+    };
+
+    /**
+     * Updates the buttons as soon as the {@link SimpleBirdCountService} is ready
+     */
+    private QueryCallback<BirdCount> updateOnReady = new QueryCallback<BirdCount>() {
+        @Override
+        public void onResult(BirdCount birdCount) {
+            updateCensusButtons();
+        }
+    };
 
     /**
      * Connection to the {@link BirdCountService}
@@ -159,13 +218,8 @@ public class Overview extends AppCompatActivity {
             birdCountService = binder.getService();
             mBound = true;
 
-            if (birdCountService.isBirdCountOngoing()) {
-                continueCensus.setEnabled(true);
-                newCensus.setEnabled(false);
-            } else {
-                continueCensus.setEnabled(false);
-                newCensus.setEnabled(true);
-            }
+            updateCensusButtons();
+            birdCountService.whenReady(updateOnReady);
         }
 
         @Override
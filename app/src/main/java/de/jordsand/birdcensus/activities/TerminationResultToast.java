@@ -0,0 +1,37 @@
+package de.jordsand.birdcensus.activities;
+
+import android.content.Context;
+import android.util.Log;
+import android.widget.Toast;
+
+import de.jordsand.birdcensus.R;
+import de.jordsand.birdcensus.core.BirdCount;
+import de.jordsand.birdcensus.infrastructure.QueryCallback;
+
+/**
+ * Tells the user whether a terminated bird count was saved. The activity which terminated the
+ * bird count is usually finished by then, so the toast is shown through the application context.
+ */
+class TerminationResultToast extends QueryCallback<BirdCount> {
+    private static final String TAG = TerminationResultToast.class.getSimpleName();
+
+    private final Context ctx;
+
+    /**
+     * @param ctx the context to show the toast with. Only its application context will be kept
+     */
+    TerminationResultToast(Context ctx) {
+        this.ctx = ctx.getApplicationContext();
+    }
+
+    @Override
+    public void onResult(BirdCount birdCount) {
+        Toast.makeText(ctx, R.string.census_terminated, Toast.LENGTH_SHORT).show();
+    }
+
+    @Override
+    public void onFailure(Exception error) {
+        Log.e(TAG, "Bird count was not saved", error);
+        Toast.makeText(ctx, R.string.census_save_failed, Toast.LENGTH_LONG).show();
+    }
+}
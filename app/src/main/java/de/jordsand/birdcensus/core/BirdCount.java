@@ -4,14 +4,10 @@ import android.support.annotation.IntRange;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 import de.jordsand.birdcensus.util.DateConverter;
 
@@ -27,6 +23,19 @@ public class BirdCount {
     private String observerName;
     private Map<MonitoringArea, WatchList> observedSpecies;
 
+    /**
+     * The watchlists indexed by the code of their monitoring area
+     */
+    private Map<String, WatchList> watchListsByCode;
+
+    /**
+     * Running totals over all watchlists: the number of individuals per species as well as the
+     * overall number of individuals. They are updated on each new record, so summaries never have
+     * to be recomputed
+     */
+    private WatchList speciesTotals;
+    private int totalCount;
+
     /**
      * Constructor for starting a new bird count
      * @param startTime the start time
@@ -38,6 +47,9 @@ public class BirdCount {
         this.weatherInfo = weatherData;
         this.observerName = observerName;
         this.observedSpecies = new HashMap<>();
+        this.watchListsByCode = new HashMap<>();
+        this.speciesTotals = new WatchList();
+        this.totalCount = 0;
     }
 
     /**
@@ -59,6 +71,13 @@ public class BirdCount {
         this.weatherInfo = weatherData;
         this.observerName = observerName;
         this.observedSpecies = observedSpecies;
+        this.watchListsByCode = new HashMap<>(2 * observedSpecies.size());
+        this.speciesTotals = new WatchList();
+        this.totalCount = 0;
+        for (Map.Entry<MonitoringArea, WatchList> watchList : observedSpecies.entrySet()) {
+            watchListsByCode.put(watchList.getKey().getCode(), watchList.getValue());
+            addToTotals(watchList.getValue());
+        }
     }
 
     @NonNull
@@ -90,29 +109,20 @@ public class BirdCount {
      * @return each observed species and the number of observed individuals
      */
     public Map<Species, Integer> getObservationSummary() {
-        List<Map<Species, Integer>> rawObservationData = getObservedSpeciesMaps();
-        return Collections.unmodifiableMap(mergeObservedSpeciesMap(rawObservationData));
+        return speciesTotals.getObservedSpeciesMap();
     }
 
     /**
      * @return the number of different species observed
      */
     public int getDifferentSpeciesCount() {
-        Set<Species> observedSpecies = new HashSet<>();
-        for (WatchList watchList : this.observedSpecies.values()) {
-            observedSpecies.addAll(watchList.getObservedSpecies());
-        }
-        return observedSpecies.size();
+        return speciesTotals.size();
     }
 
     /**
      * @return the total number of individuals observed
      */
     public int getTotalObservedSpeciesCount() {
-        int totalCount = 0;
-        for (Integer  count : getObservationSummary().values()) {
-            totalCount += count;
-        }
         return totalCount;
     }
 
@@ -121,14 +131,7 @@ public class BirdCount {
      * @return the total number of individuals of the given species observed during this bird count
      */
     public int getObservedCountOf(Species species) {
-        int count = 0;
-        for (WatchList w : observedSpecies.values()) {
-            Integer curr = w.getObservedSpeciesMap().get(species);
-            if (curr != null) {
-                count += curr;
-            }
-        }
-        return count;
+        return speciesTotals.getCountOf(species);
     }
 
     /**
@@ -137,13 +140,8 @@ public class BirdCount {
      * @return the total number of individuals observed in the given area
      */
     public int getObservedCountOf(Species species, String areaCode) {
-        for (MonitoringArea monitoringArea : observedSpecies.keySet()) {
-            if (monitoringArea.getCode().equals(areaCode)) {
-                Integer count = observedSpecies.get(monitoringArea).getObservedSpeciesMap().get(species);
-                return (count != null) ? count : 0;
-            }
-        }
-        return 0;
+        WatchList w = watchListsByCode.get(areaCode);
+        return (w != null) ? w.getCountOf(species) : 0;
     }
 
     /**
@@ -154,8 +152,7 @@ public class BirdCount {
     public int getObservedCountOf(Species species, MonitoringArea area) {
         WatchList w = observedSpecies.get(area);
         if (w != null) {
-            Integer count = w.getObservedSpeciesMap().get(species);
-            return (count != null) ? count : 0;
+            return w.getCountOf(species);
         }
         return 0;
     }
@@ -165,12 +162,7 @@ public class BirdCount {
      * @return {@code true} if the species was observed during this bird count, {@code false} otherwise
      */
     public boolean wasObserved(Species species) {
-        for (MonitoringArea area : observedSpecies.keySet()) {
-            if (wasObservedIn(species, area)) {
-                return true;
-            }
-        }
-        return false;
+        return speciesTotals.getCountOf(species) > 0;
     }
 
     /**
@@ -179,12 +171,8 @@ public class BirdCount {
      * @return {@code true} if the species was observed in the given area, {@code false} otherwise
      */
     public boolean wasObservedIn(Species species, String areaCode) {
-        for (MonitoringArea area : observedSpecies.keySet()) {
-            if (area.getCode().equals(areaCode)) {
-                return wasObservedIn(species, area);
-            }
-        }
-        return false;
+        WatchList watchList = watchListsByCode.get(areaCode);
+        return watchList != null && watchList.getCountOf(species) > 0;
     }
 
     /**
@@ -195,8 +183,7 @@ public class BirdCount {
     public boolean wasObservedIn(Species species, MonitoringArea area) {
         WatchList watchList = observedSpecies.get(area);
         if (watchList != null) {
-            Integer count = watchList.getObservedSpeciesMap().get(species);
-            return (count != null && count > 0);
+            return watchList.getCountOf(species) > 0;
         }
         return false;
     }
@@ -219,6 +206,13 @@ public class BirdCount {
         this.endTime = new Date();
     }
 
+    /**
+     * Continues a terminated count, e.g. because it could not be saved
+     */
+    public void reopen() {
+        this.endTime = null;
+    }
+
     /**
      * Saves a new record.
      * @param place the area where the species was recorded
@@ -233,42 +227,24 @@ public class BirdCount {
             WatchList list = new WatchList();
             list.addSightingFor(species, count);
             observedSpecies.put(place, list);
+            watchListsByCode.put(place.getCode(), list);
         } else {
             observedSpecies.get(place).addSightingFor(species, count);
         }
+        speciesTotals.addSightingFor(species, count);
+        totalCount += count;
     }
 
     /**
-     * Extracts the observations from each watchlist
-     * @return a list consisting of all observations
+     * Includes the observations of a watchlist into the running totals
+     * @param watchList the watchlist to include
      */
-    private List<Map<Species, Integer>> getObservedSpeciesMaps() {
-        List<Map<Species, Integer>> observedSpeciesMap = new ArrayList<>(observedSpecies.size());
-        for (WatchList watchList : observedSpecies.values()) {
-            observedSpeciesMap.add(watchList.getObservedSpeciesMap());
-        }
-        return observedSpeciesMap;
-    }
-
-    /**
-     * Merges a list of observations into a single map.
-     * For each species it will contain the total number of observations
-     * @param observedSpecies the raw observation list
-     * @return the merged list
-     */
-    private Map<Species, Integer> mergeObservedSpeciesMap(List<Map<Species, Integer>> observedSpecies) {
-        Map<Species, Integer> mergedMap = new HashMap<>();
-
-        for (Map<Species, Integer> watchlist : observedSpecies) {
-            for (Species species : watchlist.keySet()) {
-                if (mergedMap.containsKey(species)) {
-                    mergedMap.put(species, mergedMap.get(species) + watchlist.get(species));
-                } else {
-                    mergedMap.put(species, watchlist.get(species));
-                }
-            }
+    private void addToTotals(WatchList watchList) {
+        for (int i = 0; i < watchList.size(); ++i) {
+            int count = watchList.getCountAt(i);
+            speciesTotals.addSightingFor(watchList.getSpeciesAt(i), count);
+            totalCount += count;
         }
-        return mergedMap;
     }
 
     @Override
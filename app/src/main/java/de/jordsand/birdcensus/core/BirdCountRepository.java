@@ -4,6 +4,7 @@ import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
 import java.util.Date;
+import java.util.List;
 
 import de.jordsand.birdcensus.infrastructure.Repository;
 
@@ -29,6 +30,25 @@ public interface BirdCountRepository extends Repository<BirdCount, Long> {
     @NonNull
     Iterable<BirdCount> findByObserver(@NonNull String observerName);
 
+    /**
+     * Retrieves all bird counts which started within a certain period
+     * @param from the (inclusive) beginning of the period
+     * @param to the (exclusive) end of the period
+     * @return the matching bird counts
+     */
+    @NonNull
+    Iterable<BirdCount> findByStartDateBetween(@NonNull Date from, @NonNull Date to);
+
+    /**
+     * Retrieves summaries of the bird counts page by page, ordered by their start time
+     * @param filter restriction of the bird counts' start dates
+     * @param after the last summary of the previous page, or {@code null} to retrieve the first page
+     * @param pageSize the maximum number of summaries to retrieve
+     * @return the summaries. If less than {@code pageSize} elements are returned, there are no more pages
+     */
+    @NonNull
+    List<CensusSummary> findSummaries(@NonNull CensusFilter filter, @Nullable CensusSummary after, int pageSize);
+
     /**
      * Checks, whether a bird count took place at a certain time
      * @param startDate the date the census started
@@ -0,0 +1,180 @@
+package de.jordsand.birdcensus.core;
+
+import android.support.annotation.Nullable;
+
+import java.util.Calendar;
+import java.util.Date;
+
+/**
+ * Restricts bird counts by (parts of) their start date. Each of day, month and year may be left
+ * unset independently.
+ * <p>
+ * If the year is set, the filter describes a coherent period (the whole year, one of its months
+ * or a single day) which may be used for range queries. Years below 100 are interpreted as years
+ * of the 21st century.
+ * </p>
+ * <p>
+ * Days and months out of range (e.g. month 13 or the 31st of February) are accepted, as they are
+ * usually entered by hand. Such a filter will not match any date, though.
+ * </p>
+ */
+public class CensusFilter {
+    public static final int UNSET = -1;
+    public static final CensusFilter NONE = new CensusFilter(UNSET, UNSET, UNSET);
+
+    private static final int CENTURY = 2000;
+    private static final int LEAP_YEAR = 2000;
+    private static final int MAX_DAY = 31;
+    private static final int MAX_MONTH = 12;
+
+    private final int day;
+    private final int month;
+    private final int year;
+    private final boolean satisfiable;
+
+    /**
+     * @param day the day of month (starting at 1) or {@link #UNSET}
+     * @param month the month (starting at 1) or {@link #UNSET}
+     * @param year the year or {@link #UNSET}
+     */
+    public CensusFilter(int day, int month, int year) {
+        this.day = day;
+        this.month = month;
+        this.year = (year != UNSET && year < 100) ? CENTURY + year : year;
+        this.satisfiable = isValidDate(this.day, this.month, this.year);
+    }
+
+    public int getDay() {
+        return day;
+    }
+
+    public int getMonth() {
+        return month;
+    }
+
+    public int getYear() {
+        return year;
+    }
+
+    public boolean hasDay() {
+        return day != UNSET;
+    }
+
+    public boolean hasMonth() {
+        return month != UNSET;
+    }
+
+    public boolean hasYear() {
+        return year != UNSET;
+    }
+
+    /**
+     * @return whether any date may satisfy the filter at all. This is not the case if the day or
+     * month are out of range or the day does not exist within the month
+     */
+    public boolean isSatisfiable() {
+        return satisfiable;
+    }
+
+    /**
+     * @return the (inclusive) beginning of the period described by the filter, or {@code null}
+     * if no year is set or the filter is not {@link #isSatisfiable() satisfiable}
+     */
+    @Nullable
+    public Date getPeriodStart() {
+        if (!hasYear() || !satisfiable) {
+            return null;
+        }
+        return periodStart().getTime();
+    }
+
+    /**
+     * @return the (exclusive) end of the period described by the filter, or {@code null} if
+     * no year is set or the filter is not {@link #isSatisfiable() satisfiable}
+     */
+    @Nullable
+    public Date getPeriodEnd() {
+        if (!hasYear() || !satisfiable) {
+            return null;
+        }
+        Calendar end = periodStart();
+        if (isSingleDay()) {
+            end.add(Calendar.DAY_OF_MONTH, 1);
+        } else {
+            end.add(hasMonth() ? Calendar.MONTH : Calendar.YEAR, 1);
+        }
+        return end.getTime();
+    }
+
+    /**
+     * @return whether the period described by the filter fully accounts for the day of month.
+     * Otherwise the day has to be checked separately
+     */
+    public boolean isSingleDay() {
+        return hasYear() && hasMonth() && hasDay();
+    }
+
+    /**
+     * Checks, whether a date satisfies the filter
+     * @param date the date to check
+     * @return {@code true} if the date matches all set fields, {@code false} otherwise
+     */
+    public boolean matches(Date date) {
+        if (!satisfiable) {
+            return false;
+        }
+        Calendar cal = Calendar.getInstance();
+        cal.setTime(date);
+        return (!hasDay() || day == cal.get(Calendar.DAY_OF_MONTH))
+                && (!hasMonth() || month == cal.get(Calendar.MONTH) + 1)
+                && (!hasYear() || year == cal.get(Calendar.YEAR));
+    }
+
+    /**
+     * @return the first instant of the period described by the filter
+     */
+    private Calendar periodStart() {
+        Calendar start = Calendar.getInstance();
+        start.clear();
+        start.setLenient(false);
+        start.set(Calendar.YEAR, year);
+        start.set(Calendar.MONTH, hasMonth() ? month - 1 : Calendar.JANUARY);
+        start.set(Calendar.DAY_OF_MONTH, isSingleDay() ? day : 1);
+        return start;
+    }
+
+    /**
+     * @param day the day of month or {@link #UNSET}
+     * @param month the month or {@link #UNSET}
+     * @param year the year or {@link #UNSET}
+     * @return whether the set fields may describe an existing date. If no year is set, the 29th
+     * of February is accepted
+     */
+    private static boolean isValidDate(int day, int month, int year) {
+        if ((day != UNSET && (day < 1 || day > MAX_DAY)) || (month != UNSET && (month < 1 || month > MAX_MONTH))) {
+            return false;
+        } else if (day == UNSET || month == UNSET) {
+            return true;
+        }
+
+        Calendar date = Calendar.getInstance();
+        date.clear();
+        date.setLenient(false);
+        date.set(year != UNSET ? year : LEAP_YEAR, month - 1, day);
+        try {
+            date.getTime();
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CensusFilter{" +
+                "day=" + day +
+                ", month=" + month +
+                ", year=" + year +
+                '}';
+    }
+}
@@ -0,0 +1,84 @@
+package de.jordsand.birdcensus.core;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.Date;
+
+/**
+ * Lightweight view on a past {@link BirdCount}. It contains only the data necessary to list
+ * bird counts, without any of the actual observations.
+ */
+public class CensusSummary {
+    private final long id;
+    private final Date startTime;
+    private final String observerName;
+    private final int differentSpeciesCount;
+    private final int totalObservedSpeciesCount;
+
+    public CensusSummary(long id, @NonNull Date startTime, @Nullable String observerName, int differentSpeciesCount, int totalObservedSpeciesCount) {
+        this.id = id;
+        this.startTime = startTime;
+        this.observerName = observerName;
+        this.differentSpeciesCount = differentSpeciesCount;
+        this.totalObservedSpeciesCount = totalObservedSpeciesCount;
+    }
+
+    /**
+     * @return the ID of the summarized bird count
+     */
+    public long getId() {
+        return id;
+    }
+
+    @NonNull
+    public Date getStartTime() {
+        return startTime;
+    }
+
+    @Nullable
+    public String getObserverName() {
+        return observerName;
+    }
+
+    /**
+     * @return the number of different species observed
+     * @see BirdCount#getDifferentSpeciesCount()
+     */
+    public int getDifferentSpeciesCount() {
+        return differentSpeciesCount;
+    }
+
+    /**
+     * @return the total number of individuals observed
+     * @see BirdCount#getTotalObservedSpeciesCount()
+     */
+    public int getTotalObservedSpeciesCount() {
+        return totalObservedSpeciesCount;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        CensusSummary that = (CensusSummary) o;
+        return id == that.id;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (id ^ (id >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return "CensusSummary{" +
+                "id=" + id +
+                ", startTime=" + startTime +
+                ", observerName='" + observerName + '\'' +
+                ", differentSpeciesCount=" + differentSpeciesCount +
+                ", totalObservedSpeciesCount=" + totalObservedSpeciesCount +
+                '}';
+    }
+}
@@ -0,0 +1,212 @@
+package de.jordsand.birdcensus.core;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of the reference data, i.e. all known {@link Species} and
+ * {@link MonitoringArea}s.
+ * <p>
+ * Both rarely change, so they may be loaded once and then be shared throughout the app. Species
+ * are kept ordered by their ID, monitoring areas in the order they were passed in. Lookups by ID or
+ * code are binary searches on plain arrays, lookups by name use a hash index.
+ * </p>
+ */
+public final class ReferenceCatalogue {
+
+    /**
+     * A catalogue without any species or monitoring areas
+     */
+    public static final ReferenceCatalogue EMPTY = new ReferenceCatalogue(new long[0], new Species[0], new MonitoringArea[0]);
+
+    private final long[] speciesIds;
+    private final Species[] species;
+    private final Map<String, List<Species>> speciesByName;
+    private final Map<String, Species> speciesByScientificName;
+
+    private final MonitoringArea[] areas;
+    private final String[] sortedAreaCodes;
+    private final MonitoringArea[] areasByCode;
+    private final Map<String, MonitoringArea> areasByName;
+
+    /**
+     * @param speciesIds the IDs of the species. {@code speciesIds[i]} has to be the ID of
+     *                   {@code species[i]}
+     * @param species the species
+     * @param areas the monitoring areas
+     */
+    public ReferenceCatalogue(@NonNull long[] speciesIds, @NonNull Species[] species, @NonNull MonitoringArea[] areas) {
+        if (speciesIds.length != species.length) {
+            throw new IllegalArgumentException("Got " + speciesIds.length + " IDs for " + species.length + " species");
+        }
+
+        Integer[] order = new Integer[species.length];
+        for (int i = 0; i < order.length; ++i) {
+            order[i] = i;
+        }
+        final long[] ids = speciesIds;
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer first, Integer second) {
+                return ids[first] < ids[second] ? -1 : (ids[first] == ids[second] ? 0 : 1);
+            }
+        });
+
+        this.speciesIds = new long[species.length];
+        this.species = new Species[species.length];
+        this.speciesByName = new HashMap<>(species.length);
+        this.speciesByScientificName = new HashMap<>(species.length);
+        for (int i = 0; i < order.length; ++i) {
+            Species s = species[order[i]];
+            this.speciesIds[i] = speciesIds[order[i]];
+            this.species[i] = s;
+
+            List<Species> sameName = speciesByName.get(s.getName());
+            if (sameName == null) {
+                sameName = new ArrayList<>(1);
+                speciesByName.put(s.getName(), sameName);
+            }
+            sameName.add(s);
+            if (s.hasScientificName()) {
+                speciesByScientificName.put(s.getScientificName(), s);
+            }
+        }
+        for (Map.Entry<String, List<Species>> entry : speciesByName.entrySet()) {
+            entry.setValue(Collections.unmodifiableList(entry.getValue()));
+        }
+
+        this.areas = Arrays.copyOf(areas, areas.length);
+        this.areasByCode = Arrays.copyOf(areas, areas.length);
+        Arrays.sort(this.areasByCode, new Comparator<MonitoringArea>() {
+            @Override
+            public int compare(MonitoringArea first, MonitoringArea second) {
+                return first.getCode().compareTo(second.getCode());
+            }
+        });
+        this.sortedAreaCodes = new String[areas.length];
+        this.areasByName = new HashMap<>(areas.length);
+        for (int i = 0; i < areasByCode.length; ++i) {
+            sortedAreaCodes[i] = areasByCode[i].getCode();
+            areasByName.put(areasByCode[i].getName(), areasByCode[i]);
+        }
+    }
+
+    /**
+     * @param id the ID of the species
+     * @return the species or {@code null} if it is unknown
+     */
+    @Nullable
+    public Species findSpecies(long id) {
+        int pos = Arrays.binarySearch(speciesIds, id);
+        return pos < 0 ? null : species[pos];
+    }
+
+    /**
+     * @param name the name of the species
+     * @return all species with that name
+     */
+    @NonNull
+    public List<Species> findSpeciesByName(@NonNull String name) {
+        List<Species> result = speciesByName.get(name);
+        return result == null ? Collections.<Species>emptyList() : result;
+    }
+
+    /**
+     * @param scientificName the scientific name of the species
+     * @return the species or {@code null} if it is unknown
+     */
+    @Nullable
+    public Species findSpeciesByScientificName(@NonNull String scientificName) {
+        return speciesByScientificName.get(scientificName);
+    }
+
+    /**
+     * @return all species, ordered by their ID
+     */
+    @NonNull
+    public List<Species> getSpecies() {
+        return Collections.unmodifiableList(Arrays.asList(species));
+    }
+
+    /**
+     * Orders all species such that the preferred ones come first
+     * @param preferredIds the IDs of the species to put in front, in the desired order. Unknown
+     *                     IDs will be ignored
+     * @return all species. Those which are not preferred retain their order by ID
+     */
+    @NonNull
+    public List<Species> getSpeciesPreferring(@NonNull long[] preferredIds) {
+        List<Species> result = new ArrayList<>(species.length);
+        boolean[] taken = new boolean[species.length];
+        for (long id : preferredIds) {
+            int pos = Arrays.binarySearch(speciesIds, id);
+            if (pos >= 0 && !taken[pos]) {
+                taken[pos] = true;
+                result.add(species[pos]);
+            }
+        }
+        for (int i = 0; i < species.length; ++i) {
+            if (!taken[i]) {
+                result.add(species[i]);
+            }
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * @return the number of species
+     */
+    public int getSpeciesCount() {
+        return species.length;
+    }
+
+    /**
+     * @param code the code of the monitoring area
+     * @return the monitoring area or {@code null} if it is unknown
+     */
+    @Nullable
+    public MonitoringArea findArea(@NonNull String code) {
+        int pos = Arrays.binarySearch(sortedAreaCodes, code);
+        return pos < 0 ? null : areasByCode[pos];
+    }
+
+    /**
+     * @param name the name of the monitoring area
+     * @return the monitoring area or {@code null} if it is unknown
+     */
+    @Nullable
+    public MonitoringArea findAreaByName(@NonNull String name) {
+        return areasByName.get(name);
+    }
+
+    /**
+     * @return all monitoring areas
+     */
+    @NonNull
+    public List<MonitoringArea> getAreas() {
+        return Collections.unmodifiableList(Arrays.asList(areas));
+    }
+
+    /**
+     * @return the number of monitoring areas
+     */
+    public int getAreaCount() {
+        return areas.length;
+    }
+
+    @Override
+    public String toString() {
+        return "ReferenceCatalogue{" +
+                "species=" + species.length +
+                ", areas=" + areas.length +
+                '}';
+    }
+}
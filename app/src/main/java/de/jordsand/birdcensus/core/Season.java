@@ -0,0 +1,38 @@
+package de.jordsand.birdcensus.core;
+
+import android.support.annotation.NonNull;
+
+import java.util.Calendar;
+import java.util.Date;
+
+/**
+ * The (meteorological) seasons. The presence of many species depends on them, e.g. because of
+ * migration or breeding.
+ */
+public enum Season {
+    WINTER, SPRING, SUMMER, AUTUMN;
+
+    /**
+     * @param date the date
+     * @return the season the date belongs to
+     */
+    @NonNull
+    public static Season of(@NonNull Date date) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(date);
+        return ofMonth(calendar.get(Calendar.MONTH) + 1);
+    }
+
+    /**
+     * @param month the month, starting at 1 for January
+     * @return the season the month belongs to
+     */
+    @NonNull
+    public static Season ofMonth(int month) {
+        if (month < 1 || month > 12) {
+            throw new IllegalArgumentException("Not a month: " + month);
+        }
+        // December, January and February are winter, every following three months a new season
+        return values()[(month % 12) / 3];
+    }
+}
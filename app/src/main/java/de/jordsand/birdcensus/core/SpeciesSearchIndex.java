@@ -0,0 +1,238 @@
+package de.jordsand.birdcensus.core;
+
+import android.support.annotation.NonNull;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Immutable n-gram index to search species by (parts of) their name or scientific name.
+ * <p>
+ * Names are folded before indexing and searching, i.e. case and diacritics are ignored. Each
+ * n-gram of up to {@link #MAX_GRAM_LENGTH} characters maps to the (sorted) positions of all species
+ * containing it. Short queries are therefore answered through a single lookup, longer ones by
+ * intersecting the lists of their n-grams and verifying the remaining candidates.
+ * </p>
+ * <p>
+ * Matches are ranked: exact names first, followed by names starting with the query, names with a
+ * word starting with it, scientific names starting with it and finally all other matches. Species
+ * with equal rank keep their original order.
+ * </p>
+ */
+public final class SpeciesSearchIndex {
+    private static final int MAX_GRAM_LENGTH = 3;
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    private static final int RANK_EXACT_NAME = 0;
+    private static final int RANK_NAME_PREFIX = 1;
+    private static final int RANK_NAME_WORD_PREFIX = 2;
+    private static final int RANK_SCIENTIFIC_NAME_PREFIX = 3;
+    private static final int RANK_SUBSTRING = 4;
+
+    private final Species[] species;
+    private final String[] foldedNames;
+    private final String[] foldedScientificNames;
+    private final Map<String, int[]> postings;
+    private final List<Species> allSpecies;
+
+    /**
+     * @param species the species to index. Their order is retained for equally ranked matches
+     */
+    public SpeciesSearchIndex(@NonNull List<Species> species) {
+        int size = species.size();
+        this.species = species.toArray(new Species[size]);
+        this.foldedNames = new String[size];
+        this.foldedScientificNames = new String[size];
+        this.allSpecies = Collections.unmodifiableList(Arrays.asList(this.species));
+
+        Map<String, IntList> grams = new HashMap<>();
+        for (int i = 0; i < size; ++i) {
+            Species s = this.species[i];
+            foldedNames[i] = fold(s.getName());
+            foldedScientificNames[i] = s.hasScientificName() ? fold(s.getScientificName()) : "";
+            addGrams(grams, foldedNames[i], i);
+            addGrams(grams, foldedScientificNames[i], i);
+        }
+
+        this.postings = new HashMap<>(grams.size());
+        for (Map.Entry<String, IntList> entry : grams.entrySet()) {
+            postings.put(entry.getKey(), entry.getValue().toArray());
+        }
+    }
+
+    /**
+     * Normalizes a text for searching: it will be converted to lower case and all diacritics
+     * will be removed
+     * @param text the text to fold
+     * @return the folded text
+     */
+    @NonNull
+    public static String fold(@NonNull CharSequence text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return COMBINING_MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT).replace("ß", "ss");
+    }
+
+    /**
+     * Searches for all species whose name or scientific name contain the query
+     * @param query the text to search for
+     * @return the ranked matches. If the query is empty, all species will be returned
+     */
+    @NonNull
+    public List<Species> search(@NonNull CharSequence query) {
+        String foldedQuery = fold(query).trim();
+        if (foldedQuery.isEmpty()) {
+            return allSpecies;
+        }
+
+        // rank and position are packed into a single key, so sorting the keys orders the matches
+        // by rank first and by their original order second
+        int[] candidates = findCandidates(foldedQuery);
+        long[] matches = new long[candidates.length];
+        int matchCount = 0;
+        for (int pos : candidates) {
+            int rank = rank(pos, foldedQuery);
+            if (rank >= 0) {
+                matches[matchCount++] = ((long) rank << 32) | pos;
+            }
+        }
+        Arrays.sort(matches, 0, matchCount);
+
+        Species[] result = new Species[matchCount];
+        for (int i = 0; i < matchCount; ++i) {
+            result[i] = species[(int) matches[i]];
+        }
+        return Collections.unmodifiableList(Arrays.asList(result));
+    }
+
+    /**
+     * @return the number of indexed species
+     */
+    public int size() {
+        return species.length;
+    }
+
+    /**
+     * Determines all species which may contain the query, based on its n-grams
+     * @param foldedQuery the query
+     * @return the positions of all candidates, sorted
+     */
+    private int[] findCandidates(String foldedQuery) {
+        if (foldedQuery.length() <= MAX_GRAM_LENGTH) {
+            int[] positions = postings.get(foldedQuery);
+            return positions == null ? new int[0] : positions;
+        }
+
+        int[] candidates = null;
+        for (int start = 0; start + MAX_GRAM_LENGTH <= foldedQuery.length(); ++start) {
+            int[] positions = postings.get(foldedQuery.substring(start, start + MAX_GRAM_LENGTH));
+            if (positions == null) {
+                return new int[0];
+            }
+            candidates = candidates == null ? positions : intersect(candidates, positions);
+            if (candidates.length == 0) {
+                break;
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * @param pos the position of the species
+     * @param foldedQuery the query
+     * @return the rank of the species or {@code -1} if it does not match at all
+     */
+    private int rank(int pos, String foldedQuery) {
+        String name = foldedNames[pos];
+        String scientificName = foldedScientificNames[pos];
+        if (name.equals(foldedQuery)) {
+            return RANK_EXACT_NAME;
+        } else if (name.startsWith(foldedQuery)) {
+            return RANK_NAME_PREFIX;
+        }
+
+        int idx = name.indexOf(foldedQuery);
+        if (idx > 0 && !Character.isLetterOrDigit(name.charAt(idx - 1))) {
+            return RANK_NAME_WORD_PREFIX;
+        } else if (scientificName.startsWith(foldedQuery)) {
+            return RANK_SCIENTIFIC_NAME_PREFIX;
+        } else if (idx >= 0 || scientificName.contains(foldedQuery)) {
+            return RANK_SUBSTRING;
+        }
+        return -1;
+    }
+
+    /**
+     * Registers all n-grams of a text
+     * @param grams the index to add to
+     * @param text the (folded) text
+     * @param pos the position of the species the text belongs to
+     */
+    private static void addGrams(Map<String, IntList> grams, String text, int pos) {
+        for (int start = 0; start < text.length(); ++start) {
+            for (int length = 1; length <= MAX_GRAM_LENGTH && start + length <= text.length(); ++length) {
+                String gram = text.substring(start, start + length);
+                IntList positions = grams.get(gram);
+                if (positions == null) {
+                    positions = new IntList();
+                    grams.put(gram, positions);
+                }
+                positions.addIfAbsent(pos);
+            }
+        }
+    }
+
+    /**
+     * @param first sorted positions
+     * @param second other sorted positions
+     * @return all positions contained in both arrays
+     */
+    private static int[] intersect(int[] first, int[] second) {
+        int[] result = new int[Math.min(first.length, second.length)];
+        int i = 0, j = 0, k = 0;
+        while (i < first.length && j < second.length) {
+            if (first[i] < second[j]) {
+                ++i;
+            } else if (first[i] > second[j]) {
+                ++j;
+            } else {
+                result[k++] = first[i];
+                ++i;
+                ++j;
+            }
+        }
+        return Arrays.copyOf(result, k);
+    }
+
+    /**
+     * Growable list of ascending positions
+     */
+    private static class IntList {
+        private int[] values = new int[4];
+        private int size = 0;
+
+        /**
+         * Adds a position, unless it is already the last one. As positions are added in
+         * ascending order, this keeps the list sorted and free of duplicates.
+         * @param value the position
+         */
+        void addIfAbsent(int value) {
+            if (size > 0 && values[size - 1] == value) {
+                return;
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
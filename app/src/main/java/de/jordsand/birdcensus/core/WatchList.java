@@ -3,24 +3,64 @@ package de.jordsand.birdcensus.core;
 import android.support.annotation.NonNull;
 import android.util.Pair;
 
+import java.util.AbstractSet;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 /**
  * A simple watchlist for a certain area
+ * <p>
+ * Each species is assigned a dense position within the list (in order of their first sighting).
+ * Species and counts are stored in parallel arrays, and an open-addressing hash table maps the
+ * species to their positions. Thus no counts need to be boxed. Besides the {@link Iterable}
+ * interface, observations may be traversed without any allocations, either through
+ * {@link #traverse(Visitor)} or by position through {@link #getSpeciesAt(int)} and
+ * {@link #getCountAt(int)}.
+ * </p>
  * @author Rico Bergmann
  */
 public class WatchList implements Iterable<Pair<Species, Integer>> {
-    private Map<Species, Integer> observedSpecies;
+    private static final int DEFAULT_CAPACITY = 8;
+    private static final int NO_POSITION = -1;
+
+    private Species[] species;
+    private int[] counts;
+    private int size;
+
+    /**
+     * Maps species (by hash) to their position + 1. A value of 0 denotes a free slot. Its length
+     * is always a power of two and at least twice the capacity of the arrays
+     */
+    private int[] index;
+
+    /**
+     * Read-only snapshot of all observations, discarded on each new record
+     */
+    private Map<Species, Integer> snapshot;
+
+    /**
+     * Callback for an allocation-free traversal of a watchlist
+     */
+    public interface Visitor {
+
+        /**
+         * Called for each observed species
+         * @param species the species
+         * @param count the number of individuals observed
+         */
+        void visit(@NonNull Species species, int count);
+    }
 
     /**
      * Default constructor for new watchlists
      */
     public WatchList() {
-        this.observedSpecies = new HashMap<>();
+        this(DEFAULT_CAPACITY);
     }
 
     /**
@@ -28,17 +68,100 @@ public class WatchList implements Iterable<Pair<Species, Integer>> {
      * @param observedSpecies the observed species
      */
     public WatchList(@NonNull Map<Species, Integer> observedSpecies) {
-        this.observedSpecies = observedSpecies;
+        this(Math.max(DEFAULT_CAPACITY, observedSpecies.size()));
+        for (Map.Entry<Species, Integer> observation : observedSpecies.entrySet()) {
+            addSightingFor(observation.getKey(), observation.getValue());
+        }
+    }
+
+    /**
+     * @param capacity the number of species to reserve space for
+     */
+    private WatchList(int capacity) {
+        this.species = new Species[capacity];
+        this.counts = new int[capacity];
+        this.index = new int[indexSizeFor(capacity)];
+        this.size = 0;
     }
 
+    /**
+     * The snapshot is built lazily and kept until the next record is added, so repeated calls do
+     * not copy the observations again.
+     * @return a read-only snapshot of all observations
+     */
     @NonNull
     public Map<Species, Integer> getObservedSpeciesMap() {
-        return Collections.unmodifiableMap(observedSpecies);
+        if (snapshot == null) {
+            Map<Species, Integer> observations = new HashMap<>(2 * size);
+            for (int i = 0; i < size; ++i) {
+                observations.put(species[i], counts[i]);
+            }
+            snapshot = Collections.unmodifiableMap(observations);
+        }
+        return snapshot;
     }
 
+    /**
+     * @return a read-only view on all observed species
+     */
     @NonNull
     public Set<Species> getObservedSpecies() {
-        return Collections.unmodifiableSet(observedSpecies.keySet());
+        return new ObservedSpeciesSet();
+    }
+
+    /**
+     * @return the number of different species observed
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param species the species to check
+     * @return whether the species was observed
+     */
+    public boolean contains(Species species) {
+        return positionOf(species) != NO_POSITION;
+    }
+
+    /**
+     * @param species the species to count
+     * @return the number of individuals observed, {@code 0} if the species was not observed
+     */
+    public int getCountOf(Species species) {
+        int position = positionOf(species);
+        return position == NO_POSITION ? 0 : counts[position];
+    }
+
+    /**
+     * @param position the position of the observation, between {@code 0} and {@link #size()} (exclusive)
+     * @return the species at that position
+     * @throws IndexOutOfBoundsException if the position is invalid
+     */
+    @NonNull
+    public Species getSpeciesAt(int position) {
+        checkPosition(position);
+        return species[position];
+    }
+
+    /**
+     * @param position the position of the observation, between {@code 0} and {@link #size()} (exclusive)
+     * @return the number of individuals observed for the species at that position
+     * @throws IndexOutOfBoundsException if the position is invalid
+     */
+    public int getCountAt(int position) {
+        checkPosition(position);
+        return counts[position];
+    }
+
+    /**
+     * Traverses all observations without allocating any objects
+     * @param visitor the visitor to notify for each observation
+     */
+    public void traverse(@NonNull Visitor visitor) {
+        for (int i = 0; i < size; ++i) {
+            visitor.visit(species[i], counts[i]);
+        }
     }
 
     /**
@@ -55,35 +178,163 @@ public class WatchList implements Iterable<Pair<Species, Integer>> {
      * @param count the number of instances seen
      */
     void addSightingFor(Species species, int count) {
-        Integer currentCount = observedSpecies.get(species);
-        if (currentCount == null) {
-            observedSpecies.put(species, count);
-        } else {
-            observedSpecies.put(species, currentCount + count);
+        snapshot = null;
+        int mask = index.length - 1;
+        int slot = slotFor(species, mask);
+        while (index[slot] != 0) {
+            int position = index[slot] - 1;
+            if (this.species[position].equals(species)) {
+                counts[position] += count;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        if (size == this.species.length) {
+            grow();
+            addSightingFor(species, count);
+            return;
         }
+        this.species[size] = species;
+        this.counts[size] = count;
+        index[slot] = ++size;
     }
 
     @Override
     public Iterator<Pair<Species, Integer>> iterator() {
-        return new WatchListIterator(this);
+        return new WatchListIterator();
     }
 
-    private class WatchListIterator implements Iterator<Pair<Species, Integer>> {
-        private Iterator<Species> it;
+    /**
+     * @param species the species to look up
+     * @return the position of the species or {@link #NO_POSITION} if it was not observed
+     */
+    private int positionOf(Species species) {
+        if (species == null) {
+            return NO_POSITION;
+        }
+        int mask = index.length - 1;
+        int slot = slotFor(species, mask);
+        while (index[slot] != 0) {
+            int position = index[slot] - 1;
+            if (this.species[position].equals(species)) {
+                return position;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return NO_POSITION;
+    }
+
+    /**
+     * Doubles the capacity and rebuilds the index
+     */
+    private void grow() {
+        int capacity = 2 * species.length;
+        species = Arrays.copyOf(species, capacity);
+        counts = Arrays.copyOf(counts, capacity);
+        index = new int[indexSizeFor(capacity)];
 
-        public WatchListIterator(WatchList list) {
-            this.it = list.observedSpecies.keySet().iterator();
+        int mask = index.length - 1;
+        for (int position = 0; position < size; ++position) {
+            int slot = slotFor(species[position], mask);
+            while (index[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            index[slot] = position + 1;
         }
+    }
+
+    /**
+     * @param position the position to check
+     * @throws IndexOutOfBoundsException if the position is invalid
+     */
+    private void checkPosition(int position) {
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException("Position " + position + " for watchlist of size " + size);
+        }
+    }
+
+    /**
+     * @param species the species to place
+     * @param mask the mask to apply to the hash
+     * @return the preferred slot of the species within the index
+     */
+    private static int slotFor(Species species, int mask) {
+        int hash = species.hashCode();
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    /**
+     * @param capacity the number of species to store
+     * @return the smallest power of two which is at least twice the capacity
+     */
+    private static int indexSizeFor(int capacity) {
+        return Integer.highestOneBit(2 * capacity - 1) << 1;
+    }
+
+    private class WatchListIterator implements Iterator<Pair<Species, Integer>> {
+        private int position = 0;
 
         @Override
         public boolean hasNext() {
-            return it.hasNext();
+            return position < size;
         }
 
         @Override
         public Pair<Species, Integer> next() {
-            Species nxt = it.next();
-            return new Pair<>(nxt, observedSpecies.get(nxt));
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Pair<Species, Integer> observation = new Pair<>(species[position], counts[position]);
+            position++;
+            return observation;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Observations may not be removed");
+        }
+    }
+
+    /**
+     * Read-only view on the observed species
+     */
+    private class ObservedSpeciesSet extends AbstractSet<Species> {
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof Species && WatchList.this.contains((Species) o);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @NonNull
+        @Override
+        public Iterator<Species> iterator() {
+            return new Iterator<Species>() {
+                private int position = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return position < size;
+                }
+
+                @Override
+                public Species next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return species[position++];
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException("Observed species may not be removed");
+                }
+            };
         }
     }
 }
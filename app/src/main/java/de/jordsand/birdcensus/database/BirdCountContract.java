@@ -22,21 +22,30 @@ public class BirdCountContract {
         public static final String COLUMN_NAME_VISIBILITY = "visibility";
         public static final String COLUMN_NAME_GLACIATION_LEVEL = "glaciation_level";
         public static final String COLUMN_NAME_OBSERVER = "observer";
+        public static final String COLUMN_NAME_DIFFERENT_SPECIES = "different_species";
+        public static final String COLUMN_NAME_TOTAL_COUNT = "total_count";
+        public static final String INDEX_NAME_OBSERVER = "bird_count_observer_idx";
     }
     public static final String BIRD_COUNT_TABLE_CREATE =
             "CREATE TABLE " + BirdCount.TABLE_NAME + " (" +
                     BirdCount._ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
-                    BirdCount.COLUMN_NAME_START_TIME + " TEXT UNIQUE NOT NULL, " +
-                    BirdCount.COLUMN_NAME_END_TIME + " TEXT NOT NULL, " +
+                    BirdCount.COLUMN_NAME_START_TIME + " INTEGER UNIQUE NOT NULL, " +
+                    BirdCount.COLUMN_NAME_END_TIME + " INTEGER NOT NULL, " +
                     BirdCount.COLUMN_NAME_WATER_GAUGE + " REAL, " +
                     BirdCount.COLUMN_NAME_WIND_STRENGTH + " INTEGER, " +
                     BirdCount.COLUMN_NAME_WIND_DIRECTION + " INTEGER, " +
                     BirdCount.COLUMN_NAME_PRECIPITATION + " INTEGER, " +
                     BirdCount.COLUMN_NAME_VISIBILITY + " INTEGER, " +
                     BirdCount.COLUMN_NAME_GLACIATION_LEVEL + " INTEGER, " +
-                    BirdCount.COLUMN_NAME_OBSERVER + " TEXT)";
+                    BirdCount.COLUMN_NAME_OBSERVER + " TEXT, " +
+                    BirdCount.COLUMN_NAME_DIFFERENT_SPECIES + " INTEGER NOT NULL DEFAULT 0, " +
+                    BirdCount.COLUMN_NAME_TOTAL_COUNT + " INTEGER NOT NULL DEFAULT 0)";
     public static final String BIRD_COUNT_TABLE_DELETE =
             "DROP TABLE IF EXISTS " + BirdCount.TABLE_NAME;
+    public static final String BIRD_COUNT_OBSERVER_INDEX_CREATE =
+            "CREATE INDEX " + BirdCount.INDEX_NAME_OBSERVER + " ON " + BirdCount.TABLE_NAME + " (" +
+                    BirdCount.COLUMN_NAME_OBSERVER + ", " +
+                    BirdCount.COLUMN_NAME_START_TIME + ")";
 
     public static class MonitoringArea {
         public static final String TABLE_NAME = "monitoring_area";
@@ -60,6 +69,7 @@ public class BirdCountContract {
         public static final String COLUMN_NAME_NAME = "name";
         public static final String COLUMN_NAME_SCIENTIFIC_NAME = "scientific_name";
         // public static final String COLUMN_NAME_BELONGING = "belonging";
+        public static final String INDEX_NAME_NAME = "species_name_idx";
     }
     public static final String SPECIES_TABLE_CREATE =
             "CREATE TABLE " + Species.TABLE_NAME + " (" +
@@ -68,6 +78,9 @@ public class BirdCountContract {
                     Species.COLUMN_NAME_NAME + " TEXT NOT NULL)";
     public static final String SPECIES_TABLE_DELETE =
             "DROP TABLE IF EXISTS " + Species.TABLE_NAME;
+    public static final String SPECIES_NAME_INDEX_CREATE =
+            "CREATE INDEX " + Species.INDEX_NAME_NAME + " ON " + Species.TABLE_NAME + " (" +
+                    Species.COLUMN_NAME_NAME + ")";
 
     public static class ObservedSpecies {
         public static final String TABLE_NAME = "observation";
@@ -75,6 +88,7 @@ public class BirdCountContract {
         public static final String COLUMN_NAME_SPECIES = "species";
         public static final String COLUMN_NAME_CENSUS = "census";
         public static final String COLUMN_NAME_COUNT = "count";
+        public static final String INDEX_NAME_CENSUS = "observation_census_idx";
     }
     public static final String OBSERVATION_TABLE_CREATE =
             "CREATE TABLE " + ObservedSpecies.TABLE_NAME + " (" +
@@ -100,4 +114,85 @@ public class BirdCountContract {
                     BirdCount._ID + ") )";
     public static final String OBSERVATION_TABLE_DELETE =
             "DROP TABLE IF EXISTS " + ObservedSpecies.TABLE_NAME;
+    public static final String OBSERVATION_CENSUS_INDEX_CREATE =
+            "CREATE INDEX " + ObservedSpecies.INDEX_NAME_CENSUS + " ON " + ObservedSpecies.TABLE_NAME + " (" +
+                    ObservedSpecies.COLUMN_NAME_CENSUS + ", " +
+                    ObservedSpecies.COLUMN_NAME_AREA + ", " +
+                    ObservedSpecies.COLUMN_NAME_SPECIES + ", " +
+                    ObservedSpecies.COLUMN_NAME_COUNT + ")";
+
+    public static class OngoingCensus {
+        public static final String TABLE_NAME = "ongoing_census";
+        public static final String COLUMN_NAME_START_TIME = "start_time";
+        public static final String COLUMN_NAME_WATER_GAUGE = "water_gauge";
+        public static final String COLUMN_NAME_WIND_STRENGTH = "wind_strength";
+        public static final String COLUMN_NAME_WIND_DIRECTION = "wind_direction";
+        public static final String COLUMN_NAME_PRECIPITATION = "precipitation";
+        public static final String COLUMN_NAME_VISIBILITY = "visibility";
+        public static final String COLUMN_NAME_GLACIATION_LEVEL = "glaciation_level";
+        public static final String COLUMN_NAME_OBSERVER = "observer";
+    }
+    public static final String ONGOING_CENSUS_TABLE_CREATE =
+            "CREATE TABLE " + OngoingCensus.TABLE_NAME + " (" +
+                    OngoingCensus.COLUMN_NAME_START_TIME + " INTEGER NOT NULL, " +
+                    OngoingCensus.COLUMN_NAME_WATER_GAUGE + " REAL, " +
+                    OngoingCensus.COLUMN_NAME_WIND_STRENGTH + " INTEGER, " +
+                    OngoingCensus.COLUMN_NAME_WIND_DIRECTION + " INTEGER, " +
+                    OngoingCensus.COLUMN_NAME_PRECIPITATION + " INTEGER, " +
+                    OngoingCensus.COLUMN_NAME_VISIBILITY + " INTEGER, " +
+                    OngoingCensus.COLUMN_NAME_GLACIATION_LEVEL + " INTEGER, " +
+                    OngoingCensus.COLUMN_NAME_OBSERVER + " TEXT)";
+    public static final String ONGOING_CENSUS_TABLE_DELETE =
+            "DROP TABLE IF EXISTS " + OngoingCensus.TABLE_NAME;
+
+    public static class SightingJournal implements BaseColumns {
+        public static final String TABLE_NAME = "sighting_journal";
+        public static final String COLUMN_NAME_AREA = "area";
+        public static final String COLUMN_NAME_SPECIES_NAME = "species_name";
+        public static final String COLUMN_NAME_SPECIES_SCIENTIFIC_NAME = "species_scientific_name";
+        public static final String COLUMN_NAME_COUNT = "count";
+    }
+    public static final String SIGHTING_JOURNAL_TABLE_CREATE =
+            "CREATE TABLE " + SightingJournal.TABLE_NAME + " (" +
+                    SightingJournal._ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                    SightingJournal.COLUMN_NAME_AREA + " TEXT NOT NULL, " +
+                    SightingJournal.COLUMN_NAME_SPECIES_NAME + " TEXT NOT NULL, " +
+                    SightingJournal.COLUMN_NAME_SPECIES_SCIENTIFIC_NAME + " TEXT, " +
+                    SightingJournal.COLUMN_NAME_COUNT + " INTEGER NOT NULL)";
+    public static final String SIGHTING_JOURNAL_TABLE_DELETE =
+            "DROP TABLE IF EXISTS " + SightingJournal.TABLE_NAME;
+
+    public static class SpeciesFrequency {
+        public static final String TABLE_NAME = "species_frequency";
+        public static final String COLUMN_NAME_AREA = "area";
+        public static final String COLUMN_NAME_SPECIES = "species";
+        public static final String COLUMN_NAME_SEASON = "season";
+        public static final String COLUMN_NAME_CENSUS_COUNT = "census_count";
+        public static final String COLUMN_NAME_TOTAL_COUNT = "total_count";
+    }
+    public static final String SPECIES_FREQUENCY_TABLE_CREATE =
+            "CREATE TABLE " + SpeciesFrequency.TABLE_NAME + " (" +
+                    SpeciesFrequency.COLUMN_NAME_AREA + " TEXT NOT NULL, " +
+                    SpeciesFrequency.COLUMN_NAME_SPECIES + " INTEGER NOT NULL, " +
+                    SpeciesFrequency.COLUMN_NAME_SEASON + " INTEGER NOT NULL, " +
+                    SpeciesFrequency.COLUMN_NAME_CENSUS_COUNT + " INTEGER NOT NULL DEFAULT 0, " +
+                    SpeciesFrequency.COLUMN_NAME_TOTAL_COUNT + " INTEGER NOT NULL DEFAULT 0, " +
+                    "PRIMARY KEY (" +
+                    SpeciesFrequency.COLUMN_NAME_AREA + ", " +
+                    SpeciesFrequency.COLUMN_NAME_SPECIES + ", " +
+                    SpeciesFrequency.COLUMN_NAME_SEASON + "))";
+    public static final String SPECIES_FREQUENCY_TABLE_DELETE =
+            "DROP TABLE IF EXISTS " + SpeciesFrequency.TABLE_NAME;
+
+    /**
+     * Columns of the joined observation rows which are streamed during exports. This is no actual
+     * table but the result of joining observations with their bird counts and species.
+     */
+    public static class ObservationExport {
+        public static final String COLUMN_NAME_START_TIME = BirdCount.COLUMN_NAME_START_TIME;
+        public static final String COLUMN_NAME_AREA = ObservedSpecies.COLUMN_NAME_AREA;
+        public static final String COLUMN_NAME_SPECIES_NAME = "species_name";
+        public static final String COLUMN_NAME_SPECIES_SCIENTIFIC_NAME = Species.COLUMN_NAME_SCIENTIFIC_NAME;
+        public static final String COLUMN_NAME_COUNT = ObservedSpecies.COLUMN_NAME_COUNT;
+    }
 }
@@ -3,26 +3,61 @@ package de.jordsand.birdcensus.database;
 import android.content.Context;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.os.Build;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import de.jordsand.birdcensus.database.migrations.AddSecondaryIndexesMigration;
+import de.jordsand.birdcensus.database.migrations.BirdCountTotalsMigration;
+import de.jordsand.birdcensus.database.migrations.EpochTimestampsMigration;
+import de.jordsand.birdcensus.database.migrations.Migration;
+import de.jordsand.birdcensus.database.migrations.SightingJournalMigration;
+import de.jordsand.birdcensus.database.migrations.SpeciesFrequencyMigration;
 
 /**
  * Helper class to easily get access to the SQLite database.
  * To control access to the handler, it uses the Singleton-Pattern.
+ * <p>
+ * New installations will directly receive the most recent schema as described in the
+ * {@link BirdCountContract}. Existing databases will be upgraded step by step through the
+ * {@link Migration migrations}, thereby retaining all data.
+ * </p>
+ * <p>
+ * The database runs in write-ahead-log mode. Therefore queries issued through the
+ * {@link #getReaderDatabase() reader database} are executed on a pool of connections and will not
+ * be blocked while a write transaction is in progress. All modifications should be performed
+ * through {@link #executeWrite(Runnable)}, which serializes them on a single writer thread.
+ * </p>
  * @author Rico Bergmann
  */
 public class BirdCountOpenHandler extends SQLiteOpenHelper {
-    private static final int DATABASE_VERSION = 1;
+    private static final int DATABASE_VERSION = 6;
     private static final String DATABASE_NAME = "jordsand_census.db";
 
+    /**
+     * All the migrations, ordered by their target version
+     */
+    private static final Migration[] MIGRATIONS = {
+            new AddSecondaryIndexesMigration(),
+            new EpochTimestampsMigration(),
+            new BirdCountTotalsMigration(),
+            new SightingJournalMigration(),
+            new SpeciesFrequencyMigration()
+    };
+
     private static BirdCountOpenHandler instance = null;
 
+    private final ExecutorService writeExecutor;
+
     /**
      * Provides access to the handler.
      * @param ctx if no handler was created yet, the context will be used to instantiate
      * @return the handler
      */
-    public static BirdCountOpenHandler instance(Context ctx) {
+    public static synchronized BirdCountOpenHandler instance(Context ctx) {
         if (instance == null) {
-            instance = new BirdCountOpenHandler(ctx);
+            instance = new BirdCountOpenHandler(ctx.getApplicationContext());
         }
         return instance;
     }
@@ -33,6 +68,47 @@ public class BirdCountOpenHandler extends SQLiteOpenHelper {
      */
     private BirdCountOpenHandler(Context ctx) {
         super(ctx, DATABASE_NAME, null, DATABASE_VERSION);
+        writeExecutor = Executors.newSingleThreadExecutor();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            setWriteAheadLoggingEnabled(true);
+        }
+    }
+
+    /**
+     * Provides access to the database for queries. The database must not be modified through
+     * this handle.
+     * @return the database
+     */
+    public SQLiteDatabase getReaderDatabase() {
+        // in WAL mode readable and writable database share the same connection pool, but the
+        // database has to be opened writable at least once to switch the journal mode
+        return getWritableDatabase();
+    }
+
+    /**
+     * Provides access to the database for modifications. All write operations should be executed
+     * through {@link #executeWrite(Runnable)} to keep them off the main thread.
+     * @return the database
+     */
+    public SQLiteDatabase getWriterDatabase() {
+        return getWritableDatabase();
+    }
+
+    /**
+     * Schedules a write operation. All operations will be executed one after another on a
+     * dedicated thread.
+     * @param operation the operation to perform
+     */
+    public void executeWrite(Runnable operation) {
+        writeExecutor.execute(operation);
+    }
+
+    @Override
+    public void onOpen(SQLiteDatabase db) {
+        super.onOpen(db);
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN && !db.isReadOnly()) {
+            db.enableWriteAheadLogging();
+        }
     }
 
     @Override
@@ -41,15 +117,21 @@ public class BirdCountOpenHandler extends SQLiteOpenHelper {
         db.execSQL(BirdCountContract.MONITORING_AREA_TABLE_CREATE);
         db.execSQL(BirdCountContract.SPECIES_TABLE_CREATE);
         db.execSQL(BirdCountContract.OBSERVATION_TABLE_CREATE);
+        db.execSQL(BirdCountContract.ONGOING_CENSUS_TABLE_CREATE);
+        db.execSQL(BirdCountContract.SIGHTING_JOURNAL_TABLE_CREATE);
+        db.execSQL(BirdCountContract.SPECIES_FREQUENCY_TABLE_CREATE);
+
+        db.execSQL(BirdCountContract.BIRD_COUNT_OBSERVER_INDEX_CREATE);
+        db.execSQL(BirdCountContract.SPECIES_NAME_INDEX_CREATE);
+        db.execSQL(BirdCountContract.OBSERVATION_CENSUS_INDEX_CREATE);
     }
 
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-        db.execSQL(BirdCountContract.BIRD_COUNT_TABLE_DELETE);
-        db.execSQL(BirdCountContract.MONITORING_AREA_TABLE_DELETE);
-        db.execSQL(BirdCountContract.SPECIES_TABLE_DELETE);
-        db.execSQL(BirdCountContract.OBSERVATION_TABLE_DELETE);
-
-        onCreate(db);
+        for (Migration migration : MIGRATIONS) {
+            if (migration.isRequiredFor(oldVersion, newVersion)) {
+                migration.migrate(db);
+            }
+        }
     }
 }
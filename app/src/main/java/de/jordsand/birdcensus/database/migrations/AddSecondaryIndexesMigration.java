@@ -0,0 +1,33 @@
+package de.jordsand.birdcensus.database.migrations;
+
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * Migration to schema version 2: adds secondary indexes for the most common lookups
+ * <ul>
+ *     <li>observations by their bird count (covering all columns of the table)</li>
+ *     <li>species by their name</li>
+ *     <li>bird counts by their observer</li>
+ * </ul>
+ */
+public class AddSecondaryIndexesMigration extends Migration {
+    private static final int TARGET_VERSION = 2;
+
+    private static final String OBSERVATION_CENSUS_INDEX_CREATE =
+            "CREATE INDEX IF NOT EXISTS observation_census_idx ON observation (census, area, species, count)";
+    private static final String SPECIES_NAME_INDEX_CREATE =
+            "CREATE INDEX IF NOT EXISTS species_name_idx ON species (name)";
+    private static final String BIRD_COUNT_OBSERVER_INDEX_CREATE =
+            "CREATE INDEX IF NOT EXISTS bird_count_observer_idx ON bird_count (observer, start_time)";
+
+    public AddSecondaryIndexesMigration() {
+        super(TARGET_VERSION);
+    }
+
+    @Override
+    public void migrate(SQLiteDatabase db) {
+        db.execSQL(OBSERVATION_CENSUS_INDEX_CREATE);
+        db.execSQL(SPECIES_NAME_INDEX_CREATE);
+        db.execSQL(BIRD_COUNT_OBSERVER_INDEX_CREATE);
+    }
+}
@@ -0,0 +1,32 @@
+package de.jordsand.birdcensus.database.migrations;
+
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * Migration to schema version 4: stores the number of different species and the total number of
+ * individuals observed along with each bird count. The values of existing bird counts will be
+ * computed from their observations.
+ */
+public class BirdCountTotalsMigration extends Migration {
+    private static final int TARGET_VERSION = 4;
+
+    private static final String ADD_DIFFERENT_SPECIES_COLUMN =
+            "ALTER TABLE bird_count ADD COLUMN different_species INTEGER NOT NULL DEFAULT 0";
+    private static final String ADD_TOTAL_COUNT_COLUMN =
+            "ALTER TABLE bird_count ADD COLUMN total_count INTEGER NOT NULL DEFAULT 0";
+    private static final String BACKFILL_TOTALS =
+            "UPDATE bird_count SET " +
+                    "different_species = (SELECT COUNT(DISTINCT species) FROM observation WHERE census = bird_count._id), " +
+                    "total_count = (SELECT COALESCE(SUM(count), 0) FROM observation WHERE census = bird_count._id)";
+
+    public BirdCountTotalsMigration() {
+        super(TARGET_VERSION);
+    }
+
+    @Override
+    public void migrate(SQLiteDatabase db) {
+        db.execSQL(ADD_DIFFERENT_SPECIES_COLUMN);
+        db.execSQL(ADD_TOTAL_COUNT_COLUMN);
+        db.execSQL(BACKFILL_TOTALS);
+    }
+}
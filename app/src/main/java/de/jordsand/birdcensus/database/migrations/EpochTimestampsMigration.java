@@ -0,0 +1,110 @@
+package de.jordsand.birdcensus.database.migrations;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.support.annotation.Nullable;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+
+import de.jordsand.birdcensus.infrastructure.DatabaseStateCorruptException;
+
+/**
+ * Migration to schema version 3: stores the start and end time of the bird counts as
+ * milliseconds since the epoch rather than as formatted text.
+ * <p>
+ * SQLite is not able to change the type of a column, thus the bird count table will be rebuilt.
+ * The IDs of the bird counts are retained, so all observations stay valid.
+ * </p>
+ */
+public class EpochTimestampsMigration extends Migration {
+    private static final int TARGET_VERSION = 3;
+
+    /**
+     * The format the timestamps were stored in up to schema version 2
+     */
+    private static final String LEGACY_DATE_FORMAT = "yyyy-MM-dd HH:mm:ss";
+
+    private static final String BIRD_COUNT_TABLE_CREATE =
+            "CREATE TABLE bird_count_v3 (" +
+                    "_id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                    "start_time INTEGER UNIQUE NOT NULL, " +
+                    "end_time INTEGER NOT NULL, " +
+                    "water_gauge REAL, " +
+                    "wind_strength INTEGER, " +
+                    "wind_direction INTEGER, " +
+                    "precipitation INTEGER, " +
+                    "visibility INTEGER, " +
+                    "glaciation_level INTEGER, " +
+                    "observer TEXT)";
+    private static final String BIRD_COUNT_COPY =
+            "INSERT INTO bird_count_v3 (_id, start_time, end_time, water_gauge, wind_strength, " +
+                    "wind_direction, precipitation, visibility, glaciation_level, observer) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String BIRD_COUNT_LEGACY_QUERY =
+            "SELECT _id, start_time, end_time, water_gauge, wind_strength, wind_direction, " +
+                    "precipitation, visibility, glaciation_level, observer FROM bird_count";
+    private static final String BIRD_COUNT_LEGACY_TABLE_DELETE = "DROP TABLE bird_count";
+    private static final String BIRD_COUNT_TABLE_RENAME = "ALTER TABLE bird_count_v3 RENAME TO bird_count";
+    private static final String BIRD_COUNT_OBSERVER_INDEX_CREATE =
+            "CREATE INDEX IF NOT EXISTS bird_count_observer_idx ON bird_count (observer, start_time)";
+
+    public EpochTimestampsMigration() {
+        super(TARGET_VERSION);
+    }
+
+    @Override
+    public void migrate(SQLiteDatabase db) {
+        db.execSQL(BIRD_COUNT_TABLE_CREATE);
+        copyBirdCounts(db);
+        db.execSQL(BIRD_COUNT_LEGACY_TABLE_DELETE);
+        db.execSQL(BIRD_COUNT_TABLE_RENAME);
+        db.execSQL(BIRD_COUNT_OBSERVER_INDEX_CREATE);
+    }
+
+    /**
+     * Transfers all bird counts into the new table, thereby converting the timestamps
+     * @param db the database to migrate
+     */
+    private void copyBirdCounts(SQLiteDatabase db) {
+        SimpleDateFormat legacyFormat = new SimpleDateFormat(LEGACY_DATE_FORMAT, Locale.US);
+        Cursor birdCounts = db.rawQuery(BIRD_COUNT_LEGACY_QUERY, null);
+        SQLiteStatement insert = db.compileStatement(BIRD_COUNT_COPY);
+        try {
+            while (birdCounts.moveToNext()) {
+                insert.clearBindings();
+                insert.bindLong(1, birdCounts.getLong(0));
+                insert.bindLong(2, parseTimestamp(legacyFormat, birdCounts.getString(1)));
+                insert.bindLong(3, parseTimestamp(legacyFormat, birdCounts.getString(2)));
+                if (!birdCounts.isNull(3)) insert.bindDouble(4, birdCounts.getDouble(3));
+                for (int column = 4; column <= 8; ++column) {
+                    if (!birdCounts.isNull(column)) insert.bindLong(column + 1, birdCounts.getLong(column));
+                }
+                if (!birdCounts.isNull(9)) insert.bindString(10, birdCounts.getString(9));
+                insert.executeInsert();
+            }
+        } finally {
+            insert.close();
+            birdCounts.close();
+        }
+    }
+
+    /**
+     * @param format the format the timestamp was stored in
+     * @param rawTimestamp the stored timestamp, may be {@code null} if the column was empty
+     * @return the timestamp as milliseconds since the epoch
+     * @throws DatabaseStateCorruptException if the timestamp is missing or could not be parsed
+     */
+    private long parseTimestamp(SimpleDateFormat format, @Nullable String rawTimestamp) {
+        if (rawTimestamp == null) {
+            throw new DatabaseStateCorruptException("Missing timestamp in bird count table");
+        }
+        try {
+            return format.parse(rawTimestamp).getTime();
+        } catch (ParseException e) {
+            throw new DatabaseStateCorruptException("Invalid timestamp in bird count table: " + rawTimestamp, e);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package de.jordsand.birdcensus.database.migrations;
+
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * A single step to upgrade the database schema to the next version.
+ * <p>
+ * Migrations have to modify the existing tables in place - no data may be lost. As the schema in
+ * {@link de.jordsand.birdcensus.database.BirdCountContract} always describes the most recent
+ * version, each migration has to bring its own statements instead of relying on the contract.
+ * </p>
+ */
+public abstract class Migration {
+    private final int targetVersion;
+
+    /**
+     * @param targetVersion the schema version the database will have after the migration was applied
+     */
+    protected Migration(int targetVersion) {
+        this.targetVersion = targetVersion;
+    }
+
+    /**
+     * @return the schema version the database will have after the migration was applied
+     */
+    public int getTargetVersion() {
+        return targetVersion;
+    }
+
+    /**
+     * Checks, whether the migration is necessary for a certain upgrade
+     * @param oldVersion the current version of the database
+     * @param newVersion the version to upgrade to
+     * @return {@code true} if the migration has to be applied, {@code false} otherwise
+     */
+    public boolean isRequiredFor(int oldVersion, int newVersion) {
+        return targetVersion > oldVersion && targetVersion <= newVersion;
+    }
+
+    /**
+     * Performs the migration. It will be executed within the upgrade transaction of the
+     * database, thus it must not start any transactions itself.
+     * @param db the database to migrate
+     */
+    public abstract void migrate(SQLiteDatabase db);
+}
@@ -0,0 +1,39 @@
+package de.jordsand.birdcensus.database.migrations;
+
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * Migration to schema version 5: adds the staging tables which keep the ongoing bird count
+ * and its sightings until it is terminated.
+ */
+public class SightingJournalMigration extends Migration {
+    private static final int TARGET_VERSION = 5;
+
+    private static final String ONGOING_CENSUS_TABLE_CREATE =
+            "CREATE TABLE IF NOT EXISTS ongoing_census (" +
+                    "start_time INTEGER NOT NULL, " +
+                    "water_gauge REAL, " +
+                    "wind_strength INTEGER, " +
+                    "wind_direction INTEGER, " +
+                    "precipitation INTEGER, " +
+                    "visibility INTEGER, " +
+                    "glaciation_level INTEGER, " +
+                    "observer TEXT)";
+    private static final String SIGHTING_JOURNAL_TABLE_CREATE =
+            "CREATE TABLE IF NOT EXISTS sighting_journal (" +
+                    "_id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                    "area TEXT NOT NULL, " +
+                    "species_name TEXT NOT NULL, " +
+                    "species_scientific_name TEXT, " +
+                    "count INTEGER NOT NULL)";
+
+    public SightingJournalMigration() {
+        super(TARGET_VERSION);
+    }
+
+    @Override
+    public void migrate(SQLiteDatabase db) {
+        db.execSQL(ONGOING_CENSUS_TABLE_CREATE);
+        db.execSQL(SIGHTING_JOURNAL_TABLE_CREATE);
+    }
+}
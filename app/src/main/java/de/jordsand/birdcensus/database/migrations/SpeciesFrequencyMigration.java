@@ -0,0 +1,37 @@
+package de.jordsand.birdcensus.database.migrations;
+
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * Migration to schema version 6: adds the statistics on how often each species was observed per
+ * monitoring area and season. The statistics will be computed from all existing observations.
+ */
+public class SpeciesFrequencyMigration extends Migration {
+    private static final int TARGET_VERSION = 6;
+
+    private static final String SPECIES_FREQUENCY_TABLE_CREATE =
+            "CREATE TABLE IF NOT EXISTS species_frequency (" +
+                    "area TEXT NOT NULL, " +
+                    "species INTEGER NOT NULL, " +
+                    "season INTEGER NOT NULL, " +
+                    "census_count INTEGER NOT NULL DEFAULT 0, " +
+                    "total_count INTEGER NOT NULL DEFAULT 0, " +
+                    "PRIMARY KEY (area, species, season))";
+    private static final String BACKFILL_FREQUENCIES =
+            "INSERT INTO species_frequency (area, species, season, census_count, total_count) " +
+                    "SELECT o.area, o.species, " +
+                    "(CAST(strftime('%m', b.start_time / 1000, 'unixepoch', 'localtime') AS INTEGER) % 12) / 3, " +
+                    "COUNT(*), SUM(o.count) " +
+                    "FROM observation o JOIN bird_count b ON o.census = b._id " +
+                    "GROUP BY 1, 2, 3";
+
+    public SpeciesFrequencyMigration() {
+        super(TARGET_VERSION);
+    }
+
+    @Override
+    public void migrate(SQLiteDatabase db) {
+        db.execSQL(SPECIES_FREQUENCY_TABLE_CREATE);
+        db.execSQL(BACKFILL_FREQUENCIES);
+    }
+}
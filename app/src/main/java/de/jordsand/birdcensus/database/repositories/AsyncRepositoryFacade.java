@@ -0,0 +1,204 @@
+package de.jordsand.birdcensus.database.repositories;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import de.jordsand.birdcensus.core.BirdCount;
+import de.jordsand.birdcensus.core.BirdCountRepository;
+import de.jordsand.birdcensus.core.CensusFilter;
+import de.jordsand.birdcensus.core.CensusSummary;
+import de.jordsand.birdcensus.core.MonitoringArea;
+import de.jordsand.birdcensus.core.ReferenceCatalogue;
+import de.jordsand.birdcensus.core.Season;
+import de.jordsand.birdcensus.core.Species;
+import de.jordsand.birdcensus.database.BirdCountOpenHandler;
+import de.jordsand.birdcensus.infrastructure.AsyncQueryExecutor;
+import de.jordsand.birdcensus.infrastructure.AsyncQueryExecutor.PendingQuery;
+import de.jordsand.birdcensus.infrastructure.QueryCallback;
+
+/**
+ * Provides read access to the repositories without blocking the main thread.
+ * <p>
+ * All queries are executed in the background and their results are passed back to the main
+ * thread. Even the database itself will be opened in the background, so creating the facade is
+ * cheap. Species and monitoring areas are served from the shared {@link ReferenceCatalogue}.
+ * Activities should call {@link #cancelAll()} within {@code onDestroy()} to discard any
+ * outstanding results.
+ * </p>
+ */
+public class AsyncRepositoryFacade {
+    private final BirdCountOpenHandler openHandler;
+    private final ReferenceDataRepositories referenceData;
+    private final AsyncQueryExecutor executor;
+
+    private BirdCountRepository birdCountRepository;
+    private SQLiteSpeciesStatistics speciesStatistics;
+
+    /**
+     * @param ctx the context to open the database with
+     */
+    public AsyncRepositoryFacade(@NonNull Context ctx) {
+        this(BirdCountOpenHandler.instance(ctx), ReferenceDataRepositories.instance(ctx), new AsyncQueryExecutor());
+    }
+
+    /**
+     * @param openHandler the handler to open the database with
+     * @param referenceData the repositories to serve species and monitoring areas from
+     * @param executor the executor to run the queries on
+     */
+    AsyncRepositoryFacade(@NonNull BirdCountOpenHandler openHandler, @NonNull ReferenceDataRepositories referenceData, @NonNull AsyncQueryExecutor executor) {
+        this.openHandler = openHandler;
+        this.referenceData = referenceData;
+        this.executor = executor;
+    }
+
+    /**
+     * Loads all bird counts
+     * @param callback the callback to receive the bird counts
+     * @return a handle to cancel the query
+     */
+    public PendingQuery<Iterable<BirdCount>> findAllBirdCounts(QueryCallback<Iterable<BirdCount>> callback) {
+        return executor.submit(new Callable<Iterable<BirdCount>>() {
+            @Override
+            public Iterable<BirdCount> call() {
+                return birdCountRepository().findAll();
+            }
+        }, callback);
+    }
+
+    /**
+     * Loads a page of bird count summaries
+     * @param filter restriction of the bird counts' start dates
+     * @param after the last summary of the previous page, or {@code null} to load the first page
+     * @param pageSize the maximum number of summaries to load
+     * @param callback the callback to receive the summaries
+     * @return a handle to cancel the query
+     * @see BirdCountRepository#findSummaries(CensusFilter, CensusSummary, int)
+     */
+    public PendingQuery<List<CensusSummary>> findCensusSummaries(@NonNull final CensusFilter filter, @Nullable final CensusSummary after, final int pageSize, QueryCallback<List<CensusSummary>> callback) {
+        return executor.submit(new Callable<List<CensusSummary>>() {
+            @Override
+            public List<CensusSummary> call() {
+                return birdCountRepository().findSummaries(filter, after, pageSize);
+            }
+        }, callback);
+    }
+
+    /**
+     * Loads the bird count with the given start date
+     * @param startDate the start date
+     * @param callback the callback to receive the bird count (which may be {@code null})
+     * @return a handle to cancel the query
+     */
+    public PendingQuery<BirdCount> findBirdCountByStartDate(@NonNull final Date startDate, QueryCallback<BirdCount> callback) {
+        return executor.submit(new Callable<BirdCount>() {
+            @Override
+            public BirdCount call() {
+                return birdCountRepository().findByStartDate(startDate);
+            }
+        }, callback);
+    }
+
+    /**
+     * Loads all species and monitoring areas. If they were loaded before, the database will not be
+     * accessed again.
+     * @param callback the callback to receive the catalogue
+     * @return a handle to cancel the query
+     */
+    public PendingQuery<ReferenceCatalogue> findReferenceCatalogue(QueryCallback<ReferenceCatalogue> callback) {
+        return executor.submit(new Callable<ReferenceCatalogue>() {
+            @Override
+            public ReferenceCatalogue call() {
+                return referenceData.getCatalogue();
+            }
+        }, callback);
+    }
+
+    /**
+     * Loads all species, ordered by how often they were observed in a monitoring area around the
+     * time of year of the given date
+     * @param areaCode the monitoring area
+     * @param date the date to determine the season from
+     * @param callback the callback to receive the species
+     * @return a handle to cancel the query
+     * @see SQLiteSpeciesStatistics#findMostFrequentSpecies(String, Season)
+     */
+    public PendingQuery<List<Species>> findSuggestedSpecies(@NonNull final String areaCode, @NonNull final Date date, QueryCallback<List<Species>> callback) {
+        return executor.submit(new Callable<List<Species>>() {
+            @Override
+            public List<Species> call() {
+                long[] frequentSpecies = speciesStatistics().findMostFrequentSpecies(areaCode, Season.of(date));
+                return referenceData.getCatalogue().getSpeciesPreferring(frequentSpecies);
+            }
+        }, callback);
+    }
+
+    /**
+     * Loads all species
+     * @param callback the callback to receive the species
+     * @return a handle to cancel the query
+     */
+    public PendingQuery<Iterable<Species>> findAllSpecies(QueryCallback<Iterable<Species>> callback) {
+        return executor.submit(new Callable<Iterable<Species>>() {
+            @Override
+            public Iterable<Species> call() {
+                return referenceData.getCatalogue().getSpecies();
+            }
+        }, callback);
+    }
+
+    /**
+     * Loads all monitoring areas
+     * @param callback the callback to receive the monitoring areas
+     * @return a handle to cancel the query
+     */
+    public PendingQuery<Iterable<MonitoringArea>> findAllMonitoringAreas(QueryCallback<Iterable<MonitoringArea>> callback) {
+        return executor.submit(new Callable<Iterable<MonitoringArea>>() {
+            @Override
+            public Iterable<MonitoringArea> call() {
+                return referenceData.getCatalogue().getAreas();
+            }
+        }, callback);
+    }
+
+    /**
+     * Loads the monitoring area with the given code
+     * @param code the area's code
+     * @param callback the callback to receive the monitoring area (which may be {@code null})
+     * @return a handle to cancel the query
+     */
+    public PendingQuery<MonitoringArea> findMonitoringArea(@NonNull final String code, QueryCallback<MonitoringArea> callback) {
+        return executor.submit(new Callable<MonitoringArea>() {
+            @Override
+            public MonitoringArea call() {
+                return referenceData.getCatalogue().findArea(code);
+            }
+        }, callback);
+    }
+
+    /**
+     * Discards all queries which did not deliver their results yet
+     */
+    public void cancelAll() {
+        executor.cancelAll();
+    }
+
+    private synchronized SQLiteSpeciesStatistics speciesStatistics() {
+        if (speciesStatistics == null) {
+            speciesStatistics = new SQLiteSpeciesStatistics(openHandler.getReaderDatabase());
+        }
+        return speciesStatistics;
+    }
+
+    private synchronized BirdCountRepository birdCountRepository() {
+        if (birdCountRepository == null) {
+            birdCountRepository = new SQLiteBirdCountRepository(openHandler.getReaderDatabase(), referenceData.getCatalogue());
+        }
+        return birdCountRepository;
+    }
+}
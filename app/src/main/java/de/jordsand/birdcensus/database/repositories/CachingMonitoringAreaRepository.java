@@ -0,0 +1,189 @@
+package de.jordsand.birdcensus.database.repositories;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v4.util.LruCache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import de.jordsand.birdcensus.core.MonitoringArea;
+import de.jordsand.birdcensus.core.MonitoringAreaRepository;
+
+/**
+ * Decorator which keeps the most recently used monitoring areas in memory.
+ * <p>
+ * Lookups by code and by name are held in separate LRU caches of bounded size. The list of all
+ * areas is cached as well. Every modification is passed through to the underlying repository and
+ * invalidates the affected entries.
+ * </p>
+ */
+public class CachingMonitoringAreaRepository implements MonitoringAreaRepository {
+    private static final int DEFAULT_CACHE_SIZE = 64;
+
+    private final MonitoringAreaRepository delegate;
+    private final LruCache<String, MonitoringArea> areasByCode;
+    private final LruCache<String, MonitoringArea> areasByName;
+    private volatile List<MonitoringArea> allAreas;
+
+    /**
+     * Incremented whenever {@link #allAreas} is dropped. A list which was loaded in the meantime
+     * is outdated and will not be cached. Guarded by {@link #allAreasLock}.
+     */
+    private int allAreasVersion;
+    private final Object allAreasLock = new Object();
+
+    private final AtomicInteger hitCount = new AtomicInteger();
+    private final AtomicInteger missCount = new AtomicInteger();
+
+    /**
+     * @param delegate the repository to actually query
+     */
+    public CachingMonitoringAreaRepository(@NonNull MonitoringAreaRepository delegate) {
+        this(delegate, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * @param delegate the repository to actually query
+     * @param cacheSize the maximum number of areas to keep per lookup type
+     */
+    public CachingMonitoringAreaRepository(@NonNull MonitoringAreaRepository delegate, int cacheSize) {
+        this.delegate = delegate;
+        this.areasByCode = new LruCache<>(cacheSize);
+        this.areasByName = new LruCache<>(cacheSize);
+    }
+
+    @Nullable
+    @Override
+    public MonitoringArea findByName(@NonNull String name) {
+        MonitoringArea area = areasByName.get(name);
+        if (area != null) {
+            hitCount.incrementAndGet();
+            return area;
+        }
+        missCount.incrementAndGet();
+        area = delegate.findByName(name);
+        if (area != null) {
+            areasByName.put(name, area);
+            areasByCode.put(area.getCode(), area);
+        }
+        return area;
+    }
+
+    @Override
+    public String save(MonitoringArea area) {
+        String code = delegate.save(area);
+        invalidate(area);
+        return code;
+    }
+
+    @Override
+    public boolean exists(String code) {
+        return findOne(code) != null;
+    }
+
+    @Override
+    public MonitoringArea findOne(String code) {
+        MonitoringArea area = areasByCode.get(code);
+        if (area != null) {
+            hitCount.incrementAndGet();
+            return area;
+        }
+        missCount.incrementAndGet();
+        area = delegate.findOne(code);
+        if (area != null) {
+            areasByCode.put(code, area);
+        }
+        return area;
+    }
+
+    @Override
+    public Iterable<MonitoringArea> findAll() {
+        List<MonitoringArea> areas = allAreas;
+        if (areas != null) {
+            hitCount.incrementAndGet();
+            return areas;
+        }
+        missCount.incrementAndGet();
+        int version;
+        synchronized (allAreasLock) {
+            version = allAreasVersion;
+        }
+        List<MonitoringArea> loadedAreas = new ArrayList<>();
+        for (MonitoringArea area : delegate.findAll()) {
+            loadedAreas.add(area);
+            areasByCode.put(area.getCode(), area);
+        }
+        areas = Collections.unmodifiableList(loadedAreas);
+        synchronized (allAreasLock) {
+            if (version == allAreasVersion) {
+                allAreas = areas;
+            }
+        }
+        return areas;
+    }
+
+    @Override
+    public boolean remove(String code) {
+        boolean removed = delegate.remove(code);
+        MonitoringArea area = areasByCode.remove(code);
+        if (area != null) {
+            areasByName.remove(area.getName());
+        }
+        dropAllAreas();
+        return removed;
+    }
+
+    /**
+     * Drops all cached areas
+     */
+    public void invalidateAll() {
+        areasByCode.evictAll();
+        areasByName.evictAll();
+        dropAllAreas();
+    }
+
+    /**
+     * @return the number of queries which could be answered from the cache
+     */
+    public int getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * @return the number of queries which had to be passed to the underlying repository
+     */
+    public int getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Drops all entries which might be outdated after the area was modified
+     * @param area the modified area
+     */
+    private void invalidate(MonitoringArea area) {
+        areasByCode.remove(area.getCode());
+        areasByName.remove(area.getName());
+        dropAllAreas();
+    }
+
+    /**
+     * Drops the list of all areas, including any list which is being loaded right now
+     */
+    private void dropAllAreas() {
+        synchronized (allAreasLock) {
+            allAreasVersion++;
+            allAreas = null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CachingMonitoringAreaRepository{" +
+                "hits=" + hitCount +
+                ", misses=" + missCount +
+                '}';
+    }
+}
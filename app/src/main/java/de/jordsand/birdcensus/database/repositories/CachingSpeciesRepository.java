@@ -0,0 +1,202 @@
+package de.jordsand.birdcensus.database.repositories;
+
+import android.support.annotation.NonNull;
+import android.support.v4.util.LruCache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import de.jordsand.birdcensus.core.Species;
+import de.jordsand.birdcensus.core.SpeciesRepository;
+
+/**
+ * Decorator which keeps the most recently used species in memory.
+ * <p>
+ * Lookups by ID, by name and by scientific name are held in separate LRU caches of bounded size.
+ * The list of all species is cached as well. Every modification is passed through to the
+ * underlying repository and invalidates the affected entries.
+ * </p>
+ */
+public class CachingSpeciesRepository implements SpeciesRepository {
+    private static final int DEFAULT_CACHE_SIZE = 256;
+
+    private final SpeciesRepository delegate;
+    private final LruCache<Long, Species> speciesById;
+    private final LruCache<String, List<Species>> speciesByName;
+    private final LruCache<String, Species> speciesByScientificName;
+    private volatile List<Species> allSpecies;
+
+    /**
+     * Incremented whenever {@link #allSpecies} is dropped. A list which was loaded in the meantime
+     * is outdated and will not be cached. Guarded by {@link #allSpeciesLock}.
+     */
+    private int allSpeciesVersion;
+    private final Object allSpeciesLock = new Object();
+
+    private final AtomicInteger hitCount = new AtomicInteger();
+    private final AtomicInteger missCount = new AtomicInteger();
+
+    /**
+     * @param delegate the repository to actually query
+     */
+    public CachingSpeciesRepository(@NonNull SpeciesRepository delegate) {
+        this(delegate, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * @param delegate the repository to actually query
+     * @param cacheSize the maximum number of entries to keep per lookup type
+     */
+    public CachingSpeciesRepository(@NonNull SpeciesRepository delegate, int cacheSize) {
+        this.delegate = delegate;
+        this.speciesById = new LruCache<>(cacheSize);
+        this.speciesByName = new LruCache<>(cacheSize);
+        this.speciesByScientificName = new LruCache<>(cacheSize);
+    }
+
+    @Override
+    public List<Species> findByName(String name) {
+        List<Species> species = speciesByName.get(name);
+        if (species != null) {
+            hitCount.incrementAndGet();
+            return species;
+        }
+        missCount.incrementAndGet();
+        species = Collections.unmodifiableList(new ArrayList<>(delegate.findByName(name)));
+        speciesByName.put(name, species);
+        return species;
+    }
+
+    @Override
+    public Species findByScientificName(String scientificName) {
+        Species species = speciesByScientificName.get(scientificName);
+        if (species != null) {
+            hitCount.incrementAndGet();
+            return species;
+        }
+        missCount.incrementAndGet();
+        species = delegate.findByScientificName(scientificName);
+        if (species != null) {
+            speciesByScientificName.put(scientificName, species);
+        }
+        return species;
+    }
+
+    @Override
+    public Long save(Species species) {
+        Long id = delegate.save(species);
+        invalidate(species);
+        if (id != null && id >= 0) {
+            speciesById.put(id, species);
+        }
+        return id;
+    }
+
+    @Override
+    public boolean exists(Long id) {
+        return findOne(id) != null;
+    }
+
+    @Override
+    public Species findOne(Long id) {
+        Species species = speciesById.get(id);
+        if (species != null) {
+            hitCount.incrementAndGet();
+            return species;
+        }
+        missCount.incrementAndGet();
+        species = delegate.findOne(id);
+        if (species != null) {
+            speciesById.put(id, species);
+        }
+        return species;
+    }
+
+    @Override
+    public Iterable<Species> findAll() {
+        List<Species> species = allSpecies;
+        if (species != null) {
+            hitCount.incrementAndGet();
+            return species;
+        }
+        missCount.incrementAndGet();
+        int version;
+        synchronized (allSpeciesLock) {
+            version = allSpeciesVersion;
+        }
+        List<Species> loadedSpecies = new ArrayList<>();
+        for (Species s : delegate.findAll()) {
+            loadedSpecies.add(s);
+        }
+        species = Collections.unmodifiableList(loadedSpecies);
+        synchronized (allSpeciesLock) {
+            if (version == allSpeciesVersion) {
+                allSpecies = species;
+            }
+        }
+        return species;
+    }
+
+    @Override
+    public boolean remove(Long id) {
+        boolean removed = delegate.remove(id);
+        invalidateAll();
+        return removed;
+    }
+
+    /**
+     * Drops all cached species
+     */
+    public void invalidateAll() {
+        speciesById.evictAll();
+        speciesByName.evictAll();
+        speciesByScientificName.evictAll();
+        dropAllSpecies();
+    }
+
+    /**
+     * @return the number of queries which could be answered from the cache
+     */
+    public int getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * @return the number of queries which had to be passed to the underlying repository
+     */
+    public int getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Drops all entries which might be outdated after the species was modified
+     * @param species the modified species
+     */
+    private void invalidate(Species species) {
+        speciesByName.remove(species.getName());
+        if (species.hasScientificName()) {
+            speciesByScientificName.remove(species.getScientificName());
+        }
+        dropAllSpecies();
+    }
+
+    /**
+     * Drops the list of all species, including any list which is being loaded right now
+     */
+    private void dropAllSpecies() {
+        synchronized (allSpeciesLock) {
+            allSpeciesVersion++;
+            allSpecies = null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CachingSpeciesRepository{" +
+                "hits=" + hitCount +
+                ", misses=" + missCount +
+                '}';
+    }
+}
@@ -0,0 +1,203 @@
+package de.jordsand.birdcensus.database.repositories;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import de.jordsand.birdcensus.core.Location;
+import de.jordsand.birdcensus.core.MonitoringArea;
+import de.jordsand.birdcensus.core.ReferenceCatalogue;
+import de.jordsand.birdcensus.core.Species;
+import de.jordsand.birdcensus.database.BirdCountContract;
+import de.jordsand.birdcensus.database.BirdCountOpenHandler;
+
+/**
+ * Provides the app-wide instances of the repositories for the reference data, i.e. species and
+ * monitoring areas. As these rarely change, all of them are {@link CachingSpeciesRepository cached}
+ * and shared between all activities and services.
+ * <p>
+ * Screens which only need to display the reference data should rather use the
+ * {@link #getCatalogue() catalogue}. It is loaded once and kept in memory until new reference data
+ * is added.
+ * </p>
+ * <p>
+ * The repositories are created lazily, so the database will only be opened on first access. This
+ * should therefore happen off the main thread.
+ * </p>
+ */
+public class ReferenceDataRepositories {
+    private static ReferenceDataRepositories instance = null;
+
+    private final BirdCountOpenHandler openHandler;
+    private CachingSpeciesRepository speciesRepository;
+    private CachingMonitoringAreaRepository areaRepository;
+    private volatile ReferenceCatalogue catalogue;
+
+    /**
+     * Provides access to the repositories
+     * @param ctx if the repositories were not created yet, the context will be used to open the
+     *            database
+     * @return the repositories
+     */
+    public static synchronized ReferenceDataRepositories instance(Context ctx) {
+        if (instance == null) {
+            instance = new ReferenceDataRepositories(BirdCountOpenHandler.instance(ctx));
+        }
+        return instance;
+    }
+
+    /**
+     * We are a singleton, thus the constructor is private
+     * @param openHandler the handler to open the database with
+     */
+    private ReferenceDataRepositories(BirdCountOpenHandler openHandler) {
+        this.openHandler = openHandler;
+    }
+
+    /**
+     * @return the shared species repository
+     */
+    public synchronized CachingSpeciesRepository getSpeciesRepository() {
+        if (speciesRepository == null) {
+            speciesRepository = new CachingSpeciesRepository(new SQLiteSpeciesRepository(openHandler.getWriterDatabase()));
+        }
+        return speciesRepository;
+    }
+
+    /**
+     * @return the shared monitoring area repository
+     */
+    public synchronized CachingMonitoringAreaRepository getMonitoringAreaRepository() {
+        if (areaRepository == null) {
+            areaRepository = new CachingMonitoringAreaRepository(new SQLiteMonitoringAreaRepository(openHandler.getWriterDatabase()));
+        }
+        return areaRepository;
+    }
+
+    /**
+     * Provides all species and monitoring areas. They will be loaded on first access.
+     * @return the catalogue
+     */
+    @NonNull
+    public ReferenceCatalogue getCatalogue() {
+        ReferenceCatalogue current = catalogue;
+        if (current == null) {
+            synchronized (this) {
+                current = catalogue;
+                if (current == null) {
+                    current = loadCatalogue();
+                    catalogue = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * @return the catalogue if it was loaded already or {@code null} otherwise
+     */
+    @Nullable
+    public ReferenceCatalogue getLoadedCatalogue() {
+        return catalogue;
+    }
+
+    /**
+     * Discards the catalogue. It will be reloaded on next access. This should be called whenever
+     * species or monitoring areas were added.
+     */
+    public synchronized void invalidateCatalogue() {
+        catalogue = null;
+    }
+
+    /**
+     * Discards all cached reference data, i.e. the catalogue as well as the caches of the
+     * repositories. This has to be called after the reference tables were written directly.
+     */
+    public synchronized void invalidateAll() {
+        if (speciesRepository != null) {
+            speciesRepository.invalidateAll();
+        }
+        if (areaRepository != null) {
+            areaRepository.invalidateAll();
+        }
+        catalogue = null;
+    }
+
+    /**
+     * Reads both reference tables
+     * @return the new catalogue
+     */
+    private ReferenceCatalogue loadCatalogue() {
+        SQLiteDatabase db = openHandler.getReaderDatabase();
+
+        String[] speciesProjection = {
+                BirdCountContract.Species._ID,
+                BirdCountContract.Species.COLUMN_NAME_NAME,
+                BirdCountContract.Species.COLUMN_NAME_SCIENTIFIC_NAME
+        };
+        Cursor speciesData = db.query(
+                BirdCountContract.Species.TABLE_NAME,
+                speciesProjection,
+                null,
+                null,
+                null,
+                null,
+                BirdCountContract.Species._ID
+        );
+        long[] speciesIds;
+        Species[] species;
+        try {
+            final int ID_IDX = speciesData.getColumnIndexOrThrow(BirdCountContract.Species._ID);
+            final int NAME_IDX = speciesData.getColumnIndexOrThrow(BirdCountContract.Species.COLUMN_NAME_NAME);
+            final int SCIENTIFIC_NAME_IDX = speciesData.getColumnIndexOrThrow(BirdCountContract.Species.COLUMN_NAME_SCIENTIFIC_NAME);
+
+            speciesIds = new long[speciesData.getCount()];
+            species = new Species[speciesData.getCount()];
+            int i = 0;
+            while (speciesData.moveToNext()) {
+                speciesIds[i] = speciesData.getLong(ID_IDX);
+                species[i] = new Species(speciesData.getString(NAME_IDX), speciesData.getString(SCIENTIFIC_NAME_IDX));
+                ++i;
+            }
+        } finally {
+            speciesData.close();
+        }
+
+        String[] areaProjection = {
+                BirdCountContract.MonitoringArea.COLUMN_NAME_CODE,
+                BirdCountContract.MonitoringArea.COLUMN_NAME_NAME,
+                BirdCountContract.MonitoringArea.COLUMN_NAME_LAT,
+                BirdCountContract.MonitoringArea.COLUMN_NAME_LON
+        };
+        Cursor areaData = db.query(
+                BirdCountContract.MonitoringArea.TABLE_NAME,
+                areaProjection,
+                null,
+                null,
+                null,
+                null,
+                null
+        );
+        MonitoringArea[] areas;
+        try {
+            final int CODE_IDX = areaData.getColumnIndexOrThrow(BirdCountContract.MonitoringArea.COLUMN_NAME_CODE);
+            final int NAME_IDX = areaData.getColumnIndexOrThrow(BirdCountContract.MonitoringArea.COLUMN_NAME_NAME);
+            final int LAT_IDX = areaData.getColumnIndexOrThrow(BirdCountContract.MonitoringArea.COLUMN_NAME_LAT);
+            final int LON_IDX = areaData.getColumnIndexOrThrow(BirdCountContract.MonitoringArea.COLUMN_NAME_LON);
+
+            areas = new MonitoringArea[areaData.getCount()];
+            int i = 0;
+            while (areaData.moveToNext()) {
+                Location location = new Location(areaData.getDouble(LAT_IDX), areaData.getDouble(LON_IDX));
+                areas[i] = new MonitoringArea(areaData.getString(NAME_IDX), areaData.getString(CODE_IDX), location);
+                ++i;
+            }
+        } finally {
+            areaData.close();
+        }
+
+        return new ReferenceCatalogue(speciesIds, species, areas);
+    }
+}
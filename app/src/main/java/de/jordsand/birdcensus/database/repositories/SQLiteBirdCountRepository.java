@@ -2,12 +2,17 @@ package de.jordsand.birdcensus.database.repositories;
 
 import android.content.ContentValues;
 import android.database.Cursor;
+import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
+import android.support.v4.util.LongSparseArray;
+import android.text.TextUtils;
 import android.util.Pair;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -18,14 +23,17 @@ import java.util.Set;
 
 import de.jordsand.birdcensus.core.BirdCount;
 import de.jordsand.birdcensus.core.BirdCountRepository;
+import de.jordsand.birdcensus.core.CensusFilter;
+import de.jordsand.birdcensus.core.CensusSummary;
 import de.jordsand.birdcensus.core.Location;
 import de.jordsand.birdcensus.core.MonitoringArea;
+import de.jordsand.birdcensus.core.ReferenceCatalogue;
+import de.jordsand.birdcensus.core.Season;
 import de.jordsand.birdcensus.core.Species;
 import de.jordsand.birdcensus.core.WatchList;
 import de.jordsand.birdcensus.core.WeatherData;
 import de.jordsand.birdcensus.core.WeatherData.*;
 import de.jordsand.birdcensus.database.BirdCountContract;
-import de.jordsand.birdcensus.util.DateConverter;
 
 /**
  * Repository to read and write {@link BirdCount} instances from and to a SQLite database
@@ -33,25 +41,83 @@ import de.jordsand.birdcensus.util.DateConverter;
  */
 public class SQLiteBirdCountRepository implements BirdCountRepository {
     private static final int APPROX_SPECIES_PER_AREA = 4;
+    private static final int MAX_QUERY_ARGS = 500;
+    private static final String OBSERVATION_INSERT = "INSERT INTO " + BirdCountContract.ObservedSpecies.TABLE_NAME + " (" +
+            BirdCountContract.ObservedSpecies.COLUMN_NAME_AREA + ", " +
+            BirdCountContract.ObservedSpecies.COLUMN_NAME_SPECIES + ", " +
+            BirdCountContract.ObservedSpecies.COLUMN_NAME_CENSUS + ", " +
+            BirdCountContract.ObservedSpecies.COLUMN_NAME_COUNT + ") VALUES (?, ?, ?, ?)";
+    private static final String FREQUENCY_UPDATE = "UPDATE " + BirdCountContract.SpeciesFrequency.TABLE_NAME + " SET " +
+            BirdCountContract.SpeciesFrequency.COLUMN_NAME_CENSUS_COUNT + " = " + BirdCountContract.SpeciesFrequency.COLUMN_NAME_CENSUS_COUNT + " + 1, " +
+            BirdCountContract.SpeciesFrequency.COLUMN_NAME_TOTAL_COUNT + " = " + BirdCountContract.SpeciesFrequency.COLUMN_NAME_TOTAL_COUNT + " + ? WHERE " +
+            BirdCountContract.SpeciesFrequency.COLUMN_NAME_AREA + " = ? AND " +
+            BirdCountContract.SpeciesFrequency.COLUMN_NAME_SPECIES + " = ? AND " +
+            BirdCountContract.SpeciesFrequency.COLUMN_NAME_SEASON + " = ?";
+    private static final String FREQUENCY_INSERT = "INSERT INTO " + BirdCountContract.SpeciesFrequency.TABLE_NAME + " (" +
+            BirdCountContract.SpeciesFrequency.COLUMN_NAME_TOTAL_COUNT + ", " +
+            BirdCountContract.SpeciesFrequency.COLUMN_NAME_AREA + ", " +
+            BirdCountContract.SpeciesFrequency.COLUMN_NAME_SPECIES + ", " +
+            BirdCountContract.SpeciesFrequency.COLUMN_NAME_SEASON + ", " +
+            BirdCountContract.SpeciesFrequency.COLUMN_NAME_CENSUS_COUNT + ") VALUES (?, ?, ?, ?, 1)";
+
+    /**
+     * Condition which is never satisfied
+     */
+    private static final String MATCH_NOTHING = "0";
+
+    /**
+     * Compares a part of the local start time, e.g. its month. The first argument is the
+     * {@code strftime} format of the part, the second one the start time column
+     */
+    private static final String LOCAL_TIME_PART = "CAST(strftime('%s', %s / 1000, 'unixepoch', 'localtime') AS INTEGER) = ?";
 
     private SQLiteDatabase db;
     private QueryAssistant queryAssistant;
-    private DateConverter dateConverter;
+    private ReferenceCatalogue catalogue;
 
     public SQLiteBirdCountRepository(SQLiteDatabase db) {
+        this(db, ReferenceCatalogue.EMPTY);
+    }
+
+    /**
+     * @param db the database to use
+     * @param catalogue the species and monitoring areas to re-use when restoring bird counts. Any
+     *                  reference data missing from the catalogue will be read from the database
+     */
+    public SQLiteBirdCountRepository(SQLiteDatabase db, @NonNull ReferenceCatalogue catalogue) {
         this.db = db;
         this.queryAssistant = new QueryAssistant();
-        this.dateConverter = new DateConverter();
+        this.catalogue = catalogue;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The bird count and all of its observations will be written within a single transaction.
+     * Thus either the complete bird count is persisted or nothing at all.
+     * </p>
+     * @throws BirdCountNotPersistedException if the bird count could not be inserted
+     * @throws SpeciesNotPersistedException if any of the observed species is not part of the database yet
+     */
     @Override
     public Long save(BirdCount instance) {
         BirdCountToSQLiteConverter converter = new BirdCountToSQLiteConverter();
-        long id = db.insert(BirdCountContract.BirdCount.TABLE_NAME, null, converter.extractBirdCountTableData(instance));
-        for (ContentValues values : converter.extractObservationTableData(instance)) {
-            db.insert(BirdCountContract.ObservedSpecies.TABLE_NAME, null, values);
+        ContentValues birdCountData = converter.extractBirdCountTableData(instance);
+
+        db.beginTransactionNonExclusive();
+        try {
+            long id;
+            try {
+                id = db.insertOrThrow(BirdCountContract.BirdCount.TABLE_NAME, null, birdCountData);
+            } catch (SQLException e) {
+                throw new BirdCountNotPersistedException("For bird count: " + instance, e);
+            }
+            converter.insertObservationTableData(instance, id);
+            db.setTransactionSuccessful();
+            return id;
+        } finally {
+            db.endTransaction();
         }
-        return id;
     }
 
     @Nullable
@@ -92,44 +158,156 @@ public class SQLiteBirdCountRepository implements BirdCountRepository {
     @NonNull
     @Override
     public Iterable<BirdCount> findByObserver(@NonNull String observerName) {
-        String[] projection = {
-                BirdCountContract.BirdCount.COLUMN_NAME_START_TIME,
-                BirdCountContract.BirdCount.COLUMN_NAME_END_TIME,
-                BirdCountContract.BirdCount.COLUMN_NAME_WATER_GAUGE,
-                BirdCountContract.BirdCount.COLUMN_NAME_WIND_STRENGTH,
-                BirdCountContract.BirdCount.COLUMN_NAME_WIND_DIRECTION,
-                BirdCountContract.BirdCount.COLUMN_NAME_PRECIPITATION,
-                BirdCountContract.BirdCount.COLUMN_NAME_VISIBILITY,
-                BirdCountContract.BirdCount.COLUMN_NAME_GLACIATION_LEVEL,
-                BirdCountContract.BirdCount.COLUMN_NAME_OBSERVER
-        };
-        String selection = BirdCountContract.BirdCount.COLUMN_NAME_OBSERVER + " CONTAINS ?";
-        String[] selectionArgs = { observerName };
+        String selection = BirdCountContract.BirdCount.COLUMN_NAME_OBSERVER + " LIKE ?";
+        String[] selectionArgs = { "%" + observerName + "%" };
 
-        Cursor matchingBirdCounts = db.query(
-                BirdCountContract.BirdCount.TABLE_NAME,
-                projection,
-                selection,
-                selectionArgs,
-                null,
-                null,
-                null
-        );
+        BulkBirdCountLoader loader = new BulkBirdCountLoader();
+        return loader.loadBirdCounts(selection, selectionArgs);
+    }
 
-        final int CENSUS_ID_IDX = matchingBirdCounts.getColumnIndexOrThrow(BirdCountContract.BirdCount._ID);
-        List<BirdCount> birdCounts = new ArrayList<>(matchingBirdCounts.getCount());
-        SQLiteToBirdCountConverter converter = new SQLiteToBirdCountConverter();
+    /**
+     * {@inheritDoc}
+     * <p>
+     * As the start time is stored as an (indexed) timestamp, the lookup is an index range scan.
+     * </p>
+     */
+    @NonNull
+    @Override
+    public Iterable<BirdCount> findByStartDateBetween(@NonNull Date from, @NonNull Date to) {
+        String selection = BirdCountContract.BirdCount.COLUMN_NAME_START_TIME + " >= ? AND " +
+                BirdCountContract.BirdCount.COLUMN_NAME_START_TIME + " < ?";
+        String[] selectionArgs = { Long.toString(from.getTime()), Long.toString(to.getTime()) };
+
+        BulkBirdCountLoader loader = new BulkBirdCountLoader();
+        return loader.loadBirdCounts(selection, selectionArgs);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The page is selected through the start time index (keyset paging), thus its costs do not
+     * depend on the number of bird counts before it. The totals are stored along with each bird
+     * count, so no observations have to be read.
+     * </p>
+     */
+    @NonNull
+    @Override
+    public List<CensusSummary> findSummaries(@NonNull CensusFilter filter, @Nullable CensusSummary after, int pageSize) {
+        CensusSummaryLoader loader = new CensusSummaryLoader();
+        return loader.loadSummaries(filter, after, pageSize);
+    }
+
+    /**
+     * Opens a cursor over the raw observations of all bird counts which satisfy a filter.
+     * <p>
+     * The observations are already joined with their bird count and species and will be read
+     * lazily, so no domain objects are created and arbitrarily many bird counts may be streamed
+     * with constant memory. The rows are ordered by start time, area code and species, which
+     * corresponds to the start time and observation indexes, thus no sorting is necessary.
+     * </p>
+     * <p>
+     * The columns are described by {@link BirdCountContract.ObservationExport}. The caller is
+     * responsible for closing the cursor.
+     * </p>
+     * @param filter the restriction of the start dates, exactly as used for
+     *               {@link #findSummaries(CensusFilter, CensusSummary, int)}
+     * @return the cursor
+     */
+    @NonNull
+    public Cursor streamObservations(@NonNull CensusFilter filter) {
+        final String censusAlias = "b";
+        final String observationAlias = "o";
+        final String speciesAlias = "s";
+        String query = "SELECT " +
+                censusAlias + "." + BirdCountContract.BirdCount.COLUMN_NAME_START_TIME + " AS " + BirdCountContract.ObservationExport.COLUMN_NAME_START_TIME + ", " +
+                observationAlias + "." + BirdCountContract.ObservedSpecies.COLUMN_NAME_AREA + " AS " + BirdCountContract.ObservationExport.COLUMN_NAME_AREA + ", " +
+                speciesAlias + "." + BirdCountContract.Species.COLUMN_NAME_NAME + " AS " + BirdCountContract.ObservationExport.COLUMN_NAME_SPECIES_NAME + ", " +
+                speciesAlias + "." + BirdCountContract.Species.COLUMN_NAME_SCIENTIFIC_NAME + " AS " + BirdCountContract.ObservationExport.COLUMN_NAME_SPECIES_SCIENTIFIC_NAME + ", " +
+                observationAlias + "." + BirdCountContract.ObservedSpecies.COLUMN_NAME_COUNT + " AS " + BirdCountContract.ObservationExport.COLUMN_NAME_COUNT +
+                " FROM " + BirdCountContract.BirdCount.TABLE_NAME + " " + censusAlias +
+                " JOIN " + BirdCountContract.ObservedSpecies.TABLE_NAME + " " + observationAlias +
+                " ON " + observationAlias + "." + BirdCountContract.ObservedSpecies.COLUMN_NAME_CENSUS + " = " +
+                censusAlias + "." + BirdCountContract.BirdCount._ID +
+                " JOIN " + BirdCountContract.Species.TABLE_NAME + " " + speciesAlias +
+                " ON " + speciesAlias + "." + BirdCountContract.Species._ID + " = " +
+                observationAlias + "." + BirdCountContract.ObservedSpecies.COLUMN_NAME_SPECIES;
+
+        List<String> args = new ArrayList<>();
+        query += buildFilterCondition(censusAlias, filter, args);
+        query += " ORDER BY " +
+                censusAlias + "." + BirdCountContract.BirdCount.COLUMN_NAME_START_TIME + ", " +
+                observationAlias + "." + BirdCountContract.ObservedSpecies.COLUMN_NAME_AREA + ", " +
+                observationAlias + "." + BirdCountContract.ObservedSpecies.COLUMN_NAME_SPECIES;
+
+        return db.rawQuery(query, args.toArray(new String[args.size()]));
+    }
 
-        while (matchingBirdCounts.moveToNext()) {
-            long censusID = matchingBirdCounts.getLong(CENSUS_ID_IDX);
-            Cursor observationData = converter.loadObservationDataFor(censusID);
-            birdCounts.add(converter.buildBirdCount(matchingBirdCounts, observationData));
-            observationData.close();
+    /**
+     * Counts the observations which would be {@link #streamObservations(CensusFilter) streamed}
+     * for a filter. This only needs the start time and observation indexes.
+     * @param filter the restriction of the start dates
+     * @return the number of observations
+     */
+    public int countObservations(@NonNull CensusFilter filter) {
+        final String censusAlias = "b";
+        final String observationAlias = "o";
+        String query = "SELECT COUNT(*)" +
+                " FROM " + BirdCountContract.BirdCount.TABLE_NAME + " " + censusAlias +
+                " JOIN " + BirdCountContract.ObservedSpecies.TABLE_NAME + " " + observationAlias +
+                " ON " + observationAlias + "." + BirdCountContract.ObservedSpecies.COLUMN_NAME_CENSUS + " = " +
+                censusAlias + "." + BirdCountContract.BirdCount._ID;
+
+        List<String> args = new ArrayList<>();
+        query += buildFilterCondition(censusAlias, filter, args);
+
+        Cursor result = db.rawQuery(query, args.toArray(new String[args.size()]));
+        try {
+            return result.moveToFirst() ? result.getInt(0) : 0;
+        } finally {
+            result.close();
         }
+    }
 
-        matchingBirdCounts.close();
+    /**
+     * Creates the {@code WHERE} clause for the bird counts which satisfy a filter
+     * @param censusAlias the alias of the bird count table
+     * @param filter the filter
+     * @param args the list to add the arguments of the clause to
+     * @return the {@code WHERE} clause, or an empty string if the filter does not restrict anything
+     */
+    private String buildFilterCondition(String censusAlias, CensusFilter filter, List<String> args) {
+        List<String> conditions = new ArrayList<>();
+        restrictTo(censusAlias + "." + BirdCountContract.BirdCount.COLUMN_NAME_START_TIME, filter, conditions, args);
+        return conditions.isEmpty() ? "" : " WHERE " + TextUtils.join(" AND ", conditions);
+    }
 
-        return birdCounts;
+    /**
+     * Translates a filter into SQL conditions. Year (and month) are expressed as a range of the
+     * start time such that the index may be used. Unsatisfiable filters do not match any row.
+     * @param startTimeColumn the (possibly qualified) start time column
+     * @param filter the filter
+     * @param conditions the list to add the conditions to
+     * @param args the list to add the arguments of the conditions to
+     */
+    private static void restrictTo(String startTimeColumn, CensusFilter filter, List<String> conditions, List<String> args) {
+        if (!filter.isSatisfiable()) {
+            conditions.add(MATCH_NOTHING);
+            return;
+        }
+        if (filter.hasYear()) {
+            conditions.add(startTimeColumn + " >= ?");
+            args.add(Long.toString(filter.getPeriodStart().getTime()));
+            conditions.add(startTimeColumn + " < ?");
+            args.add(Long.toString(filter.getPeriodEnd().getTime()));
+        }
+        if (filter.hasMonth() && !filter.hasYear()) {
+            conditions.add(String.format(LOCAL_TIME_PART, "%m", startTimeColumn));
+            args.add(Integer.toString(filter.getMonth()));
+        }
+        if (filter.hasDay() && !filter.isSingleDay()) {
+            conditions.add(String.format(LOCAL_TIME_PART, "%d", startTimeColumn));
+            args.add(Integer.toString(filter.getDay()));
+        }
     }
 
     @Override
@@ -172,43 +350,8 @@ public class SQLiteBirdCountRepository implements BirdCountRepository {
 
     @Override
     public Iterable<BirdCount> findAll() {
-        String[] projection = {
-                BirdCountContract.BirdCount._ID,
-                BirdCountContract.BirdCount.COLUMN_NAME_START_TIME,
-                BirdCountContract.BirdCount.COLUMN_NAME_END_TIME,
-                BirdCountContract.BirdCount.COLUMN_NAME_WATER_GAUGE,
-                BirdCountContract.BirdCount.COLUMN_NAME_WIND_STRENGTH,
-                BirdCountContract.BirdCount.COLUMN_NAME_WIND_DIRECTION,
-                BirdCountContract.BirdCount.COLUMN_NAME_PRECIPITATION,
-                BirdCountContract.BirdCount.COLUMN_NAME_VISIBILITY,
-                BirdCountContract.BirdCount.COLUMN_NAME_GLACIATION_LEVEL,
-                BirdCountContract.BirdCount.COLUMN_NAME_OBSERVER
-        };
-
-        Cursor rawBirdCounts = db.query(
-                BirdCountContract.BirdCount.TABLE_NAME,
-                projection,
-                null,
-                null,
-                null,
-                null,
-                null
-        );
-
-        final int CENSUS_ID_IDX = rawBirdCounts.getColumnIndexOrThrow(BirdCountContract.BirdCount._ID);
-        int resultSize = rawBirdCounts.getCount();
-        List<BirdCount> birdCounts = new ArrayList<>(resultSize);
-        SQLiteToBirdCountConverter converter = new SQLiteToBirdCountConverter();
-
-        while (rawBirdCounts.moveToNext()) {
-            long censusID = rawBirdCounts.getLong(CENSUS_ID_IDX);
-            Cursor observationData = converter.loadObservationDataFor(censusID);
-            birdCounts.add(converter.buildBirdCount(rawBirdCounts, observationData));
-            observationData.close();
-        }
-        rawBirdCounts.close();
-
-        return birdCounts;
+        BulkBirdCountLoader loader = new BulkBirdCountLoader();
+        return loader.loadBirdCounts(null, null);
     }
 
     @Override
@@ -222,23 +365,30 @@ public class SQLiteBirdCountRepository implements BirdCountRepository {
     private class QueryAssistant {
 
         /**
-         * Queries for the ID of a certain species
+         * Queries for the IDs of a number of species at once
          * @param species the species to look up
-         * @return the associated primary key or {@code -1} if non exists
+         * @return the associated primary keys. Species which are not persisted will not be contained
          */
-        long fetchSpeciesId(Species species) {
-            return species.hasScientificName()
-                    ? fetchSpeciesIdByScientificName(species)
-                    : fetchSpeciesIdByName(species);
-        }
+        Map<Species, Long> fetchSpeciesIds(Collection<Species> species) {
+            Map<String, Long> idsByScientificName = new HashMap<>(species.size());
+            Map<String, Long> idsByName = new HashMap<>();
+
+            List<Species> pending = new ArrayList<>(species);
+            for (int start = 0; start < pending.size(); start += MAX_QUERY_ARGS) {
+                List<Species> batch = pending.subList(start, Math.min(start + MAX_QUERY_ARGS, pending.size()));
+                fetchSpeciesIdBatch(batch, idsByScientificName, idsByName);
+            }
 
-        /**
-         * Queries for the ID of a certain bird count
-         * @param census the bird count to look up
-         * @return the associated primary key or {@code -1 } if non exists
-         */
-        long fetchCensusId(BirdCount census) {
-            return fetchCensusId(census.getStartTime());
+            Map<Species, Long> result = new HashMap<>(species.size());
+            for (Species s : species) {
+                Long id = s.hasScientificName()
+                        ? idsByScientificName.get(s.getScientificName())
+                        : idsByName.get(s.getName());
+                if (id != null) {
+                    result.put(s, id);
+                }
+            }
+            return result;
         }
 
         /**
@@ -251,7 +401,7 @@ public class SQLiteBirdCountRepository implements BirdCountRepository {
                     BirdCountContract.BirdCount._ID
             };
             String selection = BirdCountContract.BirdCount.COLUMN_NAME_START_TIME + " = ?";
-            String[] selectionArgs = { dateConverter.formatDate(startTime) };
+            String[] selectionArgs = { Long.toString(startTime.getTime()) };
 
             Cursor cursor = db.query(
                     BirdCountContract.BirdCount.TABLE_NAME,
@@ -263,6 +413,7 @@ public class SQLiteBirdCountRepository implements BirdCountRepository {
                     null);
 
             if (!cursor.moveToFirst()) {
+                cursor.close();
                 return -1L;
             }
             long censusId = cursor.getLong(cursor.getColumnIndexOrThrow(BirdCountContract.BirdCount._ID));
@@ -271,68 +422,68 @@ public class SQLiteBirdCountRepository implements BirdCountRepository {
         }
 
         /**
-         * Performs the ID-lookup for species with scientific name
-         * @param species the species to query for
-         * @return the associated primary key or {@code -1} if non exists
+         * Performs the ID-lookup for a batch of species. Species with a scientific name will be
+         * identified by it, all others by their name.
+         * @param batch the species to query for
+         * @param idsByScientificName the map to put the IDs of species with scientific name into
+         * @param idsByName the map to put the IDs of species without scientific name into
          */
-        private long fetchSpeciesIdByScientificName(Species species) {
-            String[] projection = {
-                    BirdCountContract.Species._ID
-            };
-            String selection = BirdCountContract.Species.COLUMN_NAME_SCIENTIFIC_NAME + " = ?";
-            String[] selectionArgs = { species.getScientificName() };
-
-            Cursor cursor = db.query(
-                    BirdCountContract.Species.TABLE_NAME,
-                    projection,
-                    selection,
-                    selectionArgs,
-                    null,
-                    null,
-                    null);
-
-            if (!cursor.moveToFirst()) {
-                return -1L;
+        private void fetchSpeciesIdBatch(List<Species> batch, Map<String, Long> idsByScientificName, Map<String, Long> idsByName) {
+            List<String> scientificNames = new ArrayList<>(batch.size());
+            List<String> names = new ArrayList<>();
+            for (Species s : batch) {
+                if (s.hasScientificName()) {
+                    scientificNames.add(s.getScientificName());
+                } else {
+                    names.add(s.getName());
+                }
             }
-            long speciesId = cursor.getLong(cursor.getColumnIndexOrThrow(BirdCountContract.Species._ID));
-            cursor.close();
-            return speciesId;
-        }
 
-        /**
-         * Performs the ID-lookup for species without scientific name
-         * @param species the species to query for
-         * @return the associated primary key or {@code -1} if non exists
-         */
-        private long fetchSpeciesIdByName(Species species) {
             String[] projection = {
                     BirdCountContract.Species._ID,
+                    BirdCountContract.Species.COLUMN_NAME_NAME,
                     BirdCountContract.Species.COLUMN_NAME_SCIENTIFIC_NAME
             };
-            String selection = BirdCountContract.Species.COLUMN_NAME_NAME + " = ?";
-            String[] selectionArgs = { species.getName() };
+            String selection = BirdCountContract.Species.COLUMN_NAME_SCIENTIFIC_NAME + " IN (" + placeholders(scientificNames.size()) + ") OR " +
+                    BirdCountContract.Species.COLUMN_NAME_NAME + " IN (" + placeholders(names.size()) + ")";
+            List<String> selectionArgs = new ArrayList<>(batch.size());
+            selectionArgs.addAll(scientificNames);
+            selectionArgs.addAll(names);
 
             Cursor cursor = db.query(
                     BirdCountContract.Species.TABLE_NAME,
                     projection,
                     selection,
-                    selectionArgs,
+                    selectionArgs.toArray(new String[selectionArgs.size()]),
                     null,
                     null,
                     null);
 
+            final int ID_IDX = cursor.getColumnIndexOrThrow(BirdCountContract.Species._ID);
+            final int NAME_IDX = cursor.getColumnIndexOrThrow(BirdCountContract.Species.COLUMN_NAME_NAME);
             final int SCIENTIFIC_NAME_IDX = cursor.getColumnIndexOrThrow(BirdCountContract.Species.COLUMN_NAME_SCIENTIFIC_NAME);
 
-            while (cursor.moveToNext()){
+            while (cursor.moveToNext()) {
                 boolean scientificNameUnset = cursor.isNull(SCIENTIFIC_NAME_IDX) || cursor.getString(SCIENTIFIC_NAME_IDX).isEmpty();
                 if (scientificNameUnset) {
-                    long speciesId = cursor.getLong(cursor.getColumnIndexOrThrow(BirdCountContract.Species._ID));
-                    cursor.close();
-                    return speciesId;
+                    idsByName.put(cursor.getString(NAME_IDX), cursor.getLong(ID_IDX));
+                } else {
+                    idsByScientificName.put(cursor.getString(SCIENTIFIC_NAME_IDX), cursor.getLong(ID_IDX));
                 }
             }
             cursor.close();
-            return -1L;
+        }
+
+        /**
+         * @param count the number of arguments
+         * @return a comma separated list of {@code count} SQL placeholders
+         */
+        private String placeholders(int count) {
+            StringBuilder builder = new StringBuilder(3 * count);
+            for (int i = 0; i < count; ++i) {
+                builder.append(i == 0 ? "?" : ", ?");
+            }
+            return builder.toString();
         }
 
     }
@@ -353,10 +504,8 @@ public class SQLiteBirdCountRepository implements BirdCountRepository {
                 throw new IllegalStateException("Bird count is not yet terminated");
             }
             ContentValues values = new ContentValues();
-            String start = dateConverter.formatDate(birdCount.getStartTime());
-            values.put(BirdCountContract.BirdCount.COLUMN_NAME_START_TIME, start);
-            String end = dateConverter.formatDate(birdCount.getEndTime());
-            values.put(BirdCountContract.BirdCount.COLUMN_NAME_END_TIME, end);
+            values.put(BirdCountContract.BirdCount.COLUMN_NAME_START_TIME, birdCount.getStartTime().getTime());
+            values.put(BirdCountContract.BirdCount.COLUMN_NAME_END_TIME, birdCount.getEndTime().getTime());
             WeatherData weather = birdCount.getWeatherInfo();
             values.put(BirdCountContract.BirdCount.COLUMN_NAME_WATER_GAUGE, weather.getWaterGauge());
             values.put(BirdCountContract.BirdCount.COLUMN_NAME_WIND_STRENGTH, weather.getWindStrength());
@@ -365,59 +514,88 @@ public class SQLiteBirdCountRepository implements BirdCountRepository {
             if (weather.getVisibility() != null) values.put(BirdCountContract.BirdCount.COLUMN_NAME_VISIBILITY, weather.getVisibility().ordinal());
             if (weather.getGlaciationLevel() != null) values.put(BirdCountContract.BirdCount.COLUMN_NAME_GLACIATION_LEVEL, weather.getGlaciationLevel().ordinal());
             values.put(BirdCountContract.BirdCount.COLUMN_NAME_OBSERVER, birdCount.getObserverName());
+            values.put(BirdCountContract.BirdCount.COLUMN_NAME_DIFFERENT_SPECIES, birdCount.getDifferentSpeciesCount());
+            values.put(BirdCountContract.BirdCount.COLUMN_NAME_TOTAL_COUNT, birdCount.getTotalObservedSpeciesCount());
             return values;
         }
 
         /**
-         * Prepares the data for the Observation-table
-         * @param birdCount the bird count to prepare
-         * @return the representation of the observations
+         * Writes the data for the Observation-table. All species will be resolved through a single
+         * lookup and the rows will be inserted through one precompiled statement. The
+         * {@link BirdCountContract.SpeciesFrequency species frequencies} are updated along the way.
+         * @param birdCount the bird count to persist
+         * @param censusId the primary key of the bird count
+         * @throws SpeciesNotPersistedException if any of the observed species is not part of the database yet
          * @see de.jordsand.birdcensus.database.BirdCountContract.ObservedSpecies
          */
-        Iterable<ContentValues> extractObservationTableData(BirdCount birdCount) {
+        void insertObservationTableData(BirdCount birdCount, long censusId) {
             if (!birdCount.isTerminated()) {
                 throw new IllegalStateException("Bird count is not yet terminated");
             }
-            Set<MonitoringArea> areas = birdCount.getObservedSpecies().keySet();
-            List<ContentValues> values = new ArrayList<>(areas.size() * areas.size());
-            for (MonitoringArea area : areas) {
-                WatchList watchList = birdCount.getObservedSpecies().get(area);
-                for (Pair<Species, Integer> entry : watchList) {
-                    ContentValues valuesToAdd = new ContentValues();
-                    valuesToAdd.put(BirdCountContract.ObservedSpecies.COLUMN_NAME_AREA, area.getCode());
-                    long speciesId = fetchSpeciesIdFor(entry);
-                    valuesToAdd.put(BirdCountContract.ObservedSpecies.COLUMN_NAME_SPECIES, speciesId);
-                    long censusId = fetchBirdCountIdFor(birdCount);
-                    valuesToAdd.put(BirdCountContract.ObservedSpecies.COLUMN_NAME_CENSUS, censusId);
-                    valuesToAdd.put(BirdCountContract.ObservedSpecies.COLUMN_NAME_COUNT, entry.second);
-                    values.add(valuesToAdd);
+            Map<MonitoringArea, WatchList> observations = birdCount.getObservedSpecies();
+            Map<Species, Long> speciesIds = queryAssistant.fetchSpeciesIds(collectObservedSpecies(observations.values()));
+
+            long season = Season.of(birdCount.getStartTime()).ordinal();
+
+            SQLiteStatement insertStatement = db.compileStatement(OBSERVATION_INSERT);
+            SQLiteStatement frequencyUpdate = db.compileStatement(FREQUENCY_UPDATE);
+            SQLiteStatement frequencyInsert = db.compileStatement(FREQUENCY_INSERT);
+            try {
+                for (Map.Entry<MonitoringArea, WatchList> entry : observations.entrySet()) {
+                    String areaCode = entry.getKey().getCode();
+                    WatchList watchList = entry.getValue();
+                    for (int i = 0; i < watchList.size(); ++i) {
+                        Species species = watchList.getSpeciesAt(i);
+                        Long speciesId = speciesIds.get(species);
+                        if (speciesId == null) {
+                            throw new SpeciesNotPersistedException("For species: " + species);
+                        }
+                        insertStatement.bindString(1, areaCode);
+                        insertStatement.bindLong(2, speciesId);
+                        insertStatement.bindLong(3, censusId);
+                        insertStatement.bindLong(4, watchList.getCountAt(i));
+                        insertStatement.executeInsert();
+
+                        bindFrequency(frequencyUpdate, areaCode, speciesId, season, watchList.getCountAt(i));
+                        if (frequencyUpdate.executeUpdateDelete() == 0) {
+                            bindFrequency(frequencyInsert, areaCode, speciesId, season, watchList.getCountAt(i));
+                            frequencyInsert.executeInsert();
+                        }
+                    }
                 }
+            } finally {
+                insertStatement.close();
+                frequencyUpdate.close();
+                frequencyInsert.close();
             }
-            return values;
         }
 
         /**
-         * Wrapper-method for {@link QueryAssistant#fetchSpeciesId(Species)}
-         * @throws SpeciesNotPersistedException if the species is not part of the database yet
+         * Sets the parameters of the {@link #FREQUENCY_UPDATE} and {@link #FREQUENCY_INSERT}
+         * statements, which both share the same layout
+         * @param statement the statement to bind
+         * @param areaCode the area of the observation
+         * @param speciesId the species observed
+         * @param season the season the bird count took place in
+         * @param count the number of individuals observed
          */
-        long fetchSpeciesIdFor(Pair<Species, Integer> entry) {
-            long speciesId = queryAssistant.fetchSpeciesId(entry.first);
-            if (speciesId < 0L) {
-                throw new SpeciesNotPersistedException("For species: " + entry.first);
-            }
-            return speciesId;
+        void bindFrequency(SQLiteStatement statement, String areaCode, long speciesId, long season, int count) {
+            statement.bindLong(1, count);
+            statement.bindString(2, areaCode);
+            statement.bindLong(3, speciesId);
+            statement.bindLong(4, season);
         }
 
         /**
-         * Wrapper-method for {@link QueryAssistant#fetchCensusId(BirdCount)}
-         * @throws BirdCountNotPersistedException if the census is not part of the database yet
+         * @param watchLists the watchlists to inspect
+         * @return all species recorded in any of the watchlists
          */
-        long fetchBirdCountIdFor(BirdCount birdCount) {
-            long censusId = queryAssistant.fetchCensusId(birdCount);
-            if (censusId < 0L) {
-                throw new BirdCountNotPersistedException("For bird count: " + birdCount);
+        Set<Species> collectObservedSpecies(Collection<WatchList> watchLists) {
+            Set<Species> species = new HashSet<>();
+            for (WatchList watchList : watchLists) {
+                species.addAll(watchList.getObservedSpecies());
             }
-            return censusId;
+            return species;
         }
 
     }
@@ -431,8 +609,22 @@ public class SQLiteBirdCountRepository implements BirdCountRepository {
      *     <li>Third, the watchlists will be associated with their corresponding areas</li>
      *     <li>And finally all the pieces will be put together</li>
      * </ul>
+     * Each species and monitoring area will only be queried and instantiated once per conversion.
      */
     private class SQLiteToBirdCountConverter {
+        private final ReferenceIdentityMap references;
+
+        SQLiteToBirdCountConverter() {
+            this(new ReferenceIdentityMap());
+        }
+
+        /**
+         * @param references the species and monitoring areas which were already restored during the
+         *                   current load
+         */
+        SQLiteToBirdCountConverter(ReferenceIdentityMap references) {
+            this.references = references;
+        }
 
         /**
          * Performs the conversion. This mainly involves delegating to other methods
@@ -453,6 +645,16 @@ public class SQLiteBirdCountRepository implements BirdCountRepository {
          * @return the new bird count
          */
         BirdCount buildBirdCount(Cursor birdCountData, Cursor observationData) {
+            return buildBirdCount(birdCountData, rebuildObservedSpecies(observationData));
+        }
+
+        /**
+         * Connects the database-row for the bird count with its already restored observations
+         * @param birdCountData the cursor for the bird count data
+         * @param observedSpecies the watchlists of the bird count
+         * @return the new bird count
+         */
+        BirdCount buildBirdCount(Cursor birdCountData, Map<MonitoringArea, WatchList> observedSpecies) {
             final int START_IDX = birdCountData.getColumnIndexOrThrow(BirdCountContract.BirdCount.COLUMN_NAME_START_TIME);
             final int END_IDX = birdCountData.getColumnIndexOrThrow(BirdCountContract.BirdCount.COLUMN_NAME_END_TIME);
             final int OBSERVER_IDX = birdCountData.getColumnIndexOrThrow(BirdCountContract.BirdCount.COLUMN_NAME_OBSERVER);
@@ -462,11 +664,10 @@ public class SQLiteBirdCountRepository implements BirdCountRepository {
                 birdCountData.moveToFirst();
             }
 
-            Date startTime = dateConverter.retrieveDate(birdCountData.getString(START_IDX));
-            Date endTime = dateConverter.retrieveDate(birdCountData.getString(END_IDX));
+            Date startTime = new Date(birdCountData.getLong(START_IDX));
+            Date endTime = new Date(birdCountData.getLong(END_IDX));
             WeatherData weatherData = fetchWeatherDataFrom(birdCountData);
             String observer = birdCountData.getString(OBSERVER_IDX);
-            Map<MonitoringArea, WatchList> observedSpecies = rebuildObservedSpecies(observationData);
 
             return new BirdCount(startTime, endTime, observer, weatherData, observedSpecies);
         }
@@ -489,7 +690,7 @@ public class SQLiteBirdCountRepository implements BirdCountRepository {
                     BirdCountContract.BirdCount.COLUMN_NAME_OBSERVER
             };
             String selection = BirdCountContract.BirdCount.COLUMN_NAME_START_TIME + " = ?";
-            String[] selectionArgs = { dateConverter.formatDate(startTime) };
+            String[] selectionArgs = { Long.toString(startTime.getTime()) };
 
             return db.query(
                     BirdCountContract.BirdCount.TABLE_NAME,
@@ -631,11 +832,31 @@ public class SQLiteBirdCountRepository implements BirdCountRepository {
         }
 
         /**
-         * Reloads the {@link MonitoringArea} objects with the given code
+         * Provides the {@link MonitoringArea} object with the given code. It will only be reloaded
+         * if it was not restored during the current load yet.
          * @param code the area code to query for
          * @return the monitoring area, or {@code null} if no association exists
          */
         MonitoringArea fetchAssociatedMonitoringArea(String code) {
+            MonitoringArea area = references.areas.get(code);
+            if (area == null) {
+                area = catalogue.findArea(code);
+            }
+            if (area == null) {
+                area = loadMonitoringArea(code);
+                if (area != null) {
+                    references.areas.put(code, area);
+                }
+            }
+            return area;
+        }
+
+        /**
+         * Reloads the {@link MonitoringArea} objects with the given code
+         * @param code the area code to query for
+         * @return the monitoring area, or {@code null} if no association exists
+         */
+        MonitoringArea loadMonitoringArea(String code) {
             String[] projection = {
                     BirdCountContract.MonitoringArea.COLUMN_NAME_CODE,
                     BirdCountContract.MonitoringArea.COLUMN_NAME_NAME,
@@ -656,6 +877,7 @@ public class SQLiteBirdCountRepository implements BirdCountRepository {
             );
 
             if (!cursor.moveToFirst()) {
+                cursor.close();
                 return null;
             }
             String name = cursor.getString(
@@ -720,11 +942,31 @@ public class SQLiteBirdCountRepository implements BirdCountRepository {
         }
 
         /**
-         * Loads the species with the given ID
+         * Provides the species with the given ID. It will only be loaded if it was not restored
+         * during the current load yet.
          * @param id the ID to query for
          * @return the associated species, or {@code null} if not association exists
          */
         Species fetchAssociatedSpecies(long id) {
+            Species species = references.species.get(id);
+            if (species == null) {
+                species = catalogue.findSpecies(id);
+            }
+            if (species == null) {
+                species = loadSpecies(id);
+                if (species != null) {
+                    references.species.put(id, species);
+                }
+            }
+            return species;
+        }
+
+        /**
+         * Loads the species with the given ID
+         * @param id the ID to query for
+         * @return the associated species, or {@code null} if not association exists
+         */
+        Species loadSpecies(long id) {
             String[] projection = {
                     BirdCountContract.Species.COLUMN_NAME_NAME,
                     BirdCountContract.Species.COLUMN_NAME_SCIENTIFIC_NAME
@@ -743,6 +985,7 @@ public class SQLiteBirdCountRepository implements BirdCountRepository {
             );
 
             if (!cursor.moveToFirst()) {
+                cursor.close();
                 return null;
             }
 
@@ -756,4 +999,263 @@ public class SQLiteBirdCountRepository implements BirdCountRepository {
             return new Species(name, scientificName);
         }
     }
+
+    /**
+     * Helper-class to load the summaries of bird counts, page by page
+     */
+    private class CensusSummaryLoader {
+        /**
+         * Performs the loading
+         * @param filter restriction of the start dates
+         * @param after the last summary of the previous page, or {@code null} for the first page
+         * @param pageSize the maximum number of summaries to load
+         * @return the summaries
+         */
+        List<CensusSummary> loadSummaries(CensusFilter filter, @Nullable CensusSummary after, int pageSize) {
+            List<String> conditions = new ArrayList<>();
+            List<String> args = new ArrayList<>();
+            restrictTo(BirdCountContract.BirdCount.COLUMN_NAME_START_TIME, filter, conditions, args);
+            if (after != null) {
+                conditions.add(BirdCountContract.BirdCount.COLUMN_NAME_START_TIME + " > ?");
+                args.add(Long.toString(after.getStartTime().getTime()));
+            }
+
+            String[] projection = {
+                    BirdCountContract.BirdCount._ID,
+                    BirdCountContract.BirdCount.COLUMN_NAME_START_TIME,
+                    BirdCountContract.BirdCount.COLUMN_NAME_OBSERVER,
+                    BirdCountContract.BirdCount.COLUMN_NAME_DIFFERENT_SPECIES,
+                    BirdCountContract.BirdCount.COLUMN_NAME_TOTAL_COUNT
+            };
+
+            Cursor cursor = db.query(
+                    BirdCountContract.BirdCount.TABLE_NAME,
+                    projection,
+                    conditions.isEmpty() ? null : join(conditions),
+                    args.toArray(new String[args.size()]),
+                    null,
+                    null,
+                    BirdCountContract.BirdCount.COLUMN_NAME_START_TIME,
+                    Integer.toString(pageSize)
+            );
+
+            final int ID_IDX = cursor.getColumnIndexOrThrow(BirdCountContract.BirdCount._ID);
+            final int START_IDX = cursor.getColumnIndexOrThrow(BirdCountContract.BirdCount.COLUMN_NAME_START_TIME);
+            final int OBSERVER_IDX = cursor.getColumnIndexOrThrow(BirdCountContract.BirdCount.COLUMN_NAME_OBSERVER);
+            final int DIFFERENT_SPECIES_IDX = cursor.getColumnIndexOrThrow(BirdCountContract.BirdCount.COLUMN_NAME_DIFFERENT_SPECIES);
+            final int TOTAL_COUNT_IDX = cursor.getColumnIndexOrThrow(BirdCountContract.BirdCount.COLUMN_NAME_TOTAL_COUNT);
+
+            List<CensusSummary> summaries = new ArrayList<>(cursor.getCount());
+            while (cursor.moveToNext()) {
+                summaries.add(new CensusSummary(
+                        cursor.getLong(ID_IDX),
+                        new Date(cursor.getLong(START_IDX)),
+                        cursor.getString(OBSERVER_IDX),
+                        cursor.getInt(DIFFERENT_SPECIES_IDX),
+                        cursor.getInt(TOTAL_COUNT_IDX)));
+            }
+            cursor.close();
+            return summaries;
+        }
+
+        /**
+         * @param conditions the conditions to combine
+         * @return the conjunction of the conditions
+         */
+        private String join(List<String> conditions) {
+            StringBuilder builder = new StringBuilder();
+            for (String condition : conditions) {
+                if (builder.length() > 0) {
+                    builder.append(" AND ");
+                }
+                builder.append(condition);
+            }
+            return builder.toString();
+        }
+    }
+
+    /**
+     * Helper-class to restore a whole set of {@link BirdCount} instances at once.
+     * In contrast to the {@link SQLiteToBirdCountConverter} the number of queries does not depend on
+     * the number of bird counts or observations:
+     * <ul>
+     *     <li>Firstly, all matching bird count rows will be fetched through a single query</li>
+     *     <li>Second, all their observations will be fetched - already joined with the associated
+     *     species and monitoring areas - through another single query</li>
+     *     <li>Finally, the watchlists will be assembled in one pass over the observations and
+     *     connected with their bird counts</li>
+     * </ul>
+     * Each species and monitoring area will only be instantiated once per load.
+     */
+    private class BulkBirdCountLoader {
+        private static final String OBSERVATION_ALIAS = "o";
+        private static final String SPECIES_ALIAS = "s";
+        private static final String AREA_ALIAS = "a";
+        private static final String COLUMN_SPECIES_NAME = "species_name";
+        private static final String COLUMN_AREA_NAME = "area_name";
+
+        private final ReferenceIdentityMap references = new ReferenceIdentityMap();
+        private final SQLiteToBirdCountConverter converter = new SQLiteToBirdCountConverter(references);
+
+        /**
+         * Performs the loading
+         * @param selection the filter for the bird count table (may be {@code null} to load all bird counts)
+         * @param selectionArgs the arguments for the filter
+         * @return the restored bird counts
+         */
+        List<BirdCount> loadBirdCounts(@Nullable String selection, @Nullable String[] selectionArgs) {
+            String[] projection = {
+                    BirdCountContract.BirdCount._ID,
+                    BirdCountContract.BirdCount.COLUMN_NAME_START_TIME,
+                    BirdCountContract.BirdCount.COLUMN_NAME_END_TIME,
+                    BirdCountContract.BirdCount.COLUMN_NAME_WATER_GAUGE,
+                    BirdCountContract.BirdCount.COLUMN_NAME_WIND_STRENGTH,
+                    BirdCountContract.BirdCount.COLUMN_NAME_WIND_DIRECTION,
+                    BirdCountContract.BirdCount.COLUMN_NAME_PRECIPITATION,
+                    BirdCountContract.BirdCount.COLUMN_NAME_VISIBILITY,
+                    BirdCountContract.BirdCount.COLUMN_NAME_GLACIATION_LEVEL,
+                    BirdCountContract.BirdCount.COLUMN_NAME_OBSERVER
+            };
+
+            LongSparseArray<Map<MonitoringArea, WatchList>> observations = loadObservations(selection, selectionArgs);
+
+            Cursor rawBirdCounts = db.query(
+                    BirdCountContract.BirdCount.TABLE_NAME,
+                    projection,
+                    selection,
+                    selectionArgs,
+                    null,
+                    null,
+                    null
+            );
+
+            final int CENSUS_ID_IDX = rawBirdCounts.getColumnIndexOrThrow(BirdCountContract.BirdCount._ID);
+            List<BirdCount> birdCounts = new ArrayList<>(rawBirdCounts.getCount());
+
+            while (rawBirdCounts.moveToNext()) {
+                long censusId = rawBirdCounts.getLong(CENSUS_ID_IDX);
+                Map<MonitoringArea, WatchList> observedSpecies = observations.get(censusId);
+                if (observedSpecies == null) {
+                    observedSpecies = new HashMap<>();
+                }
+                birdCounts.add(converter.buildBirdCount(rawBirdCounts, observedSpecies));
+            }
+            rawBirdCounts.close();
+
+            return birdCounts;
+        }
+
+        /**
+         * Fetches the observations of all matching bird counts and groups them by bird count and area
+         * @param selection the filter for the bird count table (may be {@code null})
+         * @param selectionArgs the arguments for the filter
+         * @return the watchlists for each bird count (as census ID -> (area -> watchlist))
+         */
+        LongSparseArray<Map<MonitoringArea, WatchList>> loadObservations(@Nullable String selection, @Nullable String[] selectionArgs) {
+            Cursor resultSet = db.rawQuery(buildObservationQuery(selection), selectionArgs);
+
+            final int CENSUS_IDX = resultSet.getColumnIndexOrThrow(BirdCountContract.ObservedSpecies.COLUMN_NAME_CENSUS);
+            final int AREA_CODE_IDX = resultSet.getColumnIndexOrThrow(BirdCountContract.ObservedSpecies.COLUMN_NAME_AREA);
+            final int SPECIES_ID_IDX = resultSet.getColumnIndexOrThrow(BirdCountContract.ObservedSpecies.COLUMN_NAME_SPECIES);
+            final int COUNT_IDX = resultSet.getColumnIndexOrThrow(BirdCountContract.ObservedSpecies.COLUMN_NAME_COUNT);
+            final int SPECIES_NAME_IDX = resultSet.getColumnIndexOrThrow(COLUMN_SPECIES_NAME);
+            final int SCIENTIFIC_NAME_IDX = resultSet.getColumnIndexOrThrow(BirdCountContract.Species.COLUMN_NAME_SCIENTIFIC_NAME);
+            final int AREA_NAME_IDX = resultSet.getColumnIndexOrThrow(COLUMN_AREA_NAME);
+            final int LAT_IDX = resultSet.getColumnIndexOrThrow(BirdCountContract.MonitoringArea.COLUMN_NAME_LAT);
+            final int LON_IDX = resultSet.getColumnIndexOrThrow(BirdCountContract.MonitoringArea.COLUMN_NAME_LON);
+
+            LongSparseArray<Map<MonitoringArea, Map<Species, Integer>>> rawObservations = new LongSparseArray<>();
+
+            while (resultSet.moveToNext()) {
+                long censusId = resultSet.getLong(CENSUS_IDX);
+                Map<MonitoringArea, Map<Species, Integer>> censusObservations = rawObservations.get(censusId);
+                if (censusObservations == null) {
+                    censusObservations = new HashMap<>();
+                    rawObservations.put(censusId, censusObservations);
+                }
+
+                String areaCode = resultSet.getString(AREA_CODE_IDX);
+                MonitoringArea area = references.areas.get(areaCode);
+                if (area == null) {
+                    area = catalogue.findArea(areaCode);
+                    if (area == null) {
+                        Location location = new Location(resultSet.getDouble(LAT_IDX), resultSet.getDouble(LON_IDX));
+                        area = new MonitoringArea(resultSet.getString(AREA_NAME_IDX), areaCode, location);
+                    }
+                    references.areas.put(areaCode, area);
+                }
+
+                long speciesId = resultSet.getLong(SPECIES_ID_IDX);
+                Species observed = references.species.get(speciesId);
+                if (observed == null) {
+                    observed = catalogue.findSpecies(speciesId);
+                    if (observed == null) {
+                        observed = new Species(resultSet.getString(SPECIES_NAME_IDX), resultSet.getString(SCIENTIFIC_NAME_IDX));
+                    }
+                    references.species.put(speciesId, observed);
+                }
+
+                Map<Species, Integer> areaObservations = censusObservations.get(area);
+                if (areaObservations == null) {
+                    areaObservations = new HashMap<>(APPROX_SPECIES_PER_AREA);
+                    censusObservations.put(area, areaObservations);
+                }
+                areaObservations.put(observed, resultSet.getInt(COUNT_IDX));
+            }
+            resultSet.close();
+
+            LongSparseArray<Map<MonitoringArea, WatchList>> result = new LongSparseArray<>(rawObservations.size());
+            for (int i = 0; i < rawObservations.size(); ++i) {
+                Map<MonitoringArea, Map<Species, Integer>> censusObservations = rawObservations.valueAt(i);
+                Map<MonitoringArea, WatchList> watchLists = new HashMap<>(censusObservations.size());
+                for (Map.Entry<MonitoringArea, Map<Species, Integer>> entry : censusObservations.entrySet()) {
+                    watchLists.put(entry.getKey(), new WatchList(entry.getValue()));
+                }
+                result.put(rawObservations.keyAt(i), watchLists);
+            }
+            return result;
+        }
+
+        /**
+         * Creates the query joining the observation table with the species and monitoring area tables
+         * @param selection the filter for the bird count table (may be {@code null})
+         * @return the SQL statement
+         */
+        String buildObservationQuery(@Nullable String selection) {
+            String query = "SELECT " +
+                    OBSERVATION_ALIAS + "." + BirdCountContract.ObservedSpecies.COLUMN_NAME_CENSUS + ", " +
+                    OBSERVATION_ALIAS + "." + BirdCountContract.ObservedSpecies.COLUMN_NAME_AREA + ", " +
+                    OBSERVATION_ALIAS + "." + BirdCountContract.ObservedSpecies.COLUMN_NAME_SPECIES + ", " +
+                    OBSERVATION_ALIAS + "." + BirdCountContract.ObservedSpecies.COLUMN_NAME_COUNT + ", " +
+                    SPECIES_ALIAS + "." + BirdCountContract.Species.COLUMN_NAME_NAME + " AS " + COLUMN_SPECIES_NAME + ", " +
+                    SPECIES_ALIAS + "." + BirdCountContract.Species.COLUMN_NAME_SCIENTIFIC_NAME + ", " +
+                    AREA_ALIAS + "." + BirdCountContract.MonitoringArea.COLUMN_NAME_NAME + " AS " + COLUMN_AREA_NAME + ", " +
+                    AREA_ALIAS + "." + BirdCountContract.MonitoringArea.COLUMN_NAME_LAT + ", " +
+                    AREA_ALIAS + "." + BirdCountContract.MonitoringArea.COLUMN_NAME_LON +
+                    " FROM " + BirdCountContract.ObservedSpecies.TABLE_NAME + " " + OBSERVATION_ALIAS +
+                    " JOIN " + BirdCountContract.Species.TABLE_NAME + " " + SPECIES_ALIAS +
+                    " ON " + SPECIES_ALIAS + "." + BirdCountContract.Species._ID + " = " +
+                    OBSERVATION_ALIAS + "." + BirdCountContract.ObservedSpecies.COLUMN_NAME_SPECIES +
+                    " JOIN " + BirdCountContract.MonitoringArea.TABLE_NAME + " " + AREA_ALIAS +
+                    " ON " + AREA_ALIAS + "." + BirdCountContract.MonitoringArea.COLUMN_NAME_CODE + " = " +
+                    OBSERVATION_ALIAS + "." + BirdCountContract.ObservedSpecies.COLUMN_NAME_AREA;
+
+            if (selection != null) {
+                query += " WHERE " + OBSERVATION_ALIAS + "." + BirdCountContract.ObservedSpecies.COLUMN_NAME_CENSUS +
+                        " IN (SELECT " + BirdCountContract.BirdCount._ID +
+                        " FROM " + BirdCountContract.BirdCount.TABLE_NAME +
+                        " WHERE " + selection + ")";
+            }
+            return query;
+        }
+    }
+
+    /**
+     * Keeps track of the species and monitoring areas which were already restored during a load.
+     * Thus each of them will only be instantiated once - no matter how many observations refer to it.
+     */
+    private static class ReferenceIdentityMap {
+        final LongSparseArray<Species> species = new LongSparseArray<>();
+        final Map<String, MonitoringArea> areas = new HashMap<>();
+    }
 }
@@ -0,0 +1,356 @@
+package de.jordsand.birdcensus.database.repositories;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.jordsand.birdcensus.core.BirdCount;
+import de.jordsand.birdcensus.core.MonitoringArea;
+import de.jordsand.birdcensus.core.MonitoringAreaRepository;
+import de.jordsand.birdcensus.core.Species;
+import de.jordsand.birdcensus.core.WeatherData;
+import de.jordsand.birdcensus.core.WeatherData.*;
+import de.jordsand.birdcensus.database.BirdCountContract;
+import de.jordsand.birdcensus.database.BirdCountOpenHandler;
+import de.jordsand.birdcensus.services.census.SightingJournal;
+
+/**
+ * {@link SightingJournal} implementation which stages the ongoing bird count in dedicated SQLite
+ * tables.
+ * <p>
+ * Sightings are collected in memory first. As soon as {@link #FLUSH_THRESHOLD} sightings are
+ * pending or {@link #FLUSH_DELAY_MS} passed since the first one was recorded, they will be written
+ * within a single transaction on the database's writer thread. This way the sync to disk is
+ * performed once per batch rather than once per sighting. If a batch could not be written, it will
+ * be queued again and retried after {@link #FLUSH_DELAY_MS}.
+ * </p>
+ */
+public class SQLiteSightingJournal implements SightingJournal {
+    private static final String TAG = SQLiteSightingJournal.class.getSimpleName();
+
+    private static final int FLUSH_THRESHOLD = 16;
+    private static final long FLUSH_DELAY_MS = 2000L;
+
+    private static final String JOURNAL_INSERT =
+            "INSERT INTO " + BirdCountContract.SightingJournal.TABLE_NAME + " (" +
+                    BirdCountContract.SightingJournal.COLUMN_NAME_AREA + ", " +
+                    BirdCountContract.SightingJournal.COLUMN_NAME_SPECIES_NAME + ", " +
+                    BirdCountContract.SightingJournal.COLUMN_NAME_SPECIES_SCIENTIFIC_NAME + ", " +
+                    BirdCountContract.SightingJournal.COLUMN_NAME_COUNT + ") VALUES (?, ?, ?, ?)";
+
+    private final BirdCountOpenHandler openHandler;
+    private final Handler flushTimer;
+    private final Runnable scheduledFlush;
+    private final Runnable writePending;
+
+    /**
+     * The sightings which were not written yet. Guarded by itself.
+     */
+    private final List<Sighting> pending;
+    private boolean flushScheduled;
+
+    /**
+     * Incremented whenever the pending sightings are dropped. A batch which failed to be written
+     * is only queued again if the journal was not reset in the meantime. Guarded by
+     * {@link #pending}.
+     */
+    private int generation;
+
+    /**
+     * @param openHandler the handler to obtain the database from
+     */
+    public SQLiteSightingJournal(@NonNull BirdCountOpenHandler openHandler) {
+        this.openHandler = openHandler;
+        this.flushTimer = new Handler(Looper.getMainLooper());
+        this.pending = new ArrayList<>(FLUSH_THRESHOLD);
+        this.scheduledFlush = new Runnable() {
+            @Override
+            public void run() {
+                flush();
+            }
+        };
+        this.writePending = new PendingSightingsWriter();
+    }
+
+    @Override
+    public void beginCensus(@NonNull final BirdCount birdCount) {
+        dropPending();
+        openHandler.executeWrite(new Runnable() {
+            @Override
+            public void run() {
+                SQLiteDatabase db = openHandler.getWriterDatabase();
+                db.beginTransactionNonExclusive();
+                try {
+                    deleteJournalRows(db);
+                    db.insertOrThrow(BirdCountContract.OngoingCensus.TABLE_NAME, null, createOngoingCensusEntry(birdCount));
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+            }
+        });
+    }
+
+    @Override
+    public void recordSighting(@NonNull String areaCode, @NonNull Species species, int count) {
+        boolean flushNow;
+        synchronized (pending) {
+            pending.add(new Sighting(areaCode, species, count));
+            flushNow = pending.size() >= FLUSH_THRESHOLD;
+            if (!flushNow && !flushScheduled) {
+                flushScheduled = true;
+                flushTimer.postDelayed(scheduledFlush, FLUSH_DELAY_MS);
+            }
+        }
+        if (flushNow) {
+            flush();
+        }
+    }
+
+    @Override
+    public void flush() {
+        synchronized (pending) {
+            flushTimer.removeCallbacks(scheduledFlush);
+            flushScheduled = false;
+            if (pending.isEmpty()) {
+                return;
+            }
+        }
+        openHandler.executeWrite(writePending);
+    }
+
+    @Override
+    public void discard() {
+        dropPending();
+        openHandler.executeWrite(new Runnable() {
+            @Override
+            public void run() {
+                deleteJournalRows(openHandler.getWriterDatabase());
+            }
+        });
+    }
+
+    @Override
+    public void clear() {
+        deleteJournalRows(openHandler.getWriterDatabase());
+    }
+
+    @Nullable @Override
+    public BirdCount restore(@NonNull MonitoringAreaRepository areaRepository) {
+        SQLiteDatabase db = openHandler.getReaderDatabase();
+        BirdCount birdCount;
+
+        Cursor ongoingCensus = db.query(
+                BirdCountContract.OngoingCensus.TABLE_NAME,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null
+        );
+        try {
+            if (!ongoingCensus.moveToFirst()) {
+                return null;
+            }
+            birdCount = readOngoingCensus(ongoingCensus);
+        } finally {
+            ongoingCensus.close();
+        }
+
+        Cursor journal = db.query(
+                BirdCountContract.SightingJournal.TABLE_NAME,
+                null,
+                null,
+                null,
+                null,
+                null,
+                BirdCountContract.SightingJournal._ID
+        );
+        try {
+            final int AREA_IDX = journal.getColumnIndexOrThrow(BirdCountContract.SightingJournal.COLUMN_NAME_AREA);
+            final int NAME_IDX = journal.getColumnIndexOrThrow(BirdCountContract.SightingJournal.COLUMN_NAME_SPECIES_NAME);
+            final int SCIENTIFIC_NAME_IDX = journal.getColumnIndexOrThrow(BirdCountContract.SightingJournal.COLUMN_NAME_SPECIES_SCIENTIFIC_NAME);
+            final int COUNT_IDX = journal.getColumnIndexOrThrow(BirdCountContract.SightingJournal.COLUMN_NAME_COUNT);
+
+            Map<String, MonitoringArea> areas = new HashMap<>();
+            while (journal.moveToNext()) {
+                String areaCode = journal.getString(AREA_IDX);
+                MonitoringArea area = areas.get(areaCode);
+                if (area == null) {
+                    area = areaRepository.findOne(areaCode);
+                    if (area == null) {
+                        Log.w(TAG, "Skipping journal entry for unknown area " + areaCode);
+                        continue;
+                    }
+                    areas.put(areaCode, area);
+                }
+                Species species = new Species(journal.getString(NAME_IDX), journal.getString(SCIENTIFIC_NAME_IDX));
+                birdCount.addToWatchlist(area, species, journal.getInt(COUNT_IDX));
+            }
+        } finally {
+            journal.close();
+        }
+
+        return birdCount;
+    }
+
+    /**
+     * Removes the persisted journal. Sightings which were not written yet are not affected, so
+     * this may be used within transactions on the writer thread.
+     * @param db the database to delete from
+     */
+    private static void deleteJournalRows(SQLiteDatabase db) {
+        db.delete(BirdCountContract.SightingJournal.TABLE_NAME, null, null);
+        db.delete(BirdCountContract.OngoingCensus.TABLE_NAME, null, null);
+    }
+
+    /**
+     * Removes all sightings which were not written yet. Must only be called before the
+     * corresponding database operation is queued, never from within it: sightings recorded in
+     * between would be lost otherwise.
+     */
+    private void dropPending() {
+        synchronized (pending) {
+            flushTimer.removeCallbacks(scheduledFlush);
+            flushScheduled = false;
+            pending.clear();
+            generation++;
+        }
+    }
+
+    /**
+     * Queues a batch which could not be written in front of all sightings recorded since and
+     * schedules another attempt
+     * @param batch the sightings to write again
+     * @param batchGeneration the generation of the journal the batch was taken from
+     */
+    private void requeue(List<Sighting> batch, int batchGeneration) {
+        synchronized (pending) {
+            if (batchGeneration != generation) {
+                // the bird count was discarded or replaced, so the sightings do not belong to it
+                return;
+            }
+            pending.addAll(0, batch);
+            if (!flushScheduled) {
+                flushScheduled = true;
+                flushTimer.postDelayed(scheduledFlush, FLUSH_DELAY_MS);
+            }
+        }
+    }
+
+    /**
+     * @param birdCount the bird count to persist
+     * @return the row for the {@link BirdCountContract.OngoingCensus} table
+     */
+    private ContentValues createOngoingCensusEntry(BirdCount birdCount) {
+        ContentValues values = new ContentValues();
+        values.put(BirdCountContract.OngoingCensus.COLUMN_NAME_START_TIME, birdCount.getStartTime().getTime());
+        values.put(BirdCountContract.OngoingCensus.COLUMN_NAME_OBSERVER, birdCount.getObserverName());
+
+        WeatherData weather = birdCount.getWeatherInfo();
+        values.put(BirdCountContract.OngoingCensus.COLUMN_NAME_WATER_GAUGE, weather.getWaterGauge());
+        values.put(BirdCountContract.OngoingCensus.COLUMN_NAME_WIND_STRENGTH, weather.getWindStrength());
+        if (weather.getWindDirection() != null) values.put(BirdCountContract.OngoingCensus.COLUMN_NAME_WIND_DIRECTION, weather.getWindDirection().ordinal());
+        if (weather.getPrecipitation() != null) values.put(BirdCountContract.OngoingCensus.COLUMN_NAME_PRECIPITATION, weather.getPrecipitation().ordinal());
+        if (weather.getVisibility() != null) values.put(BirdCountContract.OngoingCensus.COLUMN_NAME_VISIBILITY, weather.getVisibility().ordinal());
+        if (weather.getGlaciationLevel() != null) values.put(BirdCountContract.OngoingCensus.COLUMN_NAME_GLACIATION_LEVEL, weather.getGlaciationLevel().ordinal());
+        return values;
+    }
+
+    /**
+     * @param cursor the cursor positioned at the ongoing census
+     * @return the bird count, without any sightings
+     */
+    private BirdCount readOngoingCensus(Cursor cursor) {
+        final int START_TIME_IDX = cursor.getColumnIndexOrThrow(BirdCountContract.OngoingCensus.COLUMN_NAME_START_TIME);
+        final int OBSERVER_IDX = cursor.getColumnIndexOrThrow(BirdCountContract.OngoingCensus.COLUMN_NAME_OBSERVER);
+        final int WATER_GAUGE_IDX = cursor.getColumnIndexOrThrow(BirdCountContract.OngoingCensus.COLUMN_NAME_WATER_GAUGE);
+        final int WIND_STRENGTH_IDX = cursor.getColumnIndexOrThrow(BirdCountContract.OngoingCensus.COLUMN_NAME_WIND_STRENGTH);
+        final int WIND_DIRECTION_IDX = cursor.getColumnIndexOrThrow(BirdCountContract.OngoingCensus.COLUMN_NAME_WIND_DIRECTION);
+        final int PRECIPITATION_IDX = cursor.getColumnIndexOrThrow(BirdCountContract.OngoingCensus.COLUMN_NAME_PRECIPITATION);
+        final int VISIBILITY_IDX = cursor.getColumnIndexOrThrow(BirdCountContract.OngoingCensus.COLUMN_NAME_VISIBILITY);
+        final int GLACIATION_IDX = cursor.getColumnIndexOrThrow(BirdCountContract.OngoingCensus.COLUMN_NAME_GLACIATION_LEVEL);
+
+        Double waterGauge = cursor.isNull(WATER_GAUGE_IDX) ? null : cursor.getDouble(WATER_GAUGE_IDX);
+        Integer windStrength = cursor.isNull(WIND_STRENGTH_IDX) ? null : cursor.getInt(WIND_STRENGTH_IDX);
+        WindDirection windDirection = cursor.isNull(WIND_DIRECTION_IDX) ? null : WindDirection.values()[cursor.getInt(WIND_DIRECTION_IDX)];
+        Precipitation precipitation = cursor.isNull(PRECIPITATION_IDX) ? null : Precipitation.values()[cursor.getInt(PRECIPITATION_IDX)];
+        Visibility visibility = cursor.isNull(VISIBILITY_IDX) ? null : Visibility.values()[cursor.getInt(VISIBILITY_IDX)];
+        GlaciationLevel glaciationLevel = cursor.isNull(GLACIATION_IDX) ? null : GlaciationLevel.values()[cursor.getInt(GLACIATION_IDX)];
+        WeatherData weather = new WeatherData(waterGauge, windStrength, windDirection, precipitation, visibility, glaciationLevel);
+
+        String observer = cursor.isNull(OBSERVER_IDX) ? "" : cursor.getString(OBSERVER_IDX);
+        return new BirdCount(new Date(cursor.getLong(START_TIME_IDX)), observer, weather);
+    }
+
+    /**
+     * Writes all pending sightings in one transaction. Executed on the writer thread.
+     */
+    private class PendingSightingsWriter implements Runnable {
+        @Override
+        public void run() {
+            List<Sighting> batch;
+            int batchGeneration;
+            synchronized (pending) {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch = new ArrayList<>(pending);
+                batchGeneration = generation;
+                pending.clear();
+            }
+
+            SQLiteDatabase db = openHandler.getWriterDatabase();
+            SQLiteStatement insert = db.compileStatement(JOURNAL_INSERT);
+            db.beginTransactionNonExclusive();
+            try {
+                for (Sighting sighting : batch) {
+                    insert.bindString(1, sighting.areaCode);
+                    insert.bindString(2, sighting.species.getName());
+                    if (sighting.species.hasScientificName()) {
+                        insert.bindString(3, sighting.species.getScientificName());
+                    } else {
+                        insert.bindNull(3);
+                    }
+                    insert.bindLong(4, sighting.count);
+                    insert.executeInsert();
+                }
+                db.setTransactionSuccessful();
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Could not write " + batch.size() + " sightings to the journal, retrying", e);
+                requeue(batch, batchGeneration);
+            } finally {
+                db.endTransaction();
+                insert.close();
+            }
+        }
+    }
+
+    /**
+     * A sighting which was not written yet
+     */
+    private static class Sighting {
+        final String areaCode;
+        final Species species;
+        final int count;
+
+        Sighting(String areaCode, Species species, int count) {
+            this.areaCode = areaCode;
+            this.species = species;
+            this.count = count;
+        }
+    }
+}
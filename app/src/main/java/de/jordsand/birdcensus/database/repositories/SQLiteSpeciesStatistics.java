@@ -0,0 +1,63 @@
+package de.jordsand.birdcensus.database.repositories;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.support.annotation.NonNull;
+
+import de.jordsand.birdcensus.core.Season;
+import de.jordsand.birdcensus.database.BirdCountContract;
+
+/**
+ * Provides the statistics on how often each species was observed in a monitoring area. They are
+ * maintained by the {@link SQLiteBirdCountRepository} whenever a bird count is saved, so querying
+ * them does not involve the observations themselves.
+ */
+public class SQLiteSpeciesStatistics {
+
+    /**
+     * Observations during the requested season count this many times more than observations
+     * during other seasons
+     */
+    private static final int SEASON_WEIGHT = 4;
+
+    private static final String SCORE = "score";
+    private static final String FREQUENT_SPECIES_QUERY =
+            "SELECT " + BirdCountContract.SpeciesFrequency.COLUMN_NAME_SPECIES + ", " +
+                    "SUM(CASE WHEN " + BirdCountContract.SpeciesFrequency.COLUMN_NAME_SEASON + " = ? " +
+                    "THEN " + BirdCountContract.SpeciesFrequency.COLUMN_NAME_CENSUS_COUNT + " * " + SEASON_WEIGHT + " " +
+                    "ELSE " + BirdCountContract.SpeciesFrequency.COLUMN_NAME_CENSUS_COUNT + " END) AS " + SCORE + " " +
+                    "FROM " + BirdCountContract.SpeciesFrequency.TABLE_NAME + " " +
+                    "WHERE " + BirdCountContract.SpeciesFrequency.COLUMN_NAME_AREA + " = ? " +
+                    "GROUP BY " + BirdCountContract.SpeciesFrequency.COLUMN_NAME_SPECIES + " " +
+                    "ORDER BY " + SCORE + " DESC, SUM(" + BirdCountContract.SpeciesFrequency.COLUMN_NAME_TOTAL_COUNT + ") DESC";
+
+    private SQLiteDatabase db;
+
+    public SQLiteSpeciesStatistics(SQLiteDatabase db) {
+        this.db = db;
+    }
+
+    /**
+     * Ranks the species by the number of bird counts they were observed in. Bird counts during the
+     * given season are weighted higher.
+     * @param areaCode the monitoring area
+     * @param season the season
+     * @return the IDs of all species ever observed in the area, most frequent first
+     */
+    @NonNull
+    public long[] findMostFrequentSpecies(@NonNull String areaCode, @NonNull Season season) {
+        String[] selectionArgs = { Integer.toString(season.ordinal()), areaCode };
+        Cursor cursor = db.rawQuery(FREQUENT_SPECIES_QUERY, selectionArgs);
+        try {
+            final int SPECIES_IDX = cursor.getColumnIndexOrThrow(BirdCountContract.SpeciesFrequency.COLUMN_NAME_SPECIES);
+            long[] speciesIds = new long[cursor.getCount()];
+            int i = 0;
+            while (cursor.moveToNext()) {
+                speciesIds[i++] = cursor.getLong(SPECIES_IDX);
+            }
+            return speciesIds;
+        } finally {
+            cursor.close();
+        }
+    }
+}
@@ -1,21 +1,40 @@
 package de.jordsand.birdcensus.database.repositories.setup;
 
+import android.database.sqlite.SQLiteDatabase;
+import android.support.annotation.Nullable;
+import android.util.Xml;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
+import de.jordsand.birdcensus.core.Group;
+import de.jordsand.birdcensus.core.Location;
 import de.jordsand.birdcensus.core.MonitoringArea;
 import de.jordsand.birdcensus.core.MonitoringAreaRepository;
+import de.jordsand.birdcensus.core.MonitoringStation;
 import de.jordsand.birdcensus.core.Species;
 import de.jordsand.birdcensus.core.SpeciesRepository;
+import de.jordsand.birdcensus.infrastructure.MalformedXMLException;
+import de.jordsand.birdcensus.infrastructure.XMLParser.ElementHandler;
 
 /**
  * Sets up the database with all information that needs to be present during runtime
+ * <p>
+ * The XML files are read through streaming parsers and each species or monitoring area is passed
+ * to the {@link ReferenceDataWriter} as soon as it was parsed. Thus the files never have to be
+ * kept in memory as a whole.
+ * </p>
  * @author Rico Bergmann
  */
 public abstract class DatabaseInflater {
-    protected SpeciesRepository speciesRepo;
-    protected MonitoringAreaRepository areaRepo;
+    protected ReferenceDataWriter writer;
 
     /**
      * Creates a new inflater which parses information about the management indicator species and
@@ -27,7 +46,21 @@ public abstract class DatabaseInflater {
      * @return the inflater
      */
     public static DatabaseInflater fromXML(InputStream managementIndicatorSpeciesXML, InputStream monitoringAreaXML, SpeciesRepository speciesRepo, MonitoringAreaRepository areaRepo) {
-        return new SplitXmlSpecificationInflater(managementIndicatorSpeciesXML, monitoringAreaXML, speciesRepo, areaRepo);
+        return new SplitXmlSpecificationInflater(managementIndicatorSpeciesXML, monitoringAreaXML, new RepositoryWriter(speciesRepo, areaRepo));
+    }
+
+    /**
+     * Creates a new inflater which parses information about the management indicator species and
+     * the monitoring areas from two different XML files and inserts them directly into the
+     * database. All rows will be written within a single transaction, so either all or none of
+     * them will be persisted.
+     * @param managementIndicatorSpeciesXML the stream opening the indicator species XML file
+     * @param monitoringAreaXML the stream opening the monitoring area XML file
+     * @param db the database to write into
+     * @return the inflater
+     */
+    public static DatabaseInflater fromXML(InputStream managementIndicatorSpeciesXML, InputStream monitoringAreaXML, SQLiteDatabase db) {
+        return new SplitXmlSpecificationInflater(managementIndicatorSpeciesXML, monitoringAreaXML, new SQLiteReferenceDataWriter(db));
     }
 
     /**
@@ -39,17 +72,28 @@ public abstract class DatabaseInflater {
      * @return the inflater
      */
     public static DatabaseInflater fromXML(InputStream mergedSpecification, SpeciesRepository speciesRepo, MonitoringAreaRepository areaRepo) {
-        return new MergedXmlSpecificationInflater(mergedSpecification, speciesRepo, areaRepo);
+        return new MergedXmlSpecificationInflater(mergedSpecification, new RepositoryWriter(speciesRepo, areaRepo));
+    }
+
+    /**
+     * Creates a new inflater which parses a single XML file containing information about monitoring
+     * areas as well as management indicator species and inserts them directly into the database.
+     * The file will be validated while it is read and all rows will be written within a single
+     * transaction, so an invalid file will not leave any data behind.
+     * @param mergedSpecification the stream opening the XML file
+     * @param db the database to write into
+     * @return the inflater
+     */
+    public static DatabaseInflater fromXML(InputStream mergedSpecification, SQLiteDatabase db) {
+        return new MergedXmlSpecificationInflater(mergedSpecification, new SQLiteReferenceDataWriter(db));
     }
 
     /**
      * The inflater should not be instantiated directly, hence the constructor is private
-     * @param speciesRepo the repository used to save the parsed management indicator species
-     * @param areaRepo the repository to save the parsed monitoring areas in
+     * @param writer the destination of the parsed species and monitoring areas
      */
-    private DatabaseInflater(SpeciesRepository speciesRepo, MonitoringAreaRepository areaRepo) {
-        this.speciesRepo = speciesRepo;
-        this.areaRepo = areaRepo;
+    private DatabaseInflater(ReferenceDataWriter writer) {
+        this.writer = writer;
     }
 
     /**
@@ -61,18 +105,141 @@ public abstract class DatabaseInflater {
     /**
      * Implementation of the {@link DatabaseInflater} which uses a single XML file as input source.
      * Corresponds to {@link DatabaseInflater#fromXML(InputStream, SpeciesRepository, MonitoringAreaRepository)}
-     * <br><br>
-     * <em>This class is not yet implemented!</em>
+     * <p>
+     * The file is read in one pass through a pull parser. Its structure is checked by the
+     * {@link SpecificationValidator} while it is read and each species, area and station is
+     * written as soon as it is complete. As everything is written between {@link ReferenceDataWriter#begin()}
+     * and {@link ReferenceDataWriter#commit()}, an invalid file will not leave any data behind if
+     * the writer supports transactions.
+     * </p>
+     * <p>
+     * Orders are attached to their species as {@link Group groups} if they provide a name as well
+     * as a scientific name. Monitoring stations are written like monitoring areas, the areas they
+     * observe only have to be declared somewhere within the file.
+     * </p>
      */
     private static class MergedXmlSpecificationInflater extends DatabaseInflater {
+        private static final String NAME_ATTR = "name";
+        private static final String SCIENTIFIC_NAME_ATTR = "scientific";
+        private static final String CODE_ATTR = "code";
+        private static final String OBSERVED_AREA_ATTR = "area";
+
+        private InputStream specification;
 
-        MergedXmlSpecificationInflater(InputStream mergedSpecification, SpeciesRepository speciesRepo, MonitoringAreaRepository areaRepo) {
-            super(speciesRepo, areaRepo);
+        MergedXmlSpecificationInflater(InputStream mergedSpecification, ReferenceDataWriter writer) {
+            super(writer);
+            this.specification = mergedSpecification;
         }
 
         @Override
         public void inflate() throws IOException {
-            throw new UnsupportedOperationException("Not yet implemented");
+            writer.begin();
+            try {
+                XmlPullParser parser = Xml.newPullParser();
+                parser.setFeature(XmlPullParser.FEATURE_PROCESS_NAMESPACES, false);
+                // the encoding will be determined from the XML declaration
+                parser.setInput(specification, null);
+                read(parser);
+                writer.commit();
+            } catch (XmlPullParserException e) {
+                throw new MalformedXMLException("Could not parse reserve specification", e);
+            } finally {
+                writer.end();
+            }
+        }
+
+        /**
+         * Reads the whole specification and passes its content to the writer
+         * @param parser the parser, positioned at the beginning of the document
+         * @throws MalformedXMLException if the specification is not valid
+         * @throws XmlPullParserException if the XML is not well-formed
+         * @throws IOException if the stream could not be read
+         */
+        private void read(XmlPullParser parser) throws XmlPullParserException, IOException {
+            SpecificationValidator validator = new SpecificationValidator();
+            Set<String> areaCodes = new HashSet<>();
+            List<String> observedAreaCodes = new ArrayList<>();
+
+            Group currentGroup = null;
+            String areaName = null;
+            String areaCode = null;
+            Location areaLocation = null;
+
+            int event = parser.getEventType();
+            while (event != XmlPullParser.END_DOCUMENT) {
+                if (event == XmlPullParser.START_TAG) {
+                    validator.enter(parser);
+                    switch (parser.getName()) {
+                        case SpecificationValidator.ORDER_TAG:
+                            currentGroup = readGroup(parser);
+                            break;
+                        case SpecificationValidator.SPECIES_TAG:
+                            writer.writeSpecies(readSpecies(parser, currentGroup));
+                            break;
+                        case SpecificationValidator.AREA_TAG:
+                        case SpecificationValidator.STATION_TAG:
+                            areaName = parser.getAttributeValue(null, NAME_ATTR);
+                            areaCode = parser.getAttributeValue(null, CODE_ATTR);
+                            areaLocation = null;
+                            if (!areaCodes.add(areaCode)) {
+                                throw new MalformedXMLException("Duplicate area code " + areaCode + " (line " + parser.getLineNumber() + ")");
+                            }
+                            break;
+                        case SpecificationValidator.POSITION_TAG:
+                            areaLocation = MonitoringAreaParser.readLocationAttributes(parser);
+                            break;
+                        case SpecificationValidator.OBSERVES_TAG:
+                            observedAreaCodes.add(parser.getAttributeValue(null, OBSERVED_AREA_ATTR));
+                            break;
+                    }
+                } else if (event == XmlPullParser.END_TAG) {
+                    validator.leave(parser);
+                    switch (parser.getName()) {
+                        case SpecificationValidator.ORDER_TAG:
+                            currentGroup = null;
+                            break;
+                        case SpecificationValidator.AREA_TAG:
+                            writer.writeArea(new MonitoringArea(areaName, areaCode, areaLocation));
+                            break;
+                        case SpecificationValidator.STATION_TAG:
+                            writer.writeArea(new MonitoringStation(areaName, areaCode, areaLocation));
+                            break;
+                    }
+                }
+                event = parser.next();
+            }
+            validator.finish(parser);
+
+            for (String observed : observedAreaCodes) {
+                if (!areaCodes.contains(observed)) {
+                    throw new MalformedXMLException("Unknown observed area " + observed);
+                }
+            }
+        }
+
+        /**
+         * @param parser the parser, positioned at an order tag
+         * @return the group described by the order or {@code null} if it is incomplete
+         */
+        @Nullable
+        private Group readGroup(XmlPullParser parser) {
+            String name = parser.getAttributeValue(null, NAME_ATTR);
+            String scientificName = parser.getAttributeValue(null, SCIENTIFIC_NAME_ATTR);
+            if (name == null || scientificName == null) {
+                return null;
+            }
+            return new Group(name, scientificName);
+        }
+
+        /**
+         * @param parser the parser, positioned at a species tag
+         * @param group the order the species belongs to. May be {@code null}
+         * @return the species
+         */
+        private Species readSpecies(XmlPullParser parser, @Nullable Group group) {
+            String name = parser.getAttributeValue(null, NAME_ATTR);
+            String scientificName = parser.getAttributeValue(null, SCIENTIFIC_NAME_ATTR);
+            return group == null ? new Species(name, scientificName) : new Species(name, scientificName, group);
         }
 
     }
@@ -87,8 +254,8 @@ public abstract class DatabaseInflater {
         private ManagementIndicatorSpeciesParser speciesParser;
         private MonitoringAreaParser areaParser;
 
-        SplitXmlSpecificationInflater(InputStream managementIndicatorSpeciesXML, InputStream monitoringAreaXML, SpeciesRepository speciesRepo, MonitoringAreaRepository areaRepo) {
-            super(speciesRepo, areaRepo);
+        SplitXmlSpecificationInflater(InputStream managementIndicatorSpeciesXML, InputStream monitoringAreaXML, ReferenceDataWriter writer) {
+            super(writer);
             this.speciesXML = managementIndicatorSpeciesXML;
             this.areasXML = monitoringAreaXML;
             this.speciesParser = new ManagementIndicatorSpeciesParser();
@@ -97,16 +264,64 @@ public abstract class DatabaseInflater {
 
         @Override
         public void inflate() throws IOException {
-            List<Species> species = speciesParser.parse(speciesXML);
-            List<MonitoringArea> areas = areaParser.parse(areasXML);
-
-            for (Species s : species) {
-                speciesRepo.save(s);
+            writer.begin();
+            try {
+                speciesParser.parse(speciesXML, new ElementHandler<Species>() {
+                    @Override
+                    public void handle(Species species) {
+                        writer.writeSpecies(species);
+                    }
+                });
+                areaParser.parse(areasXML, new ElementHandler<MonitoringArea>() {
+                    @Override
+                    public void handle(MonitoringArea area) {
+                        writer.writeArea(area);
+                    }
+                });
+                writer.commit();
+            } finally {
+                writer.end();
             }
+        }
+    }
+
+    /**
+     * Writer which saves each species and monitoring area through the repositories. As the
+     * repositories do not support transactions, all data will be kept even if it was not
+     * committed.
+     */
+    private static class RepositoryWriter implements ReferenceDataWriter {
+        private final SpeciesRepository speciesRepo;
+        private final MonitoringAreaRepository areaRepo;
+
+        RepositoryWriter(SpeciesRepository speciesRepo, MonitoringAreaRepository areaRepo) {
+            this.speciesRepo = speciesRepo;
+            this.areaRepo = areaRepo;
+        }
+
+        @Override
+        public void begin() {
+
+        }
+
+        @Override
+        public void writeSpecies(Species species) {
+            speciesRepo.save(species);
+        }
+
+        @Override
+        public void writeArea(MonitoringArea area) {
+            areaRepo.save(area);
+        }
+
+        @Override
+        public void commit() {
+
+        }
+
+        @Override
+        public void end() {
 
-            for (MonitoringArea a : areas) {
-                areaRepo.save(a);
-            }
         }
     }
 }
@@ -1,103 +1,88 @@
 package de.jordsand.birdcensus.database.repositories.setup;
 
-import android.util.Log;
+import android.util.Xml;
 
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NamedNodeMap;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.xml.sax.InputSource;
-import org.xml.sax.SAXException;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.List;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-
 import de.jordsand.birdcensus.core.Species;
 import de.jordsand.birdcensus.infrastructure.MalformedXMLException;
 import de.jordsand.birdcensus.infrastructure.XMLParser;
 
 /**
  * Parser to extract the {@link Species} information from a XML file
+ * <p>
+ * The file is read through a pull parser, so each species is available as soon as its tag was
+ * read and the document is never kept in memory as a whole.
+ * </p>
  * @author Rico Bergmann
  */
 public class ManagementIndicatorSpeciesParser implements XMLParser<Species> {
-    private static final String TAG = ManagementIndicatorSpeciesParser.class.getSimpleName();
-    private static final String SPECIES_TAG = "Species";
+    static final String SPECIES_TAG = "Species";
     private static final String SPECIES_NAME_ATTR = "name";
     private static final String SPECIES_SCIENTIFIC_NAME_ATTR = "scientific";
 
     @Override
     public List<Species> parse(InputStream in) {
-        Element speciesList = openXml(in);
-        NodeList speciesNodes = speciesList.getElementsByTagName(SPECIES_TAG);
-        return readNodes(speciesNodes);
+        final List<Species> species = new ArrayList<>();
+        parse(in, new ElementHandler<Species>() {
+            @Override
+            public void handle(Species element) {
+                species.add(element);
+            }
+        });
+        return species;
     }
 
-    /**
-     * Sets up the XML stream for further parsing
-     * @param in the input source
-     * @return the XML tree
-     */
-    private Element openXml(InputStream in) {
-        Document doc;
-        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+    @Override
+    public void parse(InputStream in, ElementHandler<Species> handler) {
         try {
-            DocumentBuilder builder = factory.newDocumentBuilder();
-            InputSource source = new InputSource();
-            source.setCharacterStream(new InputStreamReader(in));
-            doc = builder.parse(source);
-        } catch (ParserConfigurationException | SAXException | IOException e) {
-            Log.e(TAG, "Could not parse: " + e);
-            return null;
+            XmlPullParser parser = openXml(in);
+            int event = parser.getEventType();
+            while (event != XmlPullParser.END_DOCUMENT) {
+                if (event == XmlPullParser.START_TAG && SPECIES_TAG.equals(parser.getName())) {
+                    handler.handle(readAttributes(parser));
+                }
+                event = parser.next();
+            }
+        } catch (XmlPullParserException e) {
+            throw new MalformedXMLException("Could not parse species", e);
+        } catch (IOException e) {
+            throw new MalformedXMLException("Could not read species", e);
         }
-        return doc.getDocumentElement();
     }
 
     /**
-     * Parses the XML tree
-     * @param speciesNodes the tree to read
-     * @return all extracted species
+     * Sets up the XML stream for further parsing
+     * @param in the input source
+     * @return the parser, positioned at the beginning of the document
+     * @throws XmlPullParserException if the parser could not be created
      */
-    private List<Species> readNodes(NodeList speciesNodes) {
-        List<Species> species = new ArrayList<>(speciesNodes.getLength());
-
-        for (int i = 0; i < speciesNodes.getLength(); ++i) {
-            Node currSpecies = speciesNodes.item(i);
-            species.add(readAttributes(currSpecies));
-        }
-
-        return species;
+    private XmlPullParser openXml(InputStream in) throws XmlPullParserException {
+        XmlPullParser parser = Xml.newPullParser();
+        parser.setFeature(XmlPullParser.FEATURE_PROCESS_NAMESPACES, false);
+        // the encoding will be determined from the XML declaration
+        parser.setInput(in, null);
+        return parser;
     }
 
     /**
-     * Extracts the species information from an XML node
-     * @param node the node
+     * Extracts the species information from the current tag
+     * @param parser the parser, positioned at a species tag
      * @return the species
-     * @throws MalformedXMLException if the node did not match the expected XML schema
+     * @throws MalformedXMLException if the tag did not match the expected XML schema
      */
-    private Species readAttributes(Node node) {
-        String name = null, scientific = null;
-        NamedNodeMap attributes = node.getAttributes();
-        for (int i = 0; i < attributes.getLength(); ++i) {
-            Node attr = attributes.item(i);
-            String attrName = attr.getNodeName();
-            if (attrName.equals(SPECIES_NAME_ATTR)) {
-                name = attr.getNodeValue();
-            } else if (attrName.equals(SPECIES_SCIENTIFIC_NAME_ATTR)) {
-                scientific = attr.getNodeValue();
-            }
-        }
+    static Species readAttributes(XmlPullParser parser) {
+        String name = parser.getAttributeValue(null, SPECIES_NAME_ATTR);
+        String scientific = parser.getAttributeValue(null, SPECIES_SCIENTIFIC_NAME_ATTR);
 
         if (name == null || scientific == null) {
-            throw new MalformedXMLException();
+            throw new MalformedXMLException("Missing name or scientific attribute in line " + parser.getLineNumber());
         }
         return new Species(name, scientific);
     }
@@ -1,25 +1,15 @@
 package de.jordsand.birdcensus.database.repositories.setup;
 
-import android.util.Log;
+import android.util.Xml;
 
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NamedNodeMap;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.xml.sax.InputSource;
-import org.xml.sax.SAXException;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.List;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-
 import de.jordsand.birdcensus.core.Location;
 import de.jordsand.birdcensus.core.MonitoringArea;
 import de.jordsand.birdcensus.infrastructure.MalformedXMLException;
@@ -27,12 +17,14 @@ import de.jordsand.birdcensus.infrastructure.XMLParser;
 
 /**
  * Parser to extract the {@link MonitoringArea} information from a XML file
+ * <p>
+ * The file is read through a pull parser, so each area is available as soon as its tag was
+ * closed and the document is never kept in memory as a whole.
+ * </p>
  * @author Rico Bergmann
  */
 public class MonitoringAreaParser implements XMLParser<MonitoringArea> {
-    private static final String TAG = MonitoringAreaParser.class.getSimpleName();
-    private static final String START_TAG = "AreaList";
-    private static final String AREA_TAG = "MonitoringArea";
+    static final String AREA_TAG = "MonitoringArea";
     private static final String AREA_NAME_ATTR = "name";
     private static final String AREA_CODE_ATTR = "code";
     private static final String POSITION_TAG = "position";
@@ -41,114 +33,99 @@ public class MonitoringAreaParser implements XMLParser<MonitoringArea> {
 
     @Override
     public List<MonitoringArea> parse(InputStream in) {
-        Element areaList = openXml(in);
-        NodeList areaNodes = areaList.getElementsByTagName(AREA_TAG);
-        return readNodes(areaNodes);
+        final List<MonitoringArea> areas = new ArrayList<>();
+        parse(in, new ElementHandler<MonitoringArea>() {
+            @Override
+            public void handle(MonitoringArea element) {
+                areas.add(element);
+            }
+        });
+        return areas;
     }
 
-    /**
-     * Sets up the XML stream for further parsing
-     * @param in the input source
-     * @return the XML tree
-     */
-    private Element openXml(InputStream in) {
-        Document doc;
-        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+    @Override
+    public void parse(InputStream in, ElementHandler<MonitoringArea> handler) {
         try {
-            DocumentBuilder builder = factory.newDocumentBuilder();
-            InputSource source = new InputSource();
-            source.setCharacterStream(new InputStreamReader(in));
-            doc = builder.parse(source);
-        } catch (ParserConfigurationException | SAXException | IOException e) {
-            Log.e(TAG, "Could not parse: " + e);
-            return null;
+            XmlPullParser parser = openXml(in);
+            int event = parser.getEventType();
+            while (event != XmlPullParser.END_DOCUMENT) {
+                if (event == XmlPullParser.START_TAG && AREA_TAG.equals(parser.getName())) {
+                    handler.handle(readArea(parser));
+                }
+                event = parser.next();
+            }
+        } catch (XmlPullParserException e) {
+            throw new MalformedXMLException("Could not parse monitoring areas", e);
+        } catch (IOException e) {
+            throw new MalformedXMLException("Could not read monitoring areas", e);
         }
-        return doc.getDocumentElement();
     }
 
     /**
-     * Parses the XML tree
-     * @param areaNodes the tree to read
-     * @return all extracted monitoring areas
+     * Sets up the XML stream for further parsing
+     * @param in the input source
+     * @return the parser, positioned at the beginning of the document
+     * @throws XmlPullParserException if the parser could not be created
      */
-    private List<MonitoringArea> readNodes(NodeList areaNodes) {
-        List<MonitoringArea> areas = new ArrayList<>(areaNodes.getLength());
-
-        for (int i = 0; i < areaNodes.getLength(); ++i) {
-            Node currArea = areaNodes.item(i);
-            areas.add(readAttributes(currArea));
-        }
-        return areas;
+    private XmlPullParser openXml(InputStream in) throws XmlPullParserException {
+        XmlPullParser parser = Xml.newPullParser();
+        parser.setFeature(XmlPullParser.FEATURE_PROCESS_NAMESPACES, false);
+        // the encoding will be determined from the XML declaration
+        parser.setInput(in, null);
+        return parser;
     }
 
     /**
-     * Extracts the area description from an XML node
-     * @param node the node
+     * Extracts the area description from the current tag and its position sub-tag
+     * @param parser the parser, positioned at an area tag. Afterwards it will be positioned at
+     *               the corresponding end tag
      * @return the monitoring area
-     * @throws MalformedXMLException if the node did not match the expected XML schema
+     * @throws MalformedXMLException if the tag did not match the expected XML schema
+     * @throws XmlPullParserException if the XML is not well-formed
+     * @throws IOException if the stream could not be read
      */
-    private MonitoringArea readAttributes(Node node) {
-        String name = null, code = null;
-        NamedNodeMap attributes = node.getAttributes();
-        for (int i = 0; i < attributes.getLength(); ++i) {
-            Node attr = attributes.item(i);
-            String attrName = attr.getNodeName();
-            if (attrName.equals(AREA_NAME_ATTR)) {
-                name = attr.getNodeValue();
-            } else if (attrName.equals(AREA_CODE_ATTR)) {
-                code = attr.getNodeValue();
-            }
-        }
+    static MonitoringArea readArea(XmlPullParser parser) throws XmlPullParserException, IOException {
+        String name = parser.getAttributeValue(null, AREA_NAME_ATTR);
+        String code = parser.getAttributeValue(null, AREA_CODE_ATTR);
 
         if (name == null || code == null) {
-            throw new MalformedXMLException("Missing name or code attribute");
+            throw new MalformedXMLException("Missing name or code attribute in line " + parser.getLineNumber());
         }
 
-        Location location = readLocation(node);
-
-        return new MonitoringArea(name, code, location);
-    }
-
-    /**
-     * Extracts the position from an area node. The position is expected to be a sub-node.
-     * @param node the node
-     * @return the location
-     * @throws MalformedXMLException if the node did not match the expected XML schema
-     */
-    private Location readLocation(Node node) {
-        NodeList childNodes = node.getChildNodes();
-        for (int i = 0; i < childNodes.getLength(); ++i) {
-            Node child = childNodes.item(i);
-            if (child.getNodeName().equals(POSITION_TAG)) {
-                return readLocationAttributes(child);
+        Location location = null;
+        int depth = parser.getDepth();
+        int event = parser.next();
+        while (event != XmlPullParser.END_DOCUMENT && !(event == XmlPullParser.END_TAG && parser.getDepth() == depth)) {
+            if (event == XmlPullParser.START_TAG && POSITION_TAG.equals(parser.getName())) {
+                location = readLocationAttributes(parser);
             }
+            event = parser.next();
         }
-        throw new MalformedXMLException("Missing position node");
+
+        if (location == null) {
+            throw new MalformedXMLException("Missing position node for area " + code);
+        }
+        return new MonitoringArea(name, code, location);
     }
 
     /**
-     * Extracts the position from an XML node
-     * @param node the node
+     * Extracts the position from the current tag
+     * @param parser the parser, positioned at a position tag
      * @return the location
-     * @throws MalformedXMLException if the node did not match the expected XML schema
+     * @throws MalformedXMLException if the tag did not match the expected XML schema
      */
-    private Location readLocationAttributes(Node node) {
-        Double lon = null, lat = null;
-        NamedNodeMap attributes = node.getAttributes();
-        for (int i = 0; i < attributes.getLength(); ++i) {
-            Node attr = attributes.item(i);
-            String attrName = attr.getNodeName();
-            if (attrName.equals(POSITION_LON_ATTR)) {
-                lon = Double.parseDouble(attr.getNodeValue());
-            } else if (attrName.equals(POSITION_LAT_ATTR)) {
-                lat = Double.parseDouble(attr.getNodeValue());
-            }
-        }
+    static Location readLocationAttributes(XmlPullParser parser) {
+        String lon = parser.getAttributeValue(null, POSITION_LON_ATTR);
+        String lat = parser.getAttributeValue(null, POSITION_LAT_ATTR);
 
         if (lon == null || lat == null) {
-            throw new MalformedXMLException("Missing latitude or longitude attribute");
+            throw new MalformedXMLException("Missing latitude or longitude attribute in line " + parser.getLineNumber());
+        }
+        try {
+            return new Location(Double.parseDouble(lat), Double.parseDouble(lon));
+        } catch (NumberFormatException e) {
+            throw new MalformedXMLException("Invalid position in line " + parser.getLineNumber(), e);
         }
-        return new Location(lat, lon);
     }
 
 }
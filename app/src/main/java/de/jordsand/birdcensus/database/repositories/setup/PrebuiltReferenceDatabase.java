@@ -0,0 +1,201 @@
+package de.jordsand.birdcensus.database.repositories.setup;
+
+import android.content.Context;
+import android.content.res.AssetManager;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import de.jordsand.birdcensus.core.Location;
+import de.jordsand.birdcensus.core.MonitoringArea;
+import de.jordsand.birdcensus.core.Species;
+import de.jordsand.birdcensus.database.BirdCountContract;
+import de.jordsand.birdcensus.infrastructure.DatabaseStateCorruptException;
+import de.jordsand.birdcensus.util.Files;
+
+/**
+ * Imports the reference data from the SQLite database which is generated at build time (see the
+ * {@code generateReferenceDatabase} task) and shipped as an asset.
+ * <p>
+ * The asset is copied in one sequential pass while its SHA-256 checksum is computed. Only if the
+ * checksum matches the one generated along with the database, its rows will be transferred into
+ * the app's database through a {@link SQLiteReferenceDataWriter}, i.e. within a single
+ * transaction. The copy is opened through a separate handle instead of being attached, as
+ * attaching would permanently disable write-ahead logging for the app's database.
+ * </p>
+ */
+public class PrebuiltReferenceDatabase {
+    public static final String ASSET_NAME = "reference_data.db";
+    private static final String CHECKSUM_ASSET_NAME = ASSET_NAME + ".sha256";
+    private static final String CHECKSUM_ALGORITHM = "SHA-256";
+
+    private final AssetManager assets;
+    private final File copy;
+
+    /**
+     * @param ctx the context to access the assets and the cache directory with
+     */
+    public PrebuiltReferenceDatabase(Context ctx) {
+        this.assets = ctx.getAssets();
+        this.copy = new File(ctx.getCacheDir(), ASSET_NAME);
+    }
+
+    /**
+     * Transfers all species and monitoring areas into a database. Rows which already exist will
+     * be skipped.
+     * @param db the database to write into
+     * @throws IOException if the asset is missing or could not be copied
+     * @throws DatabaseStateCorruptException if the copy does not match the expected checksum
+     */
+    public void importInto(SQLiteDatabase db) throws IOException {
+        String expectedChecksum = readExpectedChecksum();
+        try {
+            String actualChecksum = copyAsset();
+            if (!expectedChecksum.equalsIgnoreCase(actualChecksum)) {
+                throw new DatabaseStateCorruptException("Checksum mismatch for " + ASSET_NAME + ": expected " + expectedChecksum + " but got " + actualChecksum);
+            }
+
+            SQLiteDatabase reference = SQLiteDatabase.openDatabase(copy.getPath(), null, SQLiteDatabase.OPEN_READONLY);
+            try {
+                transfer(reference, new SQLiteReferenceDataWriter(db));
+            } finally {
+                reference.close();
+            }
+        } finally {
+            copy.delete();
+        }
+    }
+
+    /**
+     * @return the checksum which was generated along with the database
+     * @throws IOException if the checksum asset could not be read
+     */
+    private String readExpectedChecksum() throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(assets.open(CHECKSUM_ASSET_NAME), "US-ASCII"));
+        try {
+            String checksum = reader.readLine();
+            if (checksum == null) {
+                throw new IOException(CHECKSUM_ASSET_NAME + " is empty");
+            }
+            return checksum.trim();
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Copies the database asset into the cache directory
+     * @return the checksum of the copied data, as hex string
+     * @throws IOException if the asset could not be copied
+     */
+    private String copyAsset() throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance(CHECKSUM_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("No " + CHECKSUM_ALGORITHM + " implementation available", e);
+        }
+
+        InputStream in = assets.open(ASSET_NAME, AssetManager.ACCESS_STREAMING);
+        try {
+            OutputStream out = new FileOutputStream(copy);
+            try {
+                Files.copyFile(in, new DigestOutputStream(out, digest));
+            } finally {
+                out.close();
+            }
+        } finally {
+            in.close();
+        }
+        return toHex(digest.digest());
+    }
+
+    /**
+     * Reads all species and monitoring areas from the reference database and writes them
+     * @param reference the reference database
+     * @param writer the destination
+     */
+    private void transfer(SQLiteDatabase reference, ReferenceDataWriter writer) {
+        String[] speciesProjection = {
+                BirdCountContract.Species.COLUMN_NAME_NAME,
+                BirdCountContract.Species.COLUMN_NAME_SCIENTIFIC_NAME
+        };
+        String[] areaProjection = {
+                BirdCountContract.MonitoringArea.COLUMN_NAME_CODE,
+                BirdCountContract.MonitoringArea.COLUMN_NAME_NAME,
+                BirdCountContract.MonitoringArea.COLUMN_NAME_LAT,
+                BirdCountContract.MonitoringArea.COLUMN_NAME_LON
+        };
+
+        writer.begin();
+        try {
+            Cursor species = reference.query(
+                    BirdCountContract.Species.TABLE_NAME,
+                    speciesProjection,
+                    null,
+                    null,
+                    null,
+                    null,
+                    BirdCountContract.Species._ID
+            );
+            try {
+                final int NAME_IDX = species.getColumnIndexOrThrow(BirdCountContract.Species.COLUMN_NAME_NAME);
+                final int SCIENTIFIC_NAME_IDX = species.getColumnIndexOrThrow(BirdCountContract.Species.COLUMN_NAME_SCIENTIFIC_NAME);
+                while (species.moveToNext()) {
+                    writer.writeSpecies(new Species(species.getString(NAME_IDX), species.getString(SCIENTIFIC_NAME_IDX)));
+                }
+            } finally {
+                species.close();
+            }
+
+            Cursor areas = reference.query(
+                    BirdCountContract.MonitoringArea.TABLE_NAME,
+                    areaProjection,
+                    null,
+                    null,
+                    null,
+                    null,
+                    null
+            );
+            try {
+                final int CODE_IDX = areas.getColumnIndexOrThrow(BirdCountContract.MonitoringArea.COLUMN_NAME_CODE);
+                final int NAME_IDX = areas.getColumnIndexOrThrow(BirdCountContract.MonitoringArea.COLUMN_NAME_NAME);
+                final int LAT_IDX = areas.getColumnIndexOrThrow(BirdCountContract.MonitoringArea.COLUMN_NAME_LAT);
+                final int LON_IDX = areas.getColumnIndexOrThrow(BirdCountContract.MonitoringArea.COLUMN_NAME_LON);
+                while (areas.moveToNext()) {
+                    Location location = new Location(areas.getDouble(LAT_IDX), areas.getDouble(LON_IDX));
+                    writer.writeArea(new MonitoringArea(areas.getString(NAME_IDX), areas.getString(CODE_IDX), location));
+                }
+            } finally {
+                areas.close();
+            }
+
+            writer.commit();
+        } finally {
+            writer.end();
+        }
+    }
+
+    /**
+     * @param bytes the data to convert
+     * @return the data as lower case hex string
+     */
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16));
+            hex.append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+}
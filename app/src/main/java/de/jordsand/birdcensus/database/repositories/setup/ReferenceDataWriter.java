@@ -0,0 +1,40 @@
+package de.jordsand.birdcensus.database.repositories.setup;
+
+import de.jordsand.birdcensus.core.MonitoringArea;
+import de.jordsand.birdcensus.core.Species;
+
+/**
+ * Destination of the reference data read by a {@link DatabaseInflater}.
+ * <p>
+ * All data is written between {@link #begin()} and {@link #end()}. Only if {@link #commit()} was
+ * called in between, the data has to be kept. Implementations may therefore write everything
+ * within a single transaction.
+ * </p>
+ */
+public interface ReferenceDataWriter {
+
+    /**
+     * Prepares the writer. Has to be called before any data is written
+     */
+    void begin();
+
+    /**
+     * @param species the species to write
+     */
+    void writeSpecies(Species species);
+
+    /**
+     * @param area the monitoring area to write
+     */
+    void writeArea(MonitoringArea area);
+
+    /**
+     * Marks all data written so far as complete
+     */
+    void commit();
+
+    /**
+     * Finishes writing. If the data was not {@link #commit() committed}, it may be discarded.
+     */
+    void end();
+}
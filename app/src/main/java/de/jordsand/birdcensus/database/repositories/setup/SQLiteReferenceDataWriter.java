@@ -0,0 +1,111 @@
+package de.jordsand.birdcensus.database.repositories.setup;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import de.jordsand.birdcensus.core.MonitoringArea;
+import de.jordsand.birdcensus.core.Species;
+import de.jordsand.birdcensus.database.BirdCountContract;
+
+/**
+ * Writes the reference data straight into the database.
+ * <p>
+ * All rows are inserted within a single transaction through pre-compiled statements, so the costs
+ * per row are reduced to binding its values. Rows which already exist (i.e. species with the same
+ * scientific name and areas with the same code) will be skipped, thus the same data may be written
+ * multiple times.
+ * </p>
+ */
+public class SQLiteReferenceDataWriter implements ReferenceDataWriter {
+    private static final String SPECIES_INSERT = "INSERT OR IGNORE INTO " + BirdCountContract.Species.TABLE_NAME + " (" +
+            BirdCountContract.Species.COLUMN_NAME_NAME + ", " +
+            BirdCountContract.Species.COLUMN_NAME_SCIENTIFIC_NAME + ") VALUES (?, ?)";
+    private static final String AREA_INSERT = "INSERT OR IGNORE INTO " + BirdCountContract.MonitoringArea.TABLE_NAME + " (" +
+            BirdCountContract.MonitoringArea.COLUMN_NAME_CODE + ", " +
+            BirdCountContract.MonitoringArea.COLUMN_NAME_NAME + ", " +
+            BirdCountContract.MonitoringArea.COLUMN_NAME_LAT + ", " +
+            BirdCountContract.MonitoringArea.COLUMN_NAME_LON + ") VALUES (?, ?, ?, ?)";
+
+    private final SQLiteDatabase db;
+    private SQLiteStatement speciesInsert;
+    private SQLiteStatement areaInsert;
+    private int speciesCount;
+    private int areaCount;
+
+    /**
+     * @param db the database to write into
+     */
+    public SQLiteReferenceDataWriter(SQLiteDatabase db) {
+        this.db = db;
+    }
+
+    @Override
+    public void begin() {
+        db.beginTransactionNonExclusive();
+        speciesInsert = db.compileStatement(SPECIES_INSERT);
+        areaInsert = db.compileStatement(AREA_INSERT);
+        speciesCount = 0;
+        areaCount = 0;
+    }
+
+    @Override
+    public void writeSpecies(Species species) {
+        speciesInsert.clearBindings();
+        speciesInsert.bindString(1, species.getName());
+        if (species.hasScientificName()) {
+            speciesInsert.bindString(2, species.getScientificName());
+        } else {
+            speciesInsert.bindNull(2);
+        }
+        speciesInsert.executeInsert();
+        ++speciesCount;
+    }
+
+    @Override
+    public void writeArea(MonitoringArea area) {
+        areaInsert.clearBindings();
+        areaInsert.bindString(1, area.getCode());
+        areaInsert.bindString(2, area.getName());
+        areaInsert.bindDouble(3, area.getLocation().getLatitude());
+        areaInsert.bindDouble(4, area.getLocation().getLongitude());
+        areaInsert.executeInsert();
+        ++areaCount;
+    }
+
+    @Override
+    public void commit() {
+        db.setTransactionSuccessful();
+    }
+
+    @Override
+    public void end() {
+        try {
+            speciesInsert.close();
+            areaInsert.close();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * @return the number of species written since the last call to {@link #begin()}
+     */
+    public int getSpeciesCount() {
+        return speciesCount;
+    }
+
+    /**
+     * @return the number of monitoring areas written since the last call to {@link #begin()}
+     */
+    public int getAreaCount() {
+        return areaCount;
+    }
+
+    @Override
+    public String toString() {
+        return "SQLiteReferenceDataWriter{" +
+                "species=" + speciesCount +
+                ", areas=" + areaCount +
+                '}';
+    }
+}
@@ -0,0 +1,154 @@
+package de.jordsand.birdcensus.database.repositories.setup;
+
+import org.xmlpull.v1.XmlPullParser;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import de.jordsand.birdcensus.infrastructure.MalformedXMLException;
+
+/**
+ * Checks the structure of a merged reserve specification while it is being parsed.
+ * <p>
+ * Android does not ship an XML schema implementation, therefore the rules of the
+ * {@code ReserveSpecification} element in {@code assets/xml/schema.xsd} are replicated here: the
+ * allowed children of each element, its required attributes and its required children. The
+ * validator is fed with the start and end tags as they are read by a pull parser, so it only needs
+ * memory proportional to the nesting depth of the document.
+ * </p>
+ */
+final class SpecificationValidator {
+    static final String ROOT_TAG = "ReserveSpecification";
+    static final String SPECIES_LIST_TAG = "SpeciesList";
+    static final String ORDER_TAG = "Order";
+    static final String SPECIES_TAG = "Species";
+    static final String AREA_LIST_TAG = "AreaList";
+    static final String AREA_TAG = "MonitoringArea";
+    static final String STATION_TAG = "MonitoringStation";
+    static final String POSITION_TAG = "position";
+    static final String OBSERVES_TAG = "observes";
+
+    private static final Map<String, Rule> RULES = new HashMap<>();
+
+    static {
+        addRule(new Rule(ROOT_TAG, null, set(), set(SPECIES_LIST_TAG, AREA_LIST_TAG)));
+        addRule(new Rule(SPECIES_LIST_TAG, null, set(), set(ORDER_TAG, SPECIES_TAG)));
+        addRule(new Rule(ORDER_TAG, null, set(), set(SPECIES_TAG)));
+        addRule(new Rule(SPECIES_TAG, null, set("name"), set()));
+        addRule(new Rule(AREA_LIST_TAG, null, set(), set(AREA_TAG, STATION_TAG)));
+        addRule(new Rule(AREA_TAG, POSITION_TAG, set("name", "code"), set(POSITION_TAG)));
+        addRule(new Rule(STATION_TAG, POSITION_TAG, set("name", "code"), set(POSITION_TAG, OBSERVES_TAG)));
+        addRule(new Rule(POSITION_TAG, null, set("lat", "lon"), set()));
+        addRule(new Rule(OBSERVES_TAG, null, set("area"), set()));
+    }
+
+    private final Deque<Frame> openElements = new ArrayDeque<>();
+    private boolean rootSeen = false;
+
+    /**
+     * Checks the start tag the parser is currently positioned at
+     * @param parser the parser
+     * @throws MalformedXMLException if the element is not allowed at this position or misses a
+     *                               required attribute
+     */
+    void enter(XmlPullParser parser) {
+        String name = parser.getName();
+        Frame parent = openElements.peek();
+        if (parent == null) {
+            if (rootSeen || !ROOT_TAG.equals(name)) {
+                throw error(parser, "Expected a single " + ROOT_TAG + " element but got " + name);
+            }
+            rootSeen = true;
+        } else if (!parent.rule.allowedChildren.contains(name)) {
+            throw error(parser, name + " is not allowed within " + parent.rule.name);
+        }
+
+        Rule rule = RULES.get(name);
+        for (String attr : rule.requiredAttributes) {
+            String value = parser.getAttributeValue(null, attr);
+            if (value == null || value.isEmpty()) {
+                throw error(parser, name + " requires the attribute " + attr);
+            }
+        }
+
+        if (parent != null && name.equals(parent.rule.requiredChild)) {
+            parent.requiredChildSeen = true;
+        }
+        openElements.push(new Frame(rule));
+    }
+
+    /**
+     * Checks the end tag the parser is currently positioned at
+     * @param parser the parser
+     * @throws MalformedXMLException if the element misses a required child
+     */
+    void leave(XmlPullParser parser) {
+        Frame frame = openElements.pop();
+        if (frame.rule.requiredChild != null && !frame.requiredChildSeen) {
+            throw error(parser, frame.rule.name + " requires a " + frame.rule.requiredChild + " element");
+        }
+    }
+
+    /**
+     * Checks that the document was complete
+     * @param parser the parser, positioned at the end of the document
+     * @throws MalformedXMLException if there was no root element
+     */
+    void finish(XmlPullParser parser) {
+        if (!rootSeen) {
+            throw error(parser, "Missing " + ROOT_TAG + " element");
+        }
+    }
+
+    /**
+     * @param parser the parser
+     * @param message the description of the violation
+     * @return the exception describing the violation
+     */
+    private static MalformedXMLException error(XmlPullParser parser, String message) {
+        return new MalformedXMLException(message + " (line " + parser.getLineNumber() + ")");
+    }
+
+    private static void addRule(Rule rule) {
+        RULES.put(rule.name, rule);
+    }
+
+    private static Set<String> set(String... values) {
+        return values.length == 0 ? Collections.<String>emptySet() : new HashSet<>(Arrays.asList(values));
+    }
+
+    /**
+     * Describes the allowed content of an element
+     */
+    private static class Rule {
+        final String name;
+        final String requiredChild;
+        final Set<String> requiredAttributes;
+        final Set<String> allowedChildren;
+
+        Rule(String name, String requiredChild, Set<String> requiredAttributes, Set<String> allowedChildren) {
+            this.name = name;
+            this.requiredChild = requiredChild;
+            this.requiredAttributes = requiredAttributes;
+            this.allowedChildren = allowedChildren;
+        }
+    }
+
+    /**
+     * An element which was opened but not yet closed
+     */
+    private static class Frame {
+        final Rule rule;
+        boolean requiredChildSeen = false;
+
+        Frame(Rule rule) {
+            this.rule = rule;
+        }
+    }
+}
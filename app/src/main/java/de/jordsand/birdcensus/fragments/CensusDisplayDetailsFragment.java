@@ -20,18 +20,19 @@ import java.util.Map;
 
 import de.jordsand.birdcensus.R;
 import de.jordsand.birdcensus.core.BirdCount;
-import de.jordsand.birdcensus.core.BirdCountRepository;
 import de.jordsand.birdcensus.core.MonitoringArea;
 import de.jordsand.birdcensus.core.Species;
 import de.jordsand.birdcensus.core.WatchList;
-import de.jordsand.birdcensus.database.BirdCountOpenHandler;
-import de.jordsand.birdcensus.database.repositories.SQLiteBirdCountRepository;
+import de.jordsand.birdcensus.database.repositories.AsyncRepositoryFacade;
+import de.jordsand.birdcensus.infrastructure.QueryCallback;
 
 /**
  * The details display for a past {@link BirdCount}
  * @author Rico Bergmann
  */
 public class CensusDisplayDetailsFragment extends Fragment {
+    private static final String TAG = CensusDisplayDetailsFragment.class.getSimpleName();
+
     /**
      * The fragment argument representing the section number for this
      * fragment.
@@ -41,7 +42,7 @@ public class CensusDisplayDetailsFragment extends Fragment {
 
     private ListView observationList;
 
-    private BirdCountRepository birdCountRepo;
+    private AsyncRepositoryFacade repositories;
     private BirdCount birdCount;
 
     public CensusDisplayDetailsFragment() { ; }
@@ -60,20 +61,34 @@ public class CensusDisplayDetailsFragment extends Fragment {
 
     @Override
     public View onCreateView(LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
-        Context ctx = getActivity() == null ? getContext() : getActivity();
-        BirdCountOpenHandler openHandler = BirdCountOpenHandler.instance(ctx);
-        birdCountRepo = new SQLiteBirdCountRepository(openHandler.getReadableDatabase());
-        Date startDate = new Date(getArguments().getLong(ARG_CENSUS_START_DATE));
-        birdCount = birdCountRepo.findByStartDate(startDate);
+        final Context ctx = getActivity() == null ? getContext() : getActivity();
+        repositories = new AsyncRepositoryFacade(ctx);
+        final Date startDate = new Date(getArguments().getLong(ARG_CENSUS_START_DATE));
 
         View rootView = inflater.inflate(R.layout.fragment_census_display_details, container, false);
 
         observationList = rootView.findViewById(R.id.census_display_observations);
-        observationList.setAdapter(new ObservationListAdapter(ctx, birdCount));
+        repositories.findBirdCountByStartDate(startDate, new QueryCallback<BirdCount>() {
+            @Override
+            public void onResult(BirdCount result) {
+                if (result == null) {
+                    Log.w(TAG, "No bird count started at " + startDate);
+                    return;
+                }
+                birdCount = result;
+                observationList.setAdapter(new ObservationListAdapter(ctx, birdCount));
+            }
+        });
 
         return rootView;
     }
 
+    @Override
+    public void onDestroyView() {
+        repositories.cancelAll();
+        super.onDestroyView();
+    }
+
     private class ObservationListAdapter extends BaseAdapter {
 
         private LayoutInflater inflater;
@@ -94,10 +109,10 @@ public class CensusDisplayDetailsFragment extends Fragment {
             }
 
             for (MonitoringArea area : observations.keySet()) {
-                Map<Species, Integer> observedSpecies = observations.get(area).getObservedSpeciesMap();
+                WatchList watchList = observations.get(area);
                 list.add(new AreaSectionItem(area));
-                for (Species species : observedSpecies.keySet()) {
-                    list.add(new StandardItem(species, observedSpecies.get(species)));
+                for (int i = 0; i < watchList.size(); ++i) {
+                    list.add(new StandardItem(watchList.getSpeciesAt(i), watchList.getCountAt(i)));
                 }
             }
 
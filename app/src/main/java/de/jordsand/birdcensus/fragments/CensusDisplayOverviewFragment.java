@@ -15,16 +15,17 @@ import java.util.Locale;
 
 import de.jordsand.birdcensus.R;
 import de.jordsand.birdcensus.core.BirdCount;
-import de.jordsand.birdcensus.core.BirdCountRepository;
 import de.jordsand.birdcensus.core.WeatherData;
-import de.jordsand.birdcensus.database.BirdCountOpenHandler;
-import de.jordsand.birdcensus.database.repositories.SQLiteBirdCountRepository;
+import de.jordsand.birdcensus.database.repositories.AsyncRepositoryFacade;
+import de.jordsand.birdcensus.infrastructure.QueryCallback;
 import de.jordsand.birdcensus.util.WeatherToStringMapper;
 
 /**
  * The overview display for a past {@link BirdCount}
  */
 public class CensusDisplayOverviewFragment extends Fragment {
+    private static final String TAG = CensusDisplayOverviewFragment.class.getSimpleName();
+
     /**
      * The fragment argument representing the section number for this
      * fragment.
@@ -41,7 +42,7 @@ public class CensusDisplayOverviewFragment extends Fragment {
     private TextView differentSpeciesCount;
     private TextView totalObservationsCount;
 
-    private BirdCountRepository birdCountRepo;
+    private AsyncRepositoryFacade repositories;
     private BirdCount birdCount;
 
     public CensusDisplayOverviewFragment() {}
@@ -60,20 +61,34 @@ public class CensusDisplayOverviewFragment extends Fragment {
 
     @Override
     public View onCreateView(LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
-        Context ctx = getActivity() == null ? getContext() : getActivity();
-        BirdCountOpenHandler openHandler = BirdCountOpenHandler.instance(ctx);
-        birdCountRepo = new SQLiteBirdCountRepository(openHandler.getReadableDatabase());
-        Date startDate = new Date(getArguments().getLong(ARG_CENSUS_START_DATE));
-        birdCount = birdCountRepo.findByStartDate(startDate);
+        final Context ctx = getActivity() == null ? getContext() : getActivity();
+        repositories = new AsyncRepositoryFacade(ctx);
+        final Date startDate = new Date(getArguments().getLong(ARG_CENSUS_START_DATE));
 
         View rootView = inflater.inflate(R.layout.fragment_census_display_overview, container, false);
 
         connectViews(rootView);
-        setUpViewData();
+        repositories.findBirdCountByStartDate(startDate, new QueryCallback<BirdCount>() {
+            @Override
+            public void onResult(BirdCount result) {
+                if (result == null) {
+                    Log.w(TAG, "No bird count started at " + startDate);
+                    return;
+                }
+                birdCount = result;
+                setUpViewData();
+            }
+        });
 
         return rootView;
     }
 
+    @Override
+    public void onDestroyView() {
+        repositories.cancelAll();
+        super.onDestroyView();
+    }
+
     /**
      * Connects the text views to their corresponding XML elements
      * @param root the view containing the text fields
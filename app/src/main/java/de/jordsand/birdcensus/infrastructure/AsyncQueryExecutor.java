@@ -0,0 +1,166 @@
+package de.jordsand.birdcensus.infrastructure;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Executes queries on a small pool of background threads and delivers their results on the main
+ * thread.
+ * <p>
+ * Each activity (or fragment) should use its own executor instance and call {@link #cancelAll()}
+ * as soon as it goes away. Results of cancelled queries will never be delivered. All instances
+ * share the same thread pool, so the number of concurrent queries stays bounded.
+ * </p>
+ */
+public class AsyncQueryExecutor {
+    private static final int POOL_SIZE = 2;
+    private static final ExecutorService QUERY_POOL = Executors.newFixedThreadPool(POOL_SIZE);
+
+    private final ExecutorService queryPool;
+    private final Executor mainThread;
+    private final Set<PendingQuery<?>> pendingQueries;
+
+    public AsyncQueryExecutor() {
+        this(QUERY_POOL, new MainThreadExecutor());
+    }
+
+    /**
+     * Constructor for custom threading, e.g. to control the delivery of results in tests
+     * @param queryPool the pool to execute the queries on
+     * @param mainThread the executor to deliver the results through
+     */
+    public AsyncQueryExecutor(@NonNull ExecutorService queryPool, @NonNull Executor mainThread) {
+        this.queryPool = queryPool;
+        this.mainThread = mainThread;
+        this.pendingQueries = Collections.newSetFromMap(new ConcurrentHashMap<PendingQuery<?>, Boolean>());
+    }
+
+    /**
+     * Schedules a query
+     * @param query the query to execute. It will be run on a background thread
+     * @param callback the callback to notify on the main thread
+     * @param <T> the type of the query's result
+     * @return a handle to cancel the query
+     */
+    public <T> PendingQuery<T> submit(Callable<T> query, QueryCallback<T> callback) {
+        PendingQuery<T> pendingQuery = new PendingQuery<>(query, callback);
+        pendingQueries.add(pendingQuery);
+        pendingQuery.future = queryPool.submit(pendingQuery);
+        return pendingQuery;
+    }
+
+    /**
+     * Cancels all queries which did not finish yet
+     */
+    public void cancelAll() {
+        List<PendingQuery<?>> queries = new ArrayList<>(pendingQueries);
+        for (PendingQuery<?> query : queries) {
+            query.cancel();
+        }
+    }
+
+    /**
+     * A query which was scheduled but may not have finished yet
+     * @param <T> the type of the query's result
+     */
+    public class PendingQuery<T> implements Runnable {
+        private final Callable<T> query;
+        private final QueryCallback<T> callback;
+        private volatile boolean cancelled;
+        private Future<?> future;
+
+        private PendingQuery(Callable<T> query, QueryCallback<T> callback) {
+            this.query = query;
+            this.callback = callback;
+            this.cancelled = false;
+        }
+
+        /**
+         * Cancels the query. If it is already running, it will be completed but its result will
+         * be discarded.
+         */
+        public void cancel() {
+            cancelled = true;
+            pendingQueries.remove(this);
+            if (future != null) {
+                // interrupting might leave the database connection in an inconsistent state
+                future.cancel(false);
+            }
+        }
+
+        /**
+         * @return whether the query was cancelled
+         */
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public void run() {
+            if (cancelled) {
+                return;
+            }
+            try {
+                deliverResult(query.call());
+            } catch (Exception e) {
+                deliverFailure(e);
+            }
+        }
+
+        /**
+         * Passes the result to the main thread
+         * @param result the result
+         */
+        private void deliverResult(final T result) {
+            mainThread.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (!cancelled) {
+                        pendingQueries.remove(PendingQuery.this);
+                        callback.onResult(result);
+                    }
+                }
+            });
+        }
+
+        /**
+         * Passes a failure to the main thread
+         * @param error the cause of the failure
+         */
+        private void deliverFailure(final Exception error) {
+            mainThread.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (!cancelled) {
+                        pendingQueries.remove(PendingQuery.this);
+                        callback.onFailure(error);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Posts all tasks to the main looper
+     */
+    private static class MainThreadExecutor implements Executor {
+        private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+        @Override
+        public void execute(@NonNull Runnable task) {
+            mainHandler.post(task);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package de.jordsand.birdcensus.infrastructure;
+
+import android.util.Log;
+
+/**
+ * Receives the result of a query which was executed through the {@link AsyncQueryExecutor}.
+ * All methods will be invoked on the main thread.
+ * @param <T> the type of the result
+ */
+public abstract class QueryCallback<T> {
+    private static final String TAG = QueryCallback.class.getSimpleName();
+
+    /**
+     * Called as soon as the query finished successfully
+     * @param result the query's result
+     */
+    public abstract void onResult(T result);
+
+    /**
+     * Called if the query failed. By default the error will only be logged.
+     * @param error the cause of the failure
+     */
+    public void onFailure(Exception error) {
+        Log.e(TAG, "Query failed", error);
+    }
+}
@@ -17,4 +17,26 @@ public interface XMLParser<T> {
      */
     List<T> parse(InputStream in);
 
+    /**
+     * Parses an input stream containing the desired XML data and passes each object to the
+     * handler as soon as it was read. Thus the document never has to be kept in memory as a whole.
+     * @param in the stream containing the XML data
+     * @param handler the handler to receive the parsed objects
+     * @throws MalformedXMLException if the data did not match the expected schema
+     */
+    void parse(InputStream in, ElementHandler<T> handler);
+
+    /**
+     * Receives the objects of a streaming parser
+     * @param <T> the type of the parsed objects
+     */
+    interface ElementHandler<T> {
+
+        /**
+         * Called for each object in document order
+         * @param element the object
+         */
+        void handle(T element);
+    }
+
 }
@@ -1,7 +1,6 @@
 package de.jordsand.birdcensus.services.census;
 
 import android.support.annotation.NonNull;
-import android.util.Pair;
 
 import java.util.Iterator;
 import java.util.Map;
@@ -9,7 +8,6 @@ import java.util.Map;
 import de.jordsand.birdcensus.core.BirdCount;
 import de.jordsand.birdcensus.core.MonitoringArea;
 import de.jordsand.birdcensus.core.Observation;
-import de.jordsand.birdcensus.core.Species;
 import de.jordsand.birdcensus.core.WatchList;
 
 /**
@@ -19,7 +17,8 @@ public class BirdCountIterator implements Iterator<Observation> {
 
     private Iterator<Map.Entry<MonitoringArea, WatchList>> watchlistIterator;
     private Map.Entry<MonitoringArea, WatchList> currentWatchlist;
-    private Iterator<Pair<Species, Integer>> observationsIterator;
+    private WatchList currentObservations;
+    private int observationPosition;
 
     /**
      * Creates a new {@link Iterator}
@@ -42,7 +41,7 @@ public class BirdCountIterator implements Iterator<Observation> {
 
     @Override
     public boolean hasNext() {
-        if (observationsIterator == null) {
+        if (currentObservations == null) {
             return gotoNextWatchlist();
         }
         return hasNextObservationInCurrentWatchlist() || hasNextWatchlist();
@@ -53,8 +52,8 @@ public class BirdCountIterator implements Iterator<Observation> {
         if (!hasNextObservationInCurrentWatchlist()) {
             gotoNextWatchlist();
         }
-        Pair<Species, Integer> nextObservation = observationsIterator.next();
-        return Observation.of(nextObservation.first, currentWatchlist.getKey(), nextObservation.second);
+        int position = observationPosition++;
+        return Observation.of(currentObservations.getSpeciesAt(position), currentWatchlist.getKey(), currentObservations.getCountAt(position));
     }
 
     /**
@@ -66,7 +65,8 @@ public class BirdCountIterator implements Iterator<Observation> {
             return false;
         }
         currentWatchlist = watchlistIterator.next();
-        observationsIterator = currentWatchlist.getValue().iterator();
+        currentObservations = currentWatchlist.getValue();
+        observationPosition = 0;
         return true;
     }
 
@@ -81,7 +81,7 @@ public class BirdCountIterator implements Iterator<Observation> {
      * @return whether there is at least one more observation in the current watchlist
      */
     private boolean hasNextObservationInCurrentWatchlist() {
-        return observationsIterator.hasNext();
+        return observationPosition < currentObservations.size();
     }
 
 }
@@ -12,6 +12,7 @@ import de.jordsand.birdcensus.core.MonitoringAreaRepository;
 import de.jordsand.birdcensus.core.Species;
 import de.jordsand.birdcensus.core.SpeciesRepository;
 import de.jordsand.birdcensus.core.WeatherData;
+import de.jordsand.birdcensus.infrastructure.QueryCallback;
 
 /**
  * Service to provide convenient access to a bird count.
@@ -55,6 +56,13 @@ public interface BirdCountService {
      */
     void addSightingToCurrentBirdCount(@NonNull String areaCode, @NonNull Species species, int count);
 
+    /**
+     * Adds multiple sightings to the current bird count at once
+     * @param sightings the sightings to add
+     * @throws IllegalStateException if no bird count was started
+     */
+    void addSightingsToCurrentBirdCount(@NonNull SightingBatch sightings);
+
     /**
      * Saves a new species. It will <strong>not</strong> be added as observation however
      * @param name the species' name
@@ -67,9 +75,11 @@ public interface BirdCountService {
 
     /**
      * Finishes the current bird count
+     * @param callback the callback to notify on the main thread once the bird count was saved or
+     *                 could not be saved. May be {@code null}
      * @throws IllegalStateException if no bird count is going on
      */
-    void terminateBirdCount();
+    void terminateBirdCount(@Nullable QueryCallback<BirdCount> callback);
 
     /**
      * Aborts the current bird count.
@@ -4,14 +4,16 @@ import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
 import java.util.Date;
+import java.util.Deque;
 import java.util.LinkedList;
-import java.util.Queue;
+import java.util.Map;
 
 import de.jordsand.birdcensus.core.BirdCount;
 import de.jordsand.birdcensus.core.MonitoringAreaRepository;
 import de.jordsand.birdcensus.core.Species;
 import de.jordsand.birdcensus.core.SpeciesRepository;
 import de.jordsand.birdcensus.core.WeatherData;
+import de.jordsand.birdcensus.infrastructure.QueryCallback;
 
 /**
  * A {@link BirdCountService} that does not execute its operations directly, but rather buffers
@@ -21,6 +23,10 @@ import de.jordsand.birdcensus.core.WeatherData;
  * If the functionality of the service is essential for an activity, it may use this proxy until the
  * real service is bound and then call {@link #flush(BirdCountService)} to apply all pending operations.
  * </p>
+ * <p>
+ * Consecutive sightings are merged into a single {@link SightingBatch}, so they will be applied as
+ * one update no matter how many of them were recorded in the meantime.
+ * </p>
  */
 public class BirdCountServiceProxy implements BirdCountService {
 
@@ -29,7 +35,7 @@ public class BirdCountServiceProxy implements BirdCountService {
      * For each invoked method we have a corresponding class and will add an instance of it to the
      * queue.
      */
-    private Queue<BirdCountOperation> cachedOperations;
+    private Deque<BirdCountOperation> cachedOperations;
 
     /**
      * Just the constructor
@@ -70,7 +76,24 @@ public class BirdCountServiceProxy implements BirdCountService {
 
     @Override
     public void addSightingToCurrentBirdCount(@NonNull String areaCode, @NonNull Species species, int count) {
-        cachedOperations.add(new AddSightingOperation(areaCode, species, count));
+        BirdCountOperation lastOperation = cachedOperations.peekLast();
+        AddSightingsOperation batchOperation;
+        if (lastOperation instanceof AddSightingsOperation) {
+            batchOperation = (AddSightingsOperation) lastOperation;
+        } else {
+            batchOperation = new AddSightingsOperation();
+            cachedOperations.add(batchOperation);
+        }
+        batchOperation.sightings.add(areaCode, species, count);
+    }
+
+    @Override
+    public void addSightingsToCurrentBirdCount(@NonNull SightingBatch sightings) {
+        for (String areaCode : sightings.getAreaCodes()) {
+            for (Map.Entry<Species, Integer> sighting : sightings.getSightingsIn(areaCode).entrySet()) {
+                addSightingToCurrentBirdCount(areaCode, sighting.getKey(), sighting.getValue());
+            }
+        }
     }
 
     @Nullable @Override
@@ -80,8 +103,8 @@ public class BirdCountServiceProxy implements BirdCountService {
     }
 
     @Override
-    public void terminateBirdCount() {
-        cachedOperations.add(new TerminateBirdCountOperation());
+    public void terminateBirdCount(@Nullable QueryCallback<BirdCount> callback) {
+        cachedOperations.add(new TerminateBirdCountOperation(callback));
     }
 
     @Override
@@ -130,25 +153,17 @@ public class BirdCountServiceProxy implements BirdCountService {
     }
 
     /**
-     * Wrapper for the {@link BirdCountService#addSightingToCurrentBirdCount(String, Species, int)} method
+     * Wrapper for the {@link BirdCountService#addSightingsToCurrentBirdCount(SightingBatch)} method.
+     * Single sightings are collected in here as well.
      */
-    private class AddSightingOperation extends BirdCountOperation {
-        private String areaCode;
-        private Species species;
-        private int count;
-
-        /**
-         * We need area, species and count
-         */
-        AddSightingOperation(String areaCode, Species species, int count) {
-            this.areaCode = areaCode;
-            this.species = species;
-            this.count = count;
-        }
+    private class AddSightingsOperation extends BirdCountOperation {
+        private SightingBatch sightings = new SightingBatch();
 
         @Override
         void apply(BirdCountService birdCountService) {
-            birdCountService.addSightingToCurrentBirdCount(areaCode, species, count);
+            if (!sightings.isEmpty()) {
+                birdCountService.addSightingsToCurrentBirdCount(sightings);
+            }
         }
     }
 
@@ -174,12 +189,21 @@ public class BirdCountServiceProxy implements BirdCountService {
     }
 
     /**
-     * Wrapper for the {@link BirdCountService#terminateBirdCount()} method
+     * Wrapper for the {@link BirdCountService#terminateBirdCount(QueryCallback)} method
      */
     private class TerminateBirdCountOperation extends  BirdCountOperation {
+        private QueryCallback<BirdCount> callback;
+
+        /**
+         * We need the callback to notify
+         */
+        TerminateBirdCountOperation(QueryCallback<BirdCount> callback) {
+            this.callback = callback;
+        }
+
         @Override
         void apply(BirdCountService birdCountService) {
-            birdCountService.terminateBirdCount();
+            birdCountService.terminateBirdCount(callback);
         }
     }
 
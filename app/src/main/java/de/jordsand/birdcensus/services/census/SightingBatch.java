@@ -0,0 +1,90 @@
+package de.jordsand.birdcensus.services.census;
+
+import android.support.annotation.NonNull;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import de.jordsand.birdcensus.core.Species;
+
+/**
+ * Collection of sightings which should be added to a bird count at once.
+ * <p>
+ * Sightings of the same species in the same area are merged, i.e. their counts will be summed
+ * up. Areas and species are kept in the order in which they were first added.
+ * </p>
+ */
+public class SightingBatch {
+
+    /**
+     * The merged counts, grouped by the code of the area they were observed in
+     */
+    private final Map<String, Map<Species, Integer>> sightings;
+    private int sightingCount;
+
+    /**
+     * Creates an empty batch
+     */
+    public SightingBatch() {
+        this.sightings = new LinkedHashMap<>();
+    }
+
+    /**
+     * Adds a sighting to the batch
+     * @param areaCode the area where the sighting happened
+     * @param species the species observed
+     * @param count the number of instances seen
+     */
+    public void add(@NonNull String areaCode, @NonNull Species species, int count) {
+        Map<Species, Integer> areaSightings = sightings.get(areaCode);
+        if (areaSightings == null) {
+            areaSightings = new LinkedHashMap<>();
+            sightings.put(areaCode, areaSightings);
+        }
+        Integer previousCount = areaSightings.get(species);
+        areaSightings.put(species, previousCount == null ? count : previousCount + count);
+        sightingCount++;
+    }
+
+    /**
+     * @return the codes of all areas which contain sightings
+     */
+    public Iterable<String> getAreaCodes() {
+        return Collections.unmodifiableSet(sightings.keySet());
+    }
+
+    /**
+     * @param areaCode the area
+     * @return the merged counts of all species observed in the area
+     */
+    public Map<Species, Integer> getSightingsIn(String areaCode) {
+        Map<Species, Integer> areaSightings = sightings.get(areaCode);
+        if (areaSightings == null) {
+            return Collections.emptyMap();
+        }
+        return Collections.unmodifiableMap(areaSightings);
+    }
+
+    /**
+     * @return the number of sightings added, before merging
+     */
+    public int getSightingCount() {
+        return sightingCount;
+    }
+
+    /**
+     * @return {@code true} if no sightings were added, {@code false} otherwise
+     */
+    public boolean isEmpty() {
+        return sightingCount == 0;
+    }
+
+    @Override
+    public String toString() {
+        return "SightingBatch{" +
+                "sightings=" + sightings +
+                ", sightingCount=" + sightingCount +
+                '}';
+    }
+}
@@ -0,0 +1,58 @@
+package de.jordsand.birdcensus.services.census;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import de.jordsand.birdcensus.core.BirdCount;
+import de.jordsand.birdcensus.core.MonitoringAreaRepository;
+import de.jordsand.birdcensus.core.Species;
+
+/**
+ * Append-only log of the ongoing bird count. It enables the {@link BirdCountService} to rebuild
+ * the bird count if the app was killed during the census.
+ * <p>
+ * Recording a sighting has to be cheap, thus implementations may buffer the sightings and write
+ * them in batches. Only sightings which were {@link #flush() flushed} are guaranteed to survive.
+ * </p>
+ */
+public interface SightingJournal {
+
+    /**
+     * Starts a new journal, replacing any previous one
+     * @param birdCount the bird count which just started
+     */
+    void beginCensus(@NonNull BirdCount birdCount);
+
+    /**
+     * Appends a sighting to the journal
+     * @param areaCode the area where the sighting happened
+     * @param species the species observed
+     * @param count the number of instances seen
+     */
+    void recordSighting(@NonNull String areaCode, @NonNull Species species, int count);
+
+    /**
+     * Persists all buffered sightings
+     */
+    void flush();
+
+    /**
+     * Drops the journal, e.g. because the bird count was aborted
+     */
+    void discard();
+
+    /**
+     * Drops the persisted journal immediately on the calling thread. This allows to remove the
+     * journal within the same transaction that persists the terminated bird count. Buffered
+     * sightings are not affected, they should be {@link #flush() flushed} beforehand.
+     */
+    void clear();
+
+    /**
+     * Rebuilds the bird count from the journal
+     * @param areaRepository the repository to resolve the monitoring areas with
+     * @return the ongoing bird count or {@code null} if there is none
+     */
+    @Nullable
+    BirdCount restore(@NonNull MonitoringAreaRepository areaRepository);
+}
@@ -3,14 +3,19 @@ package de.jordsand.birdcensus.services.census;
 import android.app.Service;
 import android.content.Intent;
 import android.os.Binder;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.Handler;
 import android.os.IBinder;
+import android.os.Looper;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
-import android.support.v4.util.LongSparseArray;
+import android.util.Log;
 
+import java.util.ArrayList;
 import java.util.Date;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 import de.jordsand.birdcensus.core.BirdCount;
 import de.jordsand.birdcensus.core.BirdCountRepository;
@@ -22,8 +27,10 @@ import de.jordsand.birdcensus.core.SpeciesRepository;
 import de.jordsand.birdcensus.core.WeatherData;
 import de.jordsand.birdcensus.database.BirdCountOpenHandler;
 import de.jordsand.birdcensus.database.repositories.SQLiteBirdCountRepository;
-import de.jordsand.birdcensus.database.repositories.SQLiteMonitoringAreaRepository;
-import de.jordsand.birdcensus.database.repositories.SQLiteSpeciesRepository;
+import de.jordsand.birdcensus.database.repositories.SQLiteSightingJournal;
+import de.jordsand.birdcensus.database.repositories.ReferenceDataRepositories;
+import de.jordsand.birdcensus.infrastructure.AsyncQueryExecutor;
+import de.jordsand.birdcensus.infrastructure.QueryCallback;
 
 /**
  * Implementation of the {@link BirdCountService} to connect through different activities.
@@ -54,6 +61,12 @@ import de.jordsand.birdcensus.database.repositories.SQLiteSpeciesRepository;
  * will start it if necessary and the service will automatically stop itself when the census is finished.
  * All activities will connect to the service the usual way.
  * </p>
+ * <p>
+ * Should the app be killed during a bird count nevertheless, the bird count will be rebuilt from the
+ * {@link SightingJournal} in the background as soon as the service is created again. Activities
+ * which depend on the ongoing bird count should wait for it through
+ * {@link #whenReady(QueryCallback)}.
+ * </p>
  */
 public class SimpleBirdCountService extends Service implements BirdCountService {
     private static final String TAG = SimpleBirdCountService.class.getSimpleName();
@@ -68,14 +81,28 @@ public class SimpleBirdCountService extends Service implements BirdCountService
      */
     private final IBinder mBinder = new BirdCountBinder();
 
+    private BirdCountOpenHandler openHandler;
     private BirdCountRepository birdCountRepository;
-    private SpeciesRepository speciesRepository;
-    private MonitoringAreaRepository areaRepository;
+    private ReferenceDataRepositories referenceData;
+    private SightingJournal sightingJournal;
 
     private BirdCount currentBirdCount = null;
 
-    private LongSparseArray<Species> speciesCache;
-    private Map<String, MonitoringArea> areaCache;
+    private AsyncQueryExecutor restoreExecutor;
+    private Handler mainHandler;
+    private boolean restoring = false;
+
+    /**
+     * The bird count which was terminated but not saved yet
+     */
+    private BirdCount savingBirdCount = null;
+    private final List<QueryCallback<BirdCount>> readyCallbacks = new ArrayList<>();
+
+    /**
+     * The ID of the most recent start request. Used to keep the service alive if a new bird count
+     * is started while the previous one is still being saved
+     */
+    private int lastStartId;
 
     /**
      * @return {@code true} if the service is running, {@code false} otherwise
@@ -84,20 +111,95 @@ public class SimpleBirdCountService extends Service implements BirdCountService
         return running;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The database is not touched on the main thread: opening it may have to run lengthy
+     * migrations first. It will be opened by the restore of the ongoing bird count instead.
+     * </p>
+     */
     @Override
     public void onCreate() {
-        BirdCountOpenHandler openHandler = BirdCountOpenHandler.instance(this);
-        birdCountRepository = new SQLiteBirdCountRepository(openHandler.getWritableDatabase());
-        speciesRepository = new SQLiteSpeciesRepository(openHandler.getWritableDatabase());
-        areaRepository = new SQLiteMonitoringAreaRepository(openHandler.getReadableDatabase());
+        openHandler = BirdCountOpenHandler.instance(this);
+        referenceData = ReferenceDataRepositories.instance(this);
+        sightingJournal = new SQLiteSightingJournal(openHandler);
+
+        mainHandler = new Handler(Looper.getMainLooper());
+        restoring = true;
+        restoreExecutor = new AsyncQueryExecutor();
+        restoreExecutor.submit(new Callable<BirdCount>() {
+            @Override
+            public BirdCount call() throws Exception {
+                return sightingJournal.restore(referenceData.getMonitoringAreaRepository());
+            }
+        }, new QueryCallback<BirdCount>() {
+            @Override
+            public void onResult(BirdCount birdCount) {
+                if (birdCount != null) {
+                    Log.i(TAG, "Restored ongoing bird count " + birdCount);
+                    currentBirdCount = birdCount;
+                    running = true;
+                }
+                restoring = false;
+                notifyIfReady();
+            }
+
+            @Override
+            public void onFailure(Exception error) {
+                Log.e(TAG, "Could not restore the ongoing bird count", error);
+                restoring = false;
+                notifyIfReady();
+            }
+        });
+    }
+
+    @Override
+    public void onDestroy() {
+        restoreExecutor.cancelAll();
+        sightingJournal.flush();
+        super.onDestroy();
+    }
+
+    /**
+     * Notifies the callbacks which waited for the service to become ready, if it is. Must be
+     * called on the main thread.
+     */
+    private void notifyIfReady() {
+        if (!isReady()) {
+            return;
+        }
+        List<QueryCallback<BirdCount>> callbacks = new ArrayList<>(readyCallbacks);
+        readyCallbacks.clear();
+        for (QueryCallback<BirdCount> callback : callbacks) {
+            callback.onResult(currentBirdCount);
+        }
+    }
 
-        speciesCache = new LongSparseArray<>();
-        areaCache = new HashMap<>();
+    /**
+     * @return whether the service is neither rebuilding the ongoing bird count from the journal
+     * nor saving a terminated one. Until then no bird count may be started
+     */
+    public boolean isReady() {
+        return !restoring && savingBirdCount == null;
+    }
+
+    /**
+     * Waits until the service is {@link #isReady() ready}. Must be called on the main thread.
+     * @param callback the callback to notify with the current bird count (or {@code null} if there
+     *                 is none). If the service is ready already, it will be notified immediately
+     */
+    public void whenReady(@NonNull QueryCallback<BirdCount> callback) {
+        if (isReady()) {
+            callback.onResult(currentBirdCount);
+        } else {
+            readyCallbacks.add(callback);
+        }
     }
 
     @Override
     public int onStartCommand(Intent intent, int flags, int startId) {
         running = true;
+        lastStartId = startId;
 
         return START_REDELIVER_INTENT;
     }
@@ -114,20 +216,23 @@ public class SimpleBirdCountService extends Service implements BirdCountService
 
     @NonNull @Override
     public MonitoringAreaRepository getAreaRepository() {
-        return areaRepository;
+        return referenceData.getMonitoringAreaRepository();
     }
 
     @NonNull @Override
     public SpeciesRepository getSpeciesRepository() {
-        return speciesRepository;
+        return referenceData.getSpeciesRepository();
     }
 
     @Override
     public void startBirdCount(@NonNull Date startDate, @NonNull String observerName, @NonNull WeatherData weatherData) {
-        if (currentBirdCount != null) {
+        if (!isReady()) {
+            throw new IllegalStateException("The previous bird count is still being restored or saved");
+        } else if (currentBirdCount != null) {
             throw new IllegalStateException("Another bird count has already started");
         }
         currentBirdCount = new BirdCount(startDate, observerName, weatherData);
+        sightingJournal.beginCensus(currentBirdCount);
     }
 
     @Override
@@ -137,12 +242,39 @@ public class SimpleBirdCountService extends Service implements BirdCountService
         } else if (count == 0) {
             return;
         }
-        MonitoringArea area = retrieveMonitoringArea(areaCode);
+        MonitoringArea area = getAreaRepository().findOne(areaCode);
         currentBirdCount.addToWatchlist(area, species, count);
+        sightingJournal.recordSighting(areaCode, species, count);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Each monitoring area will only be looked up once per batch.
+     * </p>
+     */
+    @Override
+    public void addSightingsToCurrentBirdCount(@NonNull SightingBatch sightings) {
+        if (currentBirdCount == null) {
+            throw new IllegalStateException("No bird count ongoing");
+        }
+        MonitoringAreaRepository areaRepository = getAreaRepository();
+        for (String areaCode : sightings.getAreaCodes()) {
+            MonitoringArea area = areaRepository.findOne(areaCode);
+            for (Map.Entry<Species, Integer> sighting : sightings.getSightingsIn(areaCode).entrySet()) {
+                int count = sighting.getValue();
+                if (count == 0) {
+                    continue;
+                }
+                currentBirdCount.addToWatchlist(area, sighting.getKey(), count);
+                sightingJournal.recordSighting(areaCode, sighting.getKey(), count);
+            }
+        }
     }
 
     @Nullable @Override
     public Species addNewSpecies(@NonNull String name, @Nullable String scientificName) {
+        SpeciesRepository speciesRepository = getSpeciesRepository();
         if (scientificName != null && !scientificName.isEmpty() && speciesRepository.findByScientificName(scientificName) != null) {
             throw new ExistingSpeciesException(new Species(name, scientificName));
         } else if (scientificName != null && scientificName.isEmpty() && !speciesRepository.findByName(name).isEmpty()) {
@@ -154,66 +286,123 @@ public class SimpleBirdCountService extends Service implements BirdCountService
         if (id < 0) {
             return null;
         }
-        speciesCache.append(id, species);
+        referenceData.invalidateCatalogue();
         return species;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The bird count will be persisted on the database's writer thread. The service stays alive
+     * until it has been saved. The journal is cleared within the same transaction, so a crash in
+     * between will neither lose nor duplicate the bird count. If the bird count could not be saved,
+     * it will be reopened as the ongoing bird count, such that it may be terminated again.
+     * </p>
+     */
     @Override
-    public void terminateBirdCount() {
+    public void terminateBirdCount(@Nullable final QueryCallback<BirdCount> callback) {
         if (currentBirdCount == null) {
             throw new IllegalStateException("No ongoing bird count");
         }
-        currentBirdCount.terminate();
-        birdCountRepository.save(currentBirdCount);
+        final BirdCount terminatedBirdCount = currentBirdCount;
+        final int startId = lastStartId;
+        terminatedBirdCount.terminate();
 
+        savingBirdCount = terminatedBirdCount;
         currentBirdCount = null;
         running = false;
-        stopSelf();
-    }
 
-    @Override
-    public void abortBirdCount() {
-        currentBirdCount = null;
-        running = false;
-        stopSelf();
+        // the buffered sightings are written before the bird count is saved, thus the journal is
+        // complete should the bird count have to be reopened
+        sightingJournal.flush();
+        openHandler.executeWrite(new Runnable() {
+            @Override
+            public void run() {
+                SQLiteDatabase db = openHandler.getWriterDatabase();
+                try {
+                    db.beginTransactionNonExclusive();
+                    try {
+                        birdCountRepository().save(terminatedBirdCount);
+                        sightingJournal.clear();
+                        db.setTransactionSuccessful();
+                    } finally {
+                        db.endTransaction();
+                    }
+                } catch (RuntimeException e) {
+                    Log.e(TAG, "Could not persist bird count " + terminatedBirdCount, e);
+                    deliverTerminationFailure(terminatedBirdCount, e, callback);
+                    return;
+                }
+                deliverTerminationResult(terminatedBirdCount, startId, callback);
+            }
+        });
     }
 
-    @Override
-    public boolean isBirdCountOngoing() {
-        return currentBirdCount != null;
+    /**
+     * Finishes a successful termination on the main thread
+     * @param birdCount the saved bird count
+     * @param startId the start request to stop the service for
+     * @param callback the callback to notify, may be {@code null}
+     */
+    private void deliverTerminationResult(final BirdCount birdCount, final int startId, final QueryCallback<BirdCount> callback) {
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                savingBirdCount = null;
+                if (callback != null) {
+                    callback.onResult(birdCount);
+                }
+                notifyIfReady();
+                stopSelf(startId);
+            }
+        });
     }
 
     /**
-     * Searches for a species by its id
-     * @param id the species' id
-     * @return the corresponding species
+     * Reopens a bird count which could not be saved on the main thread. Its journal was kept, so
+     * it will also survive if the app is killed.
+     * @param birdCount the bird count which could not be saved
+     * @param error the cause of the failure
+     * @param callback the callback to notify, may be {@code null}
      */
-    private Species retrieveSpecies(long id) {
-        Species species = speciesCache.get(id);
-        if (species == null) {
-            species = speciesRepository.findOne(id);
-
-        }
-        if (species != null) {
-            speciesCache.append(id, species);
-        }
-        return species;
+    private void deliverTerminationFailure(final BirdCount birdCount, final Exception error, final QueryCallback<BirdCount> callback) {
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                savingBirdCount = null;
+                birdCount.reopen();
+                currentBirdCount = birdCount;
+                running = true;
+                if (callback != null) {
+                    callback.onFailure(error);
+                }
+                notifyIfReady();
+            }
+        });
     }
 
     /**
-     * Searches for a monitoring area by its code
-     * @param code the monitoring area's code
-     * @return the matching monitoring area
+     * @return the repository to save terminated bird counts in. Opens the database on first
+     * access, so it must not be called on the main thread
      */
-    private MonitoringArea retrieveMonitoringArea(String code) {
-        MonitoringArea area = areaCache.get(code);
-        if (area == null) {
-            area = areaRepository.findOne(code);
-        }
-        if (area != null) {
-            areaCache.put(code, area);
+    private synchronized BirdCountRepository birdCountRepository() {
+        if (birdCountRepository == null) {
+            birdCountRepository = new SQLiteBirdCountRepository(openHandler.getWriterDatabase());
         }
-        return area;
+        return birdCountRepository;
+    }
+
+    @Override
+    public void abortBirdCount() {
+        sightingJournal.discard();
+        currentBirdCount = null;
+        running = false;
+        stopSelf();
+    }
+
+    @Override
+    public boolean isBirdCountOngoing() {
+        return currentBirdCount != null;
     }
 
     /**
@@ -1,18 +1,27 @@
 package de.jordsand.birdcensus.services.exporter.csv;
 
 import android.content.Context;
+import android.database.Cursor;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.v4.util.Pair;
 
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVPrinter;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
 
 import de.jordsand.birdcensus.R;
 import de.jordsand.birdcensus.core.BirdCount;
 import de.jordsand.birdcensus.core.Species;
+import de.jordsand.birdcensus.database.BirdCountContract;
 import de.jordsand.birdcensus.services.census.BirdCountIterator;
 import de.jordsand.birdcensus.services.census.BirdCountSummaryIterator;
 import de.jordsand.birdcensus.core.Observation;
@@ -23,10 +32,23 @@ import de.jordsand.birdcensus.services.exporter.BirdCountExporter;
  *
  * As CSV files only contain data in one format, meta data such as the weather, observer, etc. will
  * not be exported. The first row printed will contain the column names.
+ * <p>
+ * Besides single bird counts, the exporter may also {@link #exportObservations(Cursor) stream}
+ * the observations of many bird counts directly from the database. Each row will then start with
+ * the start time of its bird count.
+ * </p>
  */
 public class CsvBirdCountExporter implements BirdCountExporter {
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private static final String START_TIME_PATTERN = "yyyy-MM-dd HH:mm";
+
+    /**
+     * The number of rows after which the {@link ProgressMonitor} will be notified
+     */
+    public static final int PROGRESS_INTERVAL = 256;
 
     private final CSVPrinter printer;
+    private final String colStartTime;
     private final String colArea;
     private final String colSpeciesName;
     private final String colSpeciesScientific;
@@ -38,16 +60,35 @@ public class CsvBirdCountExporter implements BirdCountExporter {
      * @param ctx application context. Necessary to localize the data printed (i.e. the column names)
      */
     public CsvBirdCountExporter(@NonNull OutputStreamWriter outputStream, Context ctx) {
+        this((Writer) outputStream, ctx);
+    }
+
+    /**
+     * Creates a new exporter. The writer will be buffered, so it should not be buffered already.
+     * @param writer the writer to print the data into
+     * @param ctx application context. Necessary to localize the data printed (i.e. the column names)
+     */
+    public CsvBirdCountExporter(@NonNull Writer writer, Context ctx) {
+        this(writer, ColumnNames.localized(ctx));
+    }
+
+    /**
+     * Creates a new exporter. The writer will be buffered, so it should not be buffered already.
+     * @param writer the writer to print the data into
+     * @param columnNames the column names to print as header
+     */
+    public CsvBirdCountExporter(@NonNull Writer writer, @NonNull ColumnNames columnNames) {
         try {
-            this.printer = new CSVPrinter(outputStream, CSVFormat.DEFAULT);
+            this.printer = new CSVPrinter(new BufferedWriter(writer, BUFFER_SIZE), CSVFormat.DEFAULT);
         } catch (IOException e) {
             throw new ExportException(e);
         }
 
-        this.colArea = ctx.getString(R.string.census_export_column_area);
-        this.colSpeciesName = ctx.getString(R.string.census_export_column_species);
-        this.colSpeciesScientific = ctx.getString(R.string.census_export_column_species_scientific);
-        this.colCount = ctx.getString(R.string.census_export_column_count);
+        this.colStartTime = columnNames.startTime;
+        this.colArea = columnNames.area;
+        this.colSpeciesName = columnNames.speciesName;
+        this.colSpeciesScientific = columnNames.speciesScientific;
+        this.colCount = columnNames.count;
     }
 
     @Override
@@ -89,4 +130,130 @@ public class CsvBirdCountExporter implements BirdCountExporter {
         }
     }
 
+    /**
+     * Prints all observations provided by a cursor. See
+     * {@link #exportObservations(Cursor, ProgressMonitor)} for details.
+     * @param observations the observations
+     * @return the number of observations printed
+     */
+    public int exportObservations(@NonNull Cursor observations) {
+        return exportObservations(observations, null);
+    }
+
+    /**
+     * Prints all observations provided by a cursor, as returned by
+     * {@link de.jordsand.birdcensus.database.repositories.SQLiteBirdCountRepository#streamObservations(de.jordsand.birdcensus.core.CensusFilter)}.
+     * <p>
+     * The rows are copied straight from the cursor into the file, so the memory needed does not
+     * depend on the number of observations. The cursor will not be closed.
+     * </p>
+     * @param observations the observations. Their columns are described by
+     *                     {@link BirdCountContract.ObservationExport}
+     * @param monitor will be notified about the progress every {@link #PROGRESS_INTERVAL} rows and
+     *                may abort the export. May be {@code null}
+     * @return the number of observations printed. If the export was aborted, this will be less
+     * than the number of rows of the cursor
+     */
+    public int exportObservations(@NonNull Cursor observations, @Nullable ProgressMonitor monitor) {
+        final int START_TIME_IDX = observations.getColumnIndexOrThrow(BirdCountContract.ObservationExport.COLUMN_NAME_START_TIME);
+        final int AREA_IDX = observations.getColumnIndexOrThrow(BirdCountContract.ObservationExport.COLUMN_NAME_AREA);
+        final int SPECIES_NAME_IDX = observations.getColumnIndexOrThrow(BirdCountContract.ObservationExport.COLUMN_NAME_SPECIES_NAME);
+        final int SCIENTIFIC_NAME_IDX = observations.getColumnIndexOrThrow(BirdCountContract.ObservationExport.COLUMN_NAME_SPECIES_SCIENTIFIC_NAME);
+        final int COUNT_IDX = observations.getColumnIndexOrThrow(BirdCountContract.ObservationExport.COLUMN_NAME_COUNT);
+
+        DateFormat startTimeFormat = new SimpleDateFormat(START_TIME_PATTERN, Locale.US);
+        long lastStartTime = Long.MIN_VALUE;
+        String formattedStartTime = null;
+        int printed = 0;
+
+        try {
+            // print header
+            printer.printRecord(colStartTime, colArea, colSpeciesName, colSpeciesScientific, colCount);
+
+            // print observations. The rows are grouped by bird count, so the start time only has
+            // to be formatted once per bird count
+            while (observations.moveToNext()) {
+                if (monitor != null && printed % PROGRESS_INTERVAL == 0) {
+                    if (monitor.isCancelled()) {
+                        break;
+                    }
+                    monitor.onProgress(printed);
+                }
+
+                long startTime = observations.getLong(START_TIME_IDX);
+                if (startTime != lastStartTime || formattedStartTime == null) {
+                    formattedStartTime = startTimeFormat.format(new Date(startTime));
+                    lastStartTime = startTime;
+                }
+                printer.print(formattedStartTime);
+                printer.print(observations.getString(AREA_IDX));
+                printer.print(observations.getString(SPECIES_NAME_IDX));
+                printer.print(observations.getString(SCIENTIFIC_NAME_IDX));
+                printer.print(observations.getInt(COUNT_IDX));
+                printer.println();
+                ++printed;
+            }
+            printer.close();
+        } catch (IOException e) {
+            throw new ExportException(e);
+        }
+        return printed;
+    }
+
+    /**
+     * The names of the columns which may be printed
+     */
+    public static class ColumnNames {
+        private final String startTime;
+        private final String area;
+        private final String speciesName;
+        private final String speciesScientific;
+        private final String count;
+
+        /**
+         * @param ctx the context to read the localized names from
+         * @return the column names in the user's language
+         */
+        public static ColumnNames localized(Context ctx) {
+            return new ColumnNames(
+                    ctx.getString(R.string.census_export_column_start_time),
+                    ctx.getString(R.string.census_export_column_area),
+                    ctx.getString(R.string.census_export_column_species),
+                    ctx.getString(R.string.census_export_column_species_scientific),
+                    ctx.getString(R.string.census_export_column_count));
+        }
+
+        /**
+         * @param startTime the name of the start time column
+         * @param area the name of the monitoring area column
+         * @param speciesName the name of the species column
+         * @param speciesScientific the name of the scientific species name column
+         * @param count the name of the count column
+         */
+        public ColumnNames(String startTime, String area, String speciesName, String speciesScientific, String count) {
+            this.startTime = startTime;
+            this.area = area;
+            this.speciesName = speciesName;
+            this.speciesScientific = speciesScientific;
+            this.count = count;
+        }
+    }
+
+    /**
+     * Observes a long running export
+     */
+    public interface ProgressMonitor {
+
+        /**
+         * @return whether the export should be stopped. Everything printed so far will be kept
+         */
+        boolean isCancelled();
+
+        /**
+         * Called periodically while the rows are printed
+         * @param printed the number of rows printed so far
+         */
+        void onProgress(int printed);
+    }
+
 }
@@ -0,0 +1,219 @@
+package de.jordsand.birdcensus.services.exporter.csv;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import de.jordsand.birdcensus.core.CensusFilter;
+import de.jordsand.birdcensus.database.BirdCountOpenHandler;
+import de.jordsand.birdcensus.database.repositories.SQLiteBirdCountRepository;
+
+/**
+ * Exports the observations of all bird counts which satisfy a filter into one combined CSV file.
+ * <p>
+ * The export runs on a dedicated background thread, so even the whole archive may be exported
+ * without blocking the UI. Its progress is reported to a {@link Listener} on the main thread.
+ * The file is written under a temporary name first and only renamed once the export finished
+ * successfully, so a cancelled or failed export will not leave an incomplete file behind.
+ * </p>
+ */
+public class CsvBulkExportJob {
+    private static final String TEMP_FILE_SUFFIX = ".part";
+    private static final ExecutorService EXPORT_EXECUTOR = Executors.newSingleThreadExecutor();
+
+    /**
+     * Receives the updates of an export. All methods will be invoked on the main thread. Once the
+     * job was cancelled, the listener will not be notified anymore.
+     */
+    public interface Listener {
+
+        /**
+         * Called periodically while the observations are exported
+         * @param exported the number of observations exported so far
+         * @param total the number of observations to export
+         */
+        void onProgress(int exported, int total);
+
+        /**
+         * Called as soon as the export finished successfully
+         * @param exportFile the file containing the observations
+         * @param exported the number of observations exported
+         */
+        void onFinished(File exportFile, int exported);
+
+        /**
+         * Called if the export failed
+         * @param error the cause of the failure
+         */
+        void onFailed(Exception error);
+    }
+
+    private final Context ctx;
+    private final CensusFilter filter;
+    private final File exportFile;
+    private final Listener listener;
+    private final Handler mainHandler;
+    private volatile boolean cancelled;
+
+    /**
+     * Creates and schedules a new export
+     * @param ctx the context to access the database and the localized column names with
+     * @param filter the restriction of the start dates of the bird counts to export, i.e. the
+     *               filter of the listed bird counts
+     * @param exportFile the file to write. If it already exists, it will be replaced
+     * @param listener the listener to notify
+     * @return the job
+     */
+    public static CsvBulkExportJob start(@NonNull Context ctx, @NonNull CensusFilter filter, @NonNull File exportFile, @NonNull Listener listener) {
+        CsvBulkExportJob job = new CsvBulkExportJob(ctx.getApplicationContext(), filter, exportFile, listener);
+        EXPORT_EXECUTOR.execute(job.new ExportTask());
+        return job;
+    }
+
+    /**
+     * Use {@link #start(Context, CensusFilter, File, Listener)} instead
+     */
+    private CsvBulkExportJob(Context ctx, CensusFilter filter, File exportFile, Listener listener) {
+        this.ctx = ctx;
+        this.filter = filter;
+        this.exportFile = exportFile;
+        this.listener = listener;
+        this.mainHandler = new Handler(Looper.getMainLooper());
+    }
+
+    /**
+     * Stops the export. Everything written so far will be discarded and the listener will not be
+     * notified anymore.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * @return whether the export was cancelled
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return the file the observations are exported to
+     */
+    public File getExportFile() {
+        return exportFile;
+    }
+
+    /**
+     * The actual export which is run in the background
+     */
+    private class ExportTask implements Runnable, CsvBirdCountExporter.ProgressMonitor {
+        private int total;
+
+        @Override
+        public void run() {
+            if (cancelled) {
+                return;
+            }
+            File tempFile = new File(exportFile.getPath() + TEMP_FILE_SUFFIX);
+            try {
+                int exported = export(tempFile);
+                if (cancelled) {
+                    tempFile.delete();
+                    return;
+                }
+                if (!tempFile.renameTo(exportFile)) {
+                    throw new IOException("Could not rename " + tempFile + " to " + exportFile);
+                }
+                deliverFinished(exported);
+            } catch (IOException | RuntimeException e) {
+                tempFile.delete();
+                deliverFailure(e);
+            }
+        }
+
+        /**
+         * Writes the observations
+         * @param tempFile the file to write into
+         * @return the number of observations exported
+         * @throws IOException if the file could not be written
+         */
+        private int export(File tempFile) throws IOException {
+            BirdCountOpenHandler openHandler = BirdCountOpenHandler.instance(ctx);
+            SQLiteBirdCountRepository repository = new SQLiteBirdCountRepository(openHandler.getReaderDatabase());
+
+            total = repository.countObservations(filter);
+            onProgress(0);
+
+            OutputStream out = new FileOutputStream(tempFile);
+            try {
+                CsvBirdCountExporter exporter = new CsvBirdCountExporter(new OutputStreamWriter(out, "UTF-8"), ctx);
+                Cursor observations = repository.streamObservations(filter);
+                try {
+                    return exporter.exportObservations(observations, this);
+                } finally {
+                    observations.close();
+                }
+            } finally {
+                // the exporter closes the stream once it is done, but not if it failed
+                out.close();
+            }
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public void onProgress(final int printed) {
+            mainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (!cancelled) {
+                        listener.onProgress(printed, total);
+                    }
+                }
+            });
+        }
+
+        /**
+         * Notifies the listener about the successful export
+         * @param exported the number of observations exported
+         */
+        private void deliverFinished(final int exported) {
+            mainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (!cancelled) {
+                        listener.onFinished(exportFile, exported);
+                    }
+                }
+            });
+        }
+
+        /**
+         * Notifies the listener about the failure
+         * @param error the cause of the failure
+         */
+        private void deliverFailure(final Exception error) {
+            mainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (!cancelled) {
+                        listener.onFailed(error);
+                    }
+                }
+            });
+        }
+    }
+}
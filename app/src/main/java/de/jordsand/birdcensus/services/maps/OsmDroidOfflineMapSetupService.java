@@ -5,6 +5,8 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
 
 import de.jordsand.birdcensus.util.Files;
 
@@ -14,18 +16,57 @@ import de.jordsand.birdcensus.util.Files;
  * @see <a href="https://github.com/osmdroid/osmdroid/wiki/Offline-Map-Tiles">https://github.com/osmdroid/osmdroid/wiki/Offline-Map-Tiles</a>
  */
 public class OsmDroidOfflineMapSetupService implements OfflineMapSetupService {
+    private static final String TEMP_FILE_SUFFIX = ".part";
 
     @Override
     public void setup(String offlineMapSource, String destination) throws IOException {
-        setup(new FileInputStream(offlineMapSource), destination);
+        InputStream in = new FileInputStream(offlineMapSource);
+        try {
+            setup(in, destination);
+        } finally {
+            in.close();
+        }
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The sources are written under a temporary name first and only renamed once they were copied
+     * completely and their CRC-32 matches the one computed while reading them, so an interrupted
+     * setup will never leave a truncated or damaged archive for osmdroid to pick up. Existing
+     * sources will be replaced.
+     * </p>
+     */
     @Override
     public void setup(InputStream offlineMapSource, String destination) throws IOException {
         File dest = new File(destination);
-        if (!dest.exists() && !dest.createNewFile()) {
-            throw new IOException("Could not create file " + destination);
+        File parent = dest.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Could not create directory " + parent);
+        }
+
+        File temp = new File(destination + TEMP_FILE_SUFFIX);
+        try {
+            CRC32 sourceChecksum = new CRC32();
+            OutputStream out = new FileOutputStream(temp);
+            try {
+                Files.copyFile(offlineMapSource, out, sourceChecksum);
+            } finally {
+                out.close();
+            }
+            CRC32 copyChecksum = new CRC32();
+            Files.checksum(temp, copyChecksum);
+            if (copyChecksum.getValue() != sourceChecksum.getValue()) {
+                throw new IOException("Copy of the offline map sources at " + temp + " is damaged");
+            }
+            if (dest.exists() && !dest.delete()) {
+                throw new IOException("Could not replace file " + destination);
+            }
+            if (!temp.renameTo(dest)) {
+                throw new IOException("Could not rename " + temp + " to " + destination);
+            }
+        } finally {
+            temp.delete();
         }
-        Files.copyFile(offlineMapSource, new FileOutputStream(dest));
     }
 }
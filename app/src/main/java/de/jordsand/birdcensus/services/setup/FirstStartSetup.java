@@ -0,0 +1,330 @@
+package de.jordsand.birdcensus.services.setup;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.res.AssetManager;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+import android.os.Environment;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import de.jordsand.birdcensus.database.BirdCountOpenHandler;
+import de.jordsand.birdcensus.database.repositories.ReferenceDataRepositories;
+import de.jordsand.birdcensus.database.repositories.setup.DatabaseInflater;
+import de.jordsand.birdcensus.database.repositories.setup.PrebuiltReferenceDatabase;
+import de.jordsand.birdcensus.infrastructure.DatabaseStateCorruptException;
+import de.jordsand.birdcensus.services.maps.OfflineMapSetupService;
+import de.jordsand.birdcensus.services.maps.OsmDroidOfflineMapSetupService;
+
+/**
+ * Provisions everything the app needs before the first bird count may be started: the reference
+ * data and the offline maps.
+ * <p>
+ * The provisioning is split into {@link Step steps} which are run one after another on a
+ * dedicated background thread. A step is only marked as done once it completed, and each step may
+ * safely be repeated: the reference data is written with {@code INSERT OR IGNORE} in a single
+ * transaction and the offline maps are copied under a temporary name first. Thus if the app is
+ * killed or a step fails, the setup simply resumes with the first unfinished step the next time it
+ * is {@link #start() started}.
+ * </p>
+ * <p>
+ * All methods have to be called from the main thread. The {@link Listener listeners} will be
+ * notified on the main thread as well.
+ * </p>
+ */
+public class FirstStartSetup {
+    private static final String TAG = FirstStartSetup.class.getSimpleName();
+    private static final String PREFERENCES_NAME = "first_start_setup";
+    private static final String STEP_DONE_PREFIX = "done_";
+    private static final String OFFLINE_MAP_ASSET = "Schleimuendung.zip";
+
+    /**
+     * The parts of the setup, in the order they will be run
+     */
+    public enum Step {
+        REFERENCE_DATA,
+        OFFLINE_MAPS
+    }
+
+    /**
+     * Receives the updates of the setup
+     */
+    public interface Listener {
+
+        /**
+         * Called when a step is about to be run
+         * @param step the step
+         * @param completed the number of steps which are done already
+         * @param total the total number of steps
+         */
+        void onStepStarted(Step step, int completed, int total);
+
+        /**
+         * Called when a step completed
+         * @param step the step
+         */
+        void onStepFinished(Step step);
+
+        /**
+         * Called as soon as all steps are done
+         */
+        void onSetupFinished();
+
+        /**
+         * Called if a step failed. The setup will be stopped and the step retried on the next
+         * {@link #start() start}
+         * @param step the step which failed
+         * @param error the cause of the failure
+         */
+        void onSetupFailed(Step step, Exception error);
+    }
+
+    private static FirstStartSetup instance;
+
+    private final Context ctx;
+    private final SharedPreferences preferences;
+    private final ExecutorService executor;
+    private final Handler mainHandler;
+    private final List<Listener> listeners;
+    private boolean running;
+
+    /**
+     * @param ctx the context to access the assets, the database and the preferences with
+     * @return the setup
+     */
+    public static synchronized FirstStartSetup instance(@NonNull Context ctx) {
+        if (instance == null) {
+            instance = new FirstStartSetup(ctx.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * Use {@link #instance(Context)} instead
+     */
+    private FirstStartSetup(Context ctx) {
+        this.ctx = ctx;
+        this.preferences = ctx.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+        this.executor = Executors.newSingleThreadExecutor();
+        this.mainHandler = new Handler(Looper.getMainLooper());
+        this.listeners = new ArrayList<>();
+    }
+
+    /**
+     * Runs all steps which are not done yet. Does nothing if the setup is already running or
+     * complete.
+     */
+    public void start() {
+        if (running || isComplete()) {
+            return;
+        }
+        running = true;
+        executor.execute(new SetupTask());
+    }
+
+    /**
+     * @return whether all steps are done
+     */
+    public boolean isComplete() {
+        for (Step step : Step.values()) {
+            if (!isDone(step)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param step the step
+     * @return whether the step completed, either now or during an earlier start of the app
+     */
+    public boolean isDone(@NonNull Step step) {
+        return preferences.getBoolean(STEP_DONE_PREFIX + step.name(), false);
+    }
+
+    /**
+     * @return whether the setup is currently running
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * @param listener the listener to notify about the progress of the setup
+     */
+    public void addListener(@NonNull Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * @param listener the listener which should not be notified anymore
+     */
+    public void removeListener(@NonNull Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Persists that a step completed. The change is written synchronously, so it will survive if
+     * the app is killed right afterwards.
+     * @param step the step
+     */
+    private void markDone(Step step) {
+        preferences.edit().putBoolean(STEP_DONE_PREFIX + step.name(), true).commit();
+    }
+
+    /**
+     * Fills the reference tables of the database from the prebuilt reference database. If that
+     * is not available or damaged, the XML specifications will be parsed instead.
+     * @throws IOException if neither source could be read
+     */
+    private void importReferenceData() throws IOException {
+        SQLiteDatabase db = BirdCountOpenHandler.instance(ctx).getWriterDatabase();
+        try {
+            new PrebuiltReferenceDatabase(ctx).importInto(db);
+        } catch (IOException | SQLiteException | DatabaseStateCorruptException e) {
+            Log.w(TAG, "Unable to import prebuilt reference data, falling back to XML: " + e);
+            inflateFromXml(db);
+        }
+        ReferenceDataRepositories.instance(ctx).invalidateAll();
+    }
+
+    /**
+     * Fills the reference tables of the database by parsing the XML specifications
+     * @param db the database to write into
+     * @throws IOException if the specifications could not be opened
+     */
+    private void inflateFromXml(SQLiteDatabase db) throws IOException {
+        AssetManager assets = ctx.getAssets();
+        InputStream managementIndicatorSpeciesXML = assets.open("xml/management_indicator_species.xml");
+        try {
+            InputStream monitoringAreasXML = assets.open("xml/monitoring_areas.xml");
+            try {
+                DatabaseInflater.fromXML(managementIndicatorSpeciesXML, monitoringAreasXML, db).inflate();
+            } finally {
+                monitoringAreasXML.close();
+            }
+        } finally {
+            managementIndicatorSpeciesXML.close();
+        }
+    }
+
+    /**
+     * Copies the offline map sources to where osmdroid expects them
+     * @throws IOException if the sources could not be copied
+     */
+    private void setupOfflineMaps() throws IOException {
+        OfflineMapSetupService offlineMapSetupService = new OsmDroidOfflineMapSetupService();
+        String destination = Environment.getExternalStorageDirectory().getPath() + File.separator + "osmdroid" + File.separator + OFFLINE_MAP_ASSET;
+        InputStream offlineMapData = ctx.getAssets().open(OFFLINE_MAP_ASSET, AssetManager.ACCESS_STREAMING);
+        try {
+            offlineMapSetupService.setup(offlineMapData, destination);
+        } finally {
+            offlineMapData.close();
+        }
+    }
+
+    /**
+     * The actual setup which is run in the background
+     */
+    private class SetupTask implements Runnable {
+
+        @Override
+        public void run() {
+            Step[] steps = Step.values();
+            int completed = 0;
+            for (Step step : steps) {
+                if (isDone(step)) {
+                    completed++;
+                    continue;
+                }
+
+                deliverStepStarted(step, completed, steps.length);
+                try {
+                    perform(step);
+                } catch (IOException | RuntimeException e) {
+                    Log.e(TAG, "Setup step " + step + " failed: " + e);
+                    deliverFailure(step, e);
+                    return;
+                }
+                markDone(step);
+                completed++;
+                deliverStepFinished(step);
+            }
+            deliverFinished();
+        }
+
+        /**
+         * @param step the step to run
+         * @throws IOException if the step's sources could not be read or written
+         */
+        private void perform(Step step) throws IOException {
+            switch (step) {
+                case REFERENCE_DATA:
+                    importReferenceData();
+                    break;
+                case OFFLINE_MAPS:
+                    setupOfflineMaps();
+                    break;
+                default:
+                    throw new AssertionError(step);
+            }
+        }
+
+        private void deliverStepStarted(final Step step, final int completed, final int total) {
+            mainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    for (Listener listener : new ArrayList<>(listeners)) {
+                        listener.onStepStarted(step, completed, total);
+                    }
+                }
+            });
+        }
+
+        private void deliverStepFinished(final Step step) {
+            mainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    for (Listener listener : new ArrayList<>(listeners)) {
+                        listener.onStepFinished(step);
+                    }
+                }
+            });
+        }
+
+        private void deliverFinished() {
+            mainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    running = false;
+                    for (Listener listener : new ArrayList<>(listeners)) {
+                        listener.onSetupFinished();
+                    }
+                }
+            });
+        }
+
+        private void deliverFailure(final Step step, final Exception error) {
+            mainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    running = false;
+                    for (Listener listener : new ArrayList<>(listeners)) {
+                        listener.onSetupFailed(step, error);
+                    }
+                }
+            });
+        }
+    }
+}
@@ -1,25 +1,36 @@
 package de.jordsand.birdcensus.util;
 
+import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Locale;
 
 /**
+ * Converts dates from and to a human readable representation. As {@link SimpleDateFormat} is
+ * neither thread-safe nor cheap to create, each thread will reuse its own formatter.
+ * <p>
+ * The database stores dates as milliseconds since the epoch, thus this class is only intended
+ * for display purposes.
+ * </p>
  * @author Rico Bergmann
  */
 public class DateConverter {
+    private static final ThreadLocal<DateFormat> FORMAT = new ThreadLocal<DateFormat>() {
+        @Override
+        protected DateFormat initialValue() {
+            return new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.US);
+        }
+    };
 
     public String formatDate(Date date) {
-        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.US);
-        return format.format(date);
+        return FORMAT.get().format(date);
     }
 
     public Date retrieveDate(String rawDate) {
-        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.US);
         Date date;
         try {
-            date = format.parse(rawDate);
+            date = FORMAT.get().parse(rawDate);
         } catch (ParseException e) {
             date = null;
         }
@@ -0,0 +1,85 @@
+package de.jordsand.birdcensus.util;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+import de.jordsand.birdcensus.R;
+import de.jordsand.birdcensus.core.CensusFilter;
+
+/**
+ * Creates the names of exported files.
+ * <p>
+ * Each name ends with the time the export was created. Thus names will not conflict with earlier
+ * exports and the file system does not have to be searched for a free name.
+ * </p>
+ */
+public class ExportFileNames {
+    private static final String FILE_TYPE = ".csv";
+    private static final String CREATION_TIME_PATTERN = "yyyyMMddHHmmss";
+    private static final String UNSET_YEAR = "xxxx";
+    private static final String UNSET_PART = "xx";
+
+    @SuppressWarnings("unused")
+    private ExportFileNames() {}
+
+    /**
+     * Creates the name for the export of a single bird count
+     * @param ctx the context to localize the name with
+     * @param startTime the start time of the bird count
+     * @param suffix the file name suffix (e.g. "<em>summary</em>" or "<em>complete</em>")
+     * @return the file name
+     */
+    @NonNull
+    public static String forCensus(@NonNull Context ctx, @NonNull Date startTime, @NonNull String suffix) {
+        String separator = ctx.getString(R.string.census_export_fname_separator);
+        return ctx.getString(R.string.census_export_prefix) + separator +
+                formatDate(ctx, startTime) + separator +
+                suffix + separator +
+                formatCreationTime() + FILE_TYPE;
+    }
+
+    /**
+     * Creates the name for the export of all bird counts which satisfy a filter
+     * @param ctx the context to localize the name with
+     * @param filter the filter of the exported bird counts
+     * @param suffix the file name suffix (e.g. "<em>complete</em>")
+     * @return the file name
+     */
+    @NonNull
+    public static String forFilter(@NonNull Context ctx, @NonNull CensusFilter filter, @NonNull String suffix) {
+        String separator = ctx.getString(R.string.census_export_fname_separator);
+        String period;
+        if (!filter.hasYear() && !filter.hasMonth() && !filter.hasDay()) {
+            period = ctx.getString(R.string.census_export_archive);
+        } else {
+            // unset parts are replaced by a placeholder, just like the date pattern orders them
+            period = (filter.hasYear() ? String.format(Locale.US, "%04d", filter.getYear()) : UNSET_YEAR) + separator +
+                    (filter.hasMonth() ? String.format(Locale.US, "%02d", filter.getMonth()) : UNSET_PART) + separator +
+                    (filter.hasDay() ? String.format(Locale.US, "%02d", filter.getDay()) : UNSET_PART);
+        }
+        return ctx.getString(R.string.census_export_prefix) + separator +
+                period + separator +
+                suffix + separator +
+                formatCreationTime() + FILE_TYPE;
+    }
+
+    /**
+     * @param ctx the context to read the date pattern from
+     * @param date the date to format
+     * @return the date as used within file names
+     */
+    private static String formatDate(Context ctx, Date date) {
+        return String.format(ctx.getString(R.string.census_export_date_pattern), date, date, date);
+    }
+
+    /**
+     * @return the current time as used within file names
+     */
+    private static String formatCreationTime() {
+        return new SimpleDateFormat(CREATION_TIME_PATTERN, Locale.US).format(new Date());
+    }
+}
@@ -1,31 +1,46 @@
 package de.jordsand.birdcensus.util;
 
+import android.support.annotation.Nullable;
+
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.zip.Checksum;
 
 /**
  * Useful helper function for dealing with files
+ * <p>
+ * If both ends of a copy are files, the data is transferred through their channels so the kernel
+ * may copy it directly. Otherwise it is copied through buffers which are large enough to read map
+ * archives and databases in few system calls. The buffers are pooled, so repeated copies do not
+ * have to allocate them again.
+ * </p>
  * @author Rico Bergmann
  */
 public class Files {
-    private final static int BUFFER_SIZE = 1024;
+    private final static int BUFFER_SIZE = 64 * 1024;
+    private final static int MAX_POOLED_BUFFERS = 4;
+    private final static Deque<byte[]> BUFFER_POOL = new ArrayDeque<>();
 
     /**
      * Copies the contents of a file
      * @param src the source file
      * @param dst the destination file
+     * @return the number of bytes copied
      * @throws IOException if something went wrong
      */
-    public static void copyFile(File src, File dst) throws IOException {
-        InputStream inp = new FileInputStream(src);
+    public static long copyFile(File src, File dst) throws IOException {
+        FileInputStream inp = new FileInputStream(src);
         try {
-            OutputStream out = new FileOutputStream(dst);
+            FileOutputStream out = new FileOutputStream(dst);
             try {
-                copyFile(inp, out);
+                return transfer(inp.getChannel(), out.getChannel());
             } finally {
                 out.close();
             }
@@ -35,15 +50,70 @@ public class Files {
     }
 
     /**
-     * Copies the contents of a file
+     * Copies the contents of a file. Neither stream will be closed.
      * @param inp the source file
      * @param out the destination file
+     * @return the number of bytes copied
      * @throws IOException if something went wrong
      */
-    public static void copyFile(InputStream inp, OutputStream out) throws IOException {
-        byte[] buffer = new byte[BUFFER_SIZE];
-        while (inp.read(buffer) > 0) {
-            out.write(buffer);
+    public static long copyFile(InputStream inp, OutputStream out) throws IOException {
+        return copyFile(inp, out, null);
+    }
+
+    /**
+     * Copies the contents of a file and computes their checksum along the way. Neither stream
+     * will be closed.
+     * @param inp the source file
+     * @param out the destination file
+     * @param checksum the checksum to update with all bytes copied. If {@code null} and both
+     *                 streams are backed by files, the data will be transferred through their
+     *                 channels
+     * @return the number of bytes copied
+     * @throws IOException if something went wrong
+     */
+    public static long copyFile(InputStream inp, OutputStream out, @Nullable Checksum checksum) throws IOException {
+        if (checksum == null && inp instanceof FileInputStream && out instanceof FileOutputStream) {
+            return transfer(((FileInputStream) inp).getChannel(), ((FileOutputStream) out).getChannel());
+        }
+
+        byte[] buffer = obtainBuffer();
+        try {
+            long copied = 0;
+            int read;
+            while ((read = inp.read(buffer)) != -1) {
+                if (checksum != null) {
+                    checksum.update(buffer, 0, read);
+                }
+                out.write(buffer, 0, read);
+                copied += read;
+            }
+            return copied;
+        } finally {
+            releaseBuffer(buffer);
+        }
+    }
+
+    /**
+     * Computes the checksum of a file
+     * @param file the file
+     * @param checksum the checksum to update with the contents of the file
+     * @return the size of the file in bytes
+     * @throws IOException if the file could not be read
+     */
+    public static long checksum(File file, Checksum checksum) throws IOException {
+        InputStream inp = new FileInputStream(file);
+        byte[] buffer = obtainBuffer();
+        try {
+            long size = 0;
+            int read;
+            while ((read = inp.read(buffer)) != -1) {
+                checksum.update(buffer, 0, read);
+                size += read;
+            }
+            return size;
+        } finally {
+            releaseBuffer(buffer);
+            inp.close();
         }
     }
 
@@ -62,4 +132,52 @@ public class Files {
         }
         return file;
     }
+
+    /**
+     * Copies everything from the current position of a channel up to its end. Both channels will
+     * be positioned right after the copied data afterwards.
+     * @param src the channel to read from
+     * @param dst the channel to write to
+     * @return the number of bytes copied
+     * @throws IOException if something went wrong
+     */
+    private static long transfer(FileChannel src, FileChannel dst) throws IOException {
+        long position = src.position();
+        long size = src.size();
+        while (position < size) {
+            // a single transfer may copy less than requested, e.g. because of kernel limits
+            long transferred = src.transferTo(position, size - position, dst);
+            if (transferred <= 0) {
+                break;
+            }
+            position += transferred;
+        }
+        long copied = position - src.position();
+        src.position(position);
+        return copied;
+    }
+
+    /**
+     * @return a buffer from the pool or a new one if the pool is empty
+     */
+    private static byte[] obtainBuffer() {
+        synchronized (BUFFER_POOL) {
+            byte[] buffer = BUFFER_POOL.poll();
+            if (buffer != null) {
+                return buffer;
+            }
+        }
+        return new byte[BUFFER_SIZE];
+    }
+
+    /**
+     * @param buffer the buffer which is not used anymore
+     */
+    private static void releaseBuffer(byte[] buffer) {
+        synchronized (BUFFER_POOL) {
+            if (BUFFER_POOL.size() < MAX_POOLED_BUFFERS) {
+                BUFFER_POOL.push(buffer);
+            }
+        }
+    }
 }
@@ -7,12 +7,18 @@ import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.*;
 
 public class BirdCountUnitTests {
 
+    /**
+     * Roughly the number of monitoring areas of the Schleimuende reserve
+     */
+    private static final int AREA_COUNT = 40;
+
     private MonitoringArea areaMock;
     private Species speciesMock;
     private WeatherData weatherMock;
@@ -367,6 +373,66 @@ public class BirdCountUnitTests {
         birdCount.toString();
     }
 
+    @Test
+    public void totalsAreUpdatedWithEachRecord() {
+        BirdCount birdCount = new BirdCount( //
+                Date.from(Instant.now()), //
+                "Tom Fool", //
+                weatherMock);
+        birdCount.addToWatchlist(bay, kestrel, 1);
+        assertThat(birdCount.getObservationSummary().get(kestrel)).isEqualTo(1);
+
+        birdCount.addToWatchlist(pond, kestrel, 2);
+        birdCount.addToWatchlist(pond, crow, 5);
+
+        assertThat(birdCount.getDifferentSpeciesCount()).isEqualTo(2);
+        assertThat(birdCount.getTotalObservedSpeciesCount()).isEqualTo(8);
+        assertThat(birdCount.getObservedCountOf(kestrel)).isEqualTo(3);
+        assertThat(birdCount.getObservationSummary().get(kestrel)).isEqualTo(3);
+        assertThat(birdCount.wasObserved(crow)).isTrue();
+    }
+
+    @Test
+    public void codeLookupsMatchAreaLookupsForManyAreas() {
+        BirdCount birdCount = new BirdCount( //
+                Date.from(Instant.now()), //
+                "Tom Fool", //
+                weatherMock);
+        MonitoringArea[] areas = new MonitoringArea[AREA_COUNT];
+        for (int i = 0; i < areas.length; ++i) {
+            areas[i] = mock(MonitoringArea.class);
+            when(areas[i].getCode()).thenReturn("A" + i);
+            birdCount.addToWatchlist(areas[i], (i % 2 == 0) ? kestrel : blackbird, i + 1);
+        }
+
+        for (int i = 0; i < areas.length; ++i) {
+            Species observed = (i % 2 == 0) ? kestrel : blackbird;
+            assertThat(birdCount.getObservedCountOf(observed, "A" + i)).isEqualTo(birdCount.getObservedCountOf(observed, areas[i]));
+            assertThat(birdCount.getObservedCountOf(observed, "A" + i)).isEqualTo(i + 1);
+            assertThat(birdCount.wasObservedIn(observed, "A" + i)).isTrue();
+            assertThat(birdCount.wasObservedIn(crow, "A" + i)).isFalse();
+        }
+    }
+
+    @Test
+    public void codeLookupsWorkForReinstantiatedBirdCounts() {
+        Map<MonitoringArea, WatchList> observations = new HashMap<>();
+        WatchList watchList = new WatchList();
+        watchList.addSightingFor(chaffinch, 4);
+        observations.put(pond, watchList);
+
+        BirdCount birdCount = new BirdCount( //
+                Date.from(Instant.now().minus(1L, ChronoUnit.DAYS)), //
+                Date.from(Instant.now()), //
+                "Tom Fool", //
+                weatherMock, //
+                observations);
+
+        assertThat(birdCount.getObservedCountOf(chaffinch, pond.getCode())).isEqualTo(4);
+        assertThat(birdCount.wasObservedIn(chaffinch, pond.getCode())).isTrue();
+        assertThat(birdCount.wasObservedIn(chaffinch, bay.getCode())).isFalse();
+    }
+
     /**
      * Constructs a bird count with 4 observations:
      * <ul>
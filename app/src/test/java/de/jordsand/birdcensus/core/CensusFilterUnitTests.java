@@ -0,0 +1,81 @@
+package de.jordsand.birdcensus.core;
+
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CensusFilterUnitTests {
+
+    @Test
+    public void singleDayDescribesOneDay() {
+        CensusFilter filter = new CensusFilter(29, 2, 2016);
+
+        assertThat(filter.isSingleDay()).isTrue();
+        assertThat(filter.getPeriodStart()).isEqualTo(date(2016, 2, 29));
+        assertThat(filter.getPeriodEnd()).isEqualTo(date(2016, 3, 1));
+    }
+
+    @Test
+    public void monthAndYearDescribeWholeMonth() {
+        CensusFilter filter = new CensusFilter(CensusFilter.UNSET, 12, 17);
+
+        assertThat(filter.getYear()).isEqualTo(2017);
+        assertThat(filter.getPeriodStart()).isEqualTo(date(2017, 12, 1));
+        assertThat(filter.getPeriodEnd()).isEqualTo(date(2018, 1, 1));
+    }
+
+    @Test
+    public void filterWithoutYearHasNoPeriod() {
+        CensusFilter filter = new CensusFilter(3, 5, CensusFilter.UNSET);
+
+        assertThat(filter.getPeriodStart()).isNull();
+        assertThat(filter.getPeriodEnd()).isNull();
+        assertThat(filter.matches(date(2012, 5, 3))).isTrue();
+        assertThat(filter.matches(date(2012, 5, 4))).isFalse();
+    }
+
+    @Test
+    public void emptyFilterMatchesEverything() {
+        assertThat(CensusFilter.NONE.isSatisfiable()).isTrue();
+        assertThat(CensusFilter.NONE.matches(date(2017, 10, 26))).isTrue();
+    }
+
+    @Test
+    public void monthsOutOfRangeDoNotRollOver() {
+        CensusFilter filter = new CensusFilter(CensusFilter.UNSET, 13, 2017);
+
+        assertThat(filter.isSatisfiable()).isFalse();
+        assertThat(filter.getPeriodStart()).isNull();
+        assertThat(filter.getPeriodEnd()).isNull();
+        assertThat(filter.matches(date(2018, 1, 1))).isFalse();
+    }
+
+    @Test
+    public void nonExistingDaysDoNotRollOver() {
+        CensusFilter filter = new CensusFilter(31, 2, 2017);
+
+        assertThat(filter.isSatisfiable()).isFalse();
+        assertThat(filter.getPeriodStart()).isNull();
+        assertThat(filter.matches(date(2017, 3, 3))).isFalse();
+        assertThat(new CensusFilter(29, 2, 2017).isSatisfiable()).isFalse();
+        assertThat(new CensusFilter(0, CensusFilter.UNSET, CensusFilter.UNSET).isSatisfiable()).isFalse();
+    }
+
+    @Test
+    public void leapDayIsAcceptedWithoutYear() {
+        CensusFilter filter = new CensusFilter(29, 2, CensusFilter.UNSET);
+
+        assertThat(filter.isSatisfiable()).isTrue();
+        assertThat(filter.matches(date(2016, 2, 29))).isTrue();
+    }
+
+    private static Date date(int year, int month, int day) {
+        Calendar cal = Calendar.getInstance();
+        cal.clear();
+        cal.set(year, month - 1, day);
+        return cal.getTime();
+    }
+}
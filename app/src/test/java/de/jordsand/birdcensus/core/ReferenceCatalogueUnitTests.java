@@ -0,0 +1,64 @@
+package de.jordsand.birdcensus.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReferenceCatalogueUnitTests {
+
+    private Species kestrel;
+    private Species blackbird;
+    private Species gull;
+    private Species otherGull;
+    private MonitoringArea beach;
+    private MonitoringArea lagoon;
+
+    private ReferenceCatalogue catalogue;
+
+    @Before
+    public void setUp() {
+        kestrel = new Species("Common kestrel", "Falco tinnunculus");
+        blackbird = new Species("Common blackbird", "Turdus merula");
+        gull = new Species("Gull");
+        otherGull = new Species("Gull", "Larus canus");
+        beach = new MonitoringArea("Beach", "S2", new Location(54.67, 10.03));
+        lagoon = new MonitoringArea("Lagoon", "S10", new Location(54.68, 10.02));
+
+        long[] ids = { 7, 3, 12, 5 };
+        Species[] species = { kestrel, blackbird, gull, otherGull };
+        MonitoringArea[] areas = { beach, lagoon };
+        catalogue = new ReferenceCatalogue(ids, species, areas);
+    }
+
+    @Test
+    public void speciesAreFoundByIdAndKeptInIdOrder() {
+        assertThat(catalogue.findSpecies(7)).isSameAs(kestrel);
+        assertThat(catalogue.findSpecies(12)).isSameAs(gull);
+        assertThat(catalogue.findSpecies(4)).isNull();
+        assertThat(catalogue.getSpecies()).containsExactly(blackbird, otherGull, kestrel, gull);
+    }
+
+    @Test
+    public void speciesAreFoundByName() {
+        assertThat(catalogue.findSpeciesByName("Gull")).containsExactlyInAnyOrder(gull, otherGull);
+        assertThat(catalogue.findSpeciesByName("Eagle")).isEmpty();
+        assertThat(catalogue.findSpeciesByScientificName("Turdus merula")).isSameAs(blackbird);
+    }
+
+    @Test
+    public void areasAreFoundByCodeAndKeepTheirOrder() {
+        assertThat(catalogue.findArea("S10")).isSameAs(lagoon);
+        assertThat(catalogue.findArea("S2")).isSameAs(beach);
+        assertThat(catalogue.findArea("S3")).isNull();
+        assertThat(catalogue.findAreaByName("Lagoon")).isSameAs(lagoon);
+        assertThat(catalogue.getAreas()).containsExactly(beach, lagoon);
+    }
+
+    @Test
+    public void preferredSpeciesComeFirst() {
+        long[] preferred = { 12, 99, 3 };
+        assertThat(catalogue.getSpeciesPreferring(preferred)).containsExactly(gull, blackbird, otherGull, kestrel);
+    }
+
+}
@@ -0,0 +1,19 @@
+package de.jordsand.birdcensus.core;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SeasonUnitTests {
+
+    @Test
+    public void monthsAreMappedToMeteorologicalSeasons() {
+        assertThat(Season.ofMonth(12)).isEqualTo(Season.WINTER);
+        assertThat(Season.ofMonth(1)).isEqualTo(Season.WINTER);
+        assertThat(Season.ofMonth(2)).isEqualTo(Season.WINTER);
+        assertThat(Season.ofMonth(3)).isEqualTo(Season.SPRING);
+        assertThat(Season.ofMonth(6)).isEqualTo(Season.SUMMER);
+        assertThat(Season.ofMonth(11)).isEqualTo(Season.AUTUMN);
+    }
+
+}
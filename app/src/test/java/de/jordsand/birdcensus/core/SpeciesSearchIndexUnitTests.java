@@ -0,0 +1,50 @@
+package de.jordsand.birdcensus.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SpeciesSearchIndexUnitTests {
+
+    private Species kestrel;
+    private Species blackbird;
+    private Species tern;
+    private Species crow;
+    private Species merlin;
+
+    private SpeciesSearchIndex index;
+
+    @Before
+    public void setUp() {
+        kestrel = new Species("Turmfalke", "Falco tinnunculus");
+        blackbird = new Species("Amsel", "Turdus merula");
+        tern = new Species("Küstenseeschwalbe", "Sterna paradisaea");
+        crow = new Species("Rabenkrähe", "Corvus corone");
+        merlin = new Species("Merlin", "Falco columbarius");
+        index = new SpeciesSearchIndex(Arrays.asList(kestrel, blackbird, tern, crow, merlin));
+    }
+
+    @Test
+    public void searchIgnoresCaseAndDiacritics() {
+        assertThat(index.search("KUSTEN")).containsExactly(tern);
+        assertThat(index.search("krahe")).containsExactly(crow);
+        assertThat(index.search("Krähe")).containsExactly(crow);
+    }
+
+    @Test
+    public void searchCoversScientificNamesAndShortQueries() {
+        assertThat(index.search("falco")).containsExactly(kestrel, merlin);
+        assertThat(index.search("u")).contains(kestrel, blackbird, tern, crow, merlin);
+        assertThat(index.search("xyz")).isEmpty();
+    }
+
+    @Test
+    public void namePrefixesAreRankedFirst() {
+        assertThat(index.search("mer")).containsExactly(merlin, blackbird);
+        assertThat(index.search("")).containsExactly(kestrel, blackbird, tern, crow, merlin);
+    }
+
+}
@@ -0,0 +1,131 @@
+package de.jordsand.birdcensus.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class WatchListUnitTests {
+
+    private Species kestrel;
+    private Species blackbird;
+    private Species crow;
+
+    @Before
+    public void setUp() {
+        kestrel = mock(Species.class);
+        when(kestrel.getName()).thenReturn("Common kestrel");
+        blackbird = mock(Species.class);
+        when(blackbird.getName()).thenReturn("Common blackbird");
+        crow = mock(Species.class);
+        when(crow.getName()).thenReturn("Carrion crow");
+    }
+
+    @Test
+    public void repeatedSightingsAreAccumulated() {
+        WatchList watchList = new WatchList();
+        watchList.addSightingFor(kestrel, 2);
+        watchList.addSightingFor(kestrel);
+        watchList.addSightingFor(blackbird, 4);
+
+        assertThat(watchList.size()).isEqualTo(2);
+        assertThat(watchList.getCountOf(kestrel)).isEqualTo(3);
+        assertThat(watchList.getCountOf(blackbird)).isEqualTo(4);
+    }
+
+    @Test
+    public void countIsZeroIfSpeciesUnobserved() {
+        WatchList watchList = new WatchList();
+        watchList.addSightingFor(kestrel, 2);
+
+        assertThat(watchList.getCountOf(crow)).isZero();
+        assertThat(watchList.contains(crow)).isFalse();
+    }
+
+    @Test
+    public void positionsFollowFirstSighting() {
+        WatchList watchList = new WatchList();
+        watchList.addSightingFor(blackbird, 1);
+        watchList.addSightingFor(kestrel, 5);
+        watchList.addSightingFor(blackbird, 1);
+
+        assertThat(watchList.getSpeciesAt(0)).isSameAs(blackbird);
+        assertThat(watchList.getCountAt(0)).isEqualTo(2);
+        assertThat(watchList.getSpeciesAt(1)).isSameAs(kestrel);
+        assertThat(watchList.getCountAt(1)).isEqualTo(5);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void positionsBeyondSizeAreRejected() {
+        WatchList watchList = new WatchList();
+        watchList.addSightingFor(kestrel, 1);
+        watchList.getSpeciesAt(1);
+    }
+
+    @Test
+    public void growingKeepsAllObservations() {
+        WatchList watchList = new WatchList();
+        Species[] species = new Species[100];
+        for (int i = 0; i < species.length; ++i) {
+            species[i] = mock(Species.class);
+            watchList.addSightingFor(species[i], i + 1);
+        }
+
+        assertThat(watchList.size()).isEqualTo(species.length);
+        for (int i = 0; i < species.length; ++i) {
+            assertThat(watchList.getCountOf(species[i])).isEqualTo(i + 1);
+        }
+    }
+
+    @Test
+    public void visitorSeesEveryObservationOnce() {
+        Map<Species, Integer> observations = new HashMap<>();
+        observations.put(kestrel, 1);
+        observations.put(blackbird, 2);
+        WatchList watchList = new WatchList(observations);
+
+        final Map<Species, Integer> visited = new HashMap<>();
+        watchList.traverse(new WatchList.Visitor() {
+            @Override
+            public void visit(Species species, int count) {
+                assertThat(visited).doesNotContainKey(species);
+                visited.put(species, count);
+            }
+        });
+
+        assertThat(visited).isEqualTo(observations);
+    }
+
+    @Test
+    public void observedSpeciesMapIsSnapshot() {
+        WatchList watchList = new WatchList();
+        watchList.addSightingFor(kestrel, 1);
+        Map<Species, Integer> snapshot = watchList.getObservedSpeciesMap();
+        watchList.addSightingFor(kestrel, 1);
+
+        assertThat(snapshot.get(kestrel)).isEqualTo(1);
+        assertThat(watchList.getObservedSpecies()).containsExactly(kestrel);
+    }
+
+    @Test
+    public void observedSpeciesMapIsReusedUntilNextSighting() {
+        WatchList watchList = new WatchList();
+        watchList.addSightingFor(kestrel, 1);
+        Map<Species, Integer> snapshot = watchList.getObservedSpeciesMap();
+
+        assertThat(watchList.getObservedSpeciesMap()).isSameAs(snapshot);
+        watchList.addSightingFor(kestrel, 1);
+        assertThat(watchList.getObservedSpeciesMap()).isNotSameAs(snapshot);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void observedSpeciesMapIsImmutable() {
+        WatchList watchList = new WatchList();
+        watchList.addSightingFor(kestrel, 1);
+        watchList.getObservedSpeciesMap().clear();
+    }
+}
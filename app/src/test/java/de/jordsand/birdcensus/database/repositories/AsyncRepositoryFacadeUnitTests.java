@@ -0,0 +1,138 @@
+package de.jordsand.birdcensus.database.repositories;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import de.jordsand.birdcensus.core.Location;
+import de.jordsand.birdcensus.core.MonitoringArea;
+import de.jordsand.birdcensus.core.ReferenceCatalogue;
+import de.jordsand.birdcensus.core.Species;
+import de.jordsand.birdcensus.database.BirdCountOpenHandler;
+import de.jordsand.birdcensus.infrastructure.AsyncQueryExecutor;
+import de.jordsand.birdcensus.infrastructure.AsyncQueryExecutor.PendingQuery;
+import de.jordsand.birdcensus.infrastructure.QueryCallback;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class AsyncRepositoryFacadeUnitTests {
+
+    private MonitoringArea beach;
+    private ReferenceDataRepositories referenceData;
+    private ExecutorService queryPool;
+    private List<Runnable> mainThreadTasks;
+    private AsyncRepositoryFacade facade;
+
+    @Before
+    public void setUp() {
+        beach = new MonitoringArea("Beach", "S2", new Location(54.67, 10.03));
+        ReferenceCatalogue catalogue = new ReferenceCatalogue(new long[0], new Species[0], new MonitoringArea[] { beach });
+        referenceData = mock(ReferenceDataRepositories.class);
+        when(referenceData.getCatalogue()).thenReturn(catalogue);
+
+        queryPool = Executors.newSingleThreadExecutor();
+        mainThreadTasks = new ArrayList<>();
+        Executor mainThread = new Executor() {
+            @Override
+            public void execute(Runnable task) {
+                synchronized (mainThreadTasks) {
+                    mainThreadTasks.add(task);
+                }
+            }
+        };
+        facade = new AsyncRepositoryFacade(mock(BirdCountOpenHandler.class), referenceData, new AsyncQueryExecutor(queryPool, mainThread));
+    }
+
+    @After
+    public void tearDown() {
+        queryPool.shutdownNow();
+    }
+
+    @Test
+    public void monitoringAreaIsLookedUpInTheCatalogue() throws InterruptedException {
+        RecordingCallback<MonitoringArea> callback = new RecordingCallback<>();
+        facade.findMonitoringArea("S2", callback);
+        runMainThreadTasks();
+
+        assertThat(callback.results).containsExactly(beach);
+    }
+
+    @Test
+    public void unknownMonitoringAreaIsDeliveredAsNull() throws InterruptedException {
+        RecordingCallback<MonitoringArea> callback = new RecordingCallback<>();
+        facade.findMonitoringArea("S99", callback);
+        runMainThreadTasks();
+
+        assertThat(callback.results).hasSize(1);
+        assertThat(callback.results.get(0)).isNull();
+    }
+
+    @Test
+    public void cancelAllDiscardsOutstandingResults() throws InterruptedException {
+        RecordingCallback<MonitoringArea> areaCallback = new RecordingCallback<>();
+        RecordingCallback<Iterable<MonitoringArea>> areasCallback = new RecordingCallback<>();
+        PendingQuery<MonitoringArea> areaQuery = facade.findMonitoringArea("S2", areaCallback);
+        PendingQuery<Iterable<MonitoringArea>> areasQuery = facade.findAllMonitoringAreas(areasCallback);
+
+        facade.cancelAll();
+        runMainThreadTasks();
+
+        assertThat(areaQuery.isCancelled()).isTrue();
+        assertThat(areasQuery.isCancelled()).isTrue();
+        assertThat(areaCallback.results).isEmpty();
+        assertThat(areasCallback.results).isEmpty();
+        assertThat(areaCallback.failures).isEmpty();
+    }
+
+    @Test
+    public void failuresArePassedToTheCallback() throws InterruptedException {
+        IllegalStateException failure = new IllegalStateException("Database unavailable");
+        when(referenceData.getCatalogue()).thenThrow(failure);
+
+        RecordingCallback<MonitoringArea> callback = new RecordingCallback<>();
+        facade.findMonitoringArea("S2", callback);
+        runMainThreadTasks();
+
+        assertThat(callback.results).isEmpty();
+        assertThat(callback.failures).containsExactly(failure);
+    }
+
+    /**
+     * Waits for all queries to finish and runs the tasks they posted to the main thread
+     */
+    private void runMainThreadTasks() throws InterruptedException {
+        queryPool.shutdown();
+        assertThat(queryPool.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+        List<Runnable> tasks;
+        synchronized (mainThreadTasks) {
+            tasks = new ArrayList<>(mainThreadTasks);
+            mainThreadTasks.clear();
+        }
+        for (Runnable task : tasks) {
+            task.run();
+        }
+    }
+
+    private static class RecordingCallback<T> extends QueryCallback<T> {
+        private final List<T> results = new ArrayList<>();
+        private final List<Exception> failures = new ArrayList<>();
+
+        @Override
+        public void onResult(T result) {
+            results.add(result);
+        }
+
+        @Override
+        public void onFailure(Exception error) {
+            failures.add(error);
+        }
+    }
+}
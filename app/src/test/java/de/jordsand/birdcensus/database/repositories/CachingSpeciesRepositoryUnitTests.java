@@ -0,0 +1,98 @@
+package de.jordsand.birdcensus.database.repositories;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import de.jordsand.birdcensus.core.Species;
+import de.jordsand.birdcensus.core.SpeciesRepository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class CachingSpeciesRepositoryUnitTests {
+
+    private Species kestrel;
+    private Species blackbird;
+    private SpeciesRepository delegate;
+
+    @Before
+    public void setUp() {
+        kestrel = mock(Species.class);
+        when(kestrel.getName()).thenReturn("Common kestrel");
+        blackbird = mock(Species.class);
+        when(blackbird.getName()).thenReturn("Common blackbird");
+
+        delegate = mock(SpeciesRepository.class);
+        when(delegate.findOne(1L)).thenReturn(kestrel);
+        when(delegate.findOne(2L)).thenReturn(blackbird);
+        when(delegate.findByName("Common kestrel")).thenReturn(Collections.singletonList(kestrel));
+    }
+
+    @Test
+    public void repeatedLookupsAreServedFromTheCache() {
+        CachingSpeciesRepository repository = new CachingSpeciesRepository(delegate);
+
+        assertThat(repository.findOne(1L)).isSameAs(kestrel);
+        assertThat(repository.findOne(1L)).isSameAs(kestrel);
+        assertThat(repository.findOne(1L)).isSameAs(kestrel);
+
+        verify(delegate, times(1)).findOne(1L);
+        assertThat(repository.getHitCount()).isEqualTo(2);
+        assertThat(repository.getMissCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void leastRecentlyUsedEntriesAreEvicted() {
+        CachingSpeciesRepository repository = new CachingSpeciesRepository(delegate, 1);
+
+        repository.findOne(1L);
+        repository.findOne(2L);
+        repository.findOne(1L);
+
+        verify(delegate, times(2)).findOne(1L);
+        verify(delegate, times(1)).findOne(2L);
+    }
+
+    @Test
+    public void savingInvalidatesLookupsByName() {
+        CachingSpeciesRepository repository = new CachingSpeciesRepository(delegate);
+        assertThat(repository.findByName("Common kestrel")).containsExactly(kestrel);
+
+        Species otherKestrel = mock(Species.class);
+        when(otherKestrel.getName()).thenReturn("Common kestrel");
+        when(delegate.save(otherKestrel)).thenReturn(3L);
+        repository.save(otherKestrel);
+        when(delegate.findByName("Common kestrel")).thenReturn(Arrays.asList(kestrel, otherKestrel));
+
+        assertThat(repository.findByName("Common kestrel")).containsExactly(kestrel, otherKestrel);
+        assertThat(repository.findOne(3L)).isSameAs(otherKestrel);
+        verify(delegate, never()).findOne(3L);
+    }
+
+    @Test
+    public void listLoadedDuringSaveIsNotCached() {
+        final CachingSpeciesRepository repository = new CachingSpeciesRepository(delegate);
+        final Species otherKestrel = mock(Species.class);
+        when(otherKestrel.getName()).thenReturn("Common kestrel");
+        when(delegate.save(otherKestrel)).thenReturn(3L);
+        when(delegate.findAll()).thenAnswer(new Answer<Iterable<Species>>() {
+            @Override
+            public Iterable<Species> answer(InvocationOnMock invocation) {
+                // another thread saves a species while the old list is being loaded
+                repository.save(otherKestrel);
+                return Arrays.asList(kestrel, blackbird);
+            }
+        }).thenReturn(Arrays.asList(kestrel, blackbird, otherKestrel));
+
+        assertThat(repository.findAll()).containsExactly(kestrel, blackbird);
+        assertThat(repository.findAll()).containsExactly(kestrel, blackbird, otherKestrel);
+        assertThat(repository.findAll()).containsExactly(kestrel, blackbird, otherKestrel);
+        verify(delegate, times(2)).findAll();
+    }
+
+}
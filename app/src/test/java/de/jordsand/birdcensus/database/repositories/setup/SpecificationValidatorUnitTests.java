@@ -0,0 +1,117 @@
+package de.jordsand.birdcensus.database.repositories.setup;
+
+import org.assertj.core.api.ThrowableAssert.ThrowingCallable;
+import org.junit.Before;
+import org.junit.Test;
+import org.xmlpull.v1.XmlPullParser;
+
+import de.jordsand.birdcensus.infrastructure.MalformedXMLException;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class SpecificationValidatorUnitTests {
+    private XmlPullParser parser;
+    private SpecificationValidator validator;
+
+    @Before
+    public void setUp() {
+        parser = mock(XmlPullParser.class);
+        when(parser.getAttributeValue(isNull(String.class), anyString())).thenReturn("value");
+        validator = new SpecificationValidator();
+    }
+
+    @Test
+    public void completeSpecificationIsAccepted() {
+        enter(SpecificationValidator.ROOT_TAG);
+        enter(SpecificationValidator.SPECIES_LIST_TAG);
+        enter(SpecificationValidator.ORDER_TAG);
+        enter(SpecificationValidator.SPECIES_TAG);
+        leave(SpecificationValidator.SPECIES_TAG);
+        leave(SpecificationValidator.ORDER_TAG);
+        leave(SpecificationValidator.SPECIES_LIST_TAG);
+        enter(SpecificationValidator.AREA_LIST_TAG);
+        enter(SpecificationValidator.STATION_TAG);
+        enter(SpecificationValidator.POSITION_TAG);
+        leave(SpecificationValidator.POSITION_TAG);
+        enter(SpecificationValidator.OBSERVES_TAG);
+        leave(SpecificationValidator.OBSERVES_TAG);
+        leave(SpecificationValidator.STATION_TAG);
+        leave(SpecificationValidator.AREA_LIST_TAG);
+        leave(SpecificationValidator.ROOT_TAG);
+
+        validator.finish(parser);
+    }
+
+    @Test
+    public void unexpectedRootIsRejected() {
+        assertThatThrownBy(new EnterTag(SpecificationValidator.SPECIES_LIST_TAG))
+                .isInstanceOf(MalformedXMLException.class);
+    }
+
+    @Test
+    public void misplacedElementIsRejected() {
+        enter(SpecificationValidator.ROOT_TAG);
+        enter(SpecificationValidator.AREA_LIST_TAG);
+
+        assertThatThrownBy(new EnterTag(SpecificationValidator.SPECIES_TAG))
+                .isInstanceOf(MalformedXMLException.class)
+                .hasMessageContaining(SpecificationValidator.AREA_LIST_TAG);
+    }
+
+    @Test
+    public void missingAttributeIsRejected() {
+        enter(SpecificationValidator.ROOT_TAG);
+        enter(SpecificationValidator.AREA_LIST_TAG);
+        when(parser.getAttributeValue(null, "code")).thenReturn(null);
+
+        assertThatThrownBy(new EnterTag(SpecificationValidator.AREA_TAG))
+                .isInstanceOf(MalformedXMLException.class)
+                .hasMessageContaining("code");
+    }
+
+    @Test
+    public void areaWithoutPositionIsRejected() {
+        enter(SpecificationValidator.ROOT_TAG);
+        enter(SpecificationValidator.AREA_LIST_TAG);
+        enter(SpecificationValidator.AREA_TAG);
+
+        when(parser.getName()).thenReturn(SpecificationValidator.AREA_TAG);
+        assertThatThrownBy(new ThrowingCallable() {
+            @Override
+            public void call() {
+                validator.leave(parser);
+            }
+        }).isInstanceOf(MalformedXMLException.class)
+                .hasMessageContaining(SpecificationValidator.POSITION_TAG);
+    }
+
+    private void enter(String tag) {
+        when(parser.getName()).thenReturn(tag);
+        validator.enter(parser);
+    }
+
+    private void leave(String tag) {
+        when(parser.getName()).thenReturn(tag);
+        validator.leave(parser);
+    }
+
+    /**
+     * Enters a tag, expecting the validator to fail
+     */
+    private class EnterTag implements ThrowingCallable {
+        private final String tag;
+
+        EnterTag(String tag) {
+            this.tag = tag;
+        }
+
+        @Override
+        public void call() {
+            enter(tag);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package de.jordsand.birdcensus.services.census;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+
+import java.util.Date;
+
+import de.jordsand.birdcensus.core.BirdCount;
+import de.jordsand.birdcensus.core.Species;
+import de.jordsand.birdcensus.core.WeatherData;
+import de.jordsand.birdcensus.infrastructure.QueryCallback;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class BirdCountServiceProxyUnitTests {
+    private static final int TAP_COUNT = 300;
+
+    private Species kestrel;
+    private Species blackbird;
+    private BirdCountService realService;
+
+    @Before
+    public void setUp() {
+        kestrel = mock(Species.class);
+        when(kestrel.getName()).thenReturn("Common kestrel");
+        blackbird = mock(Species.class);
+        when(blackbird.getName()).thenReturn("Common blackbird");
+        realService = mock(BirdCountService.class);
+    }
+
+    @Test
+    public void consecutiveSightingsAreMergedIntoOneBatch() {
+        BirdCountServiceProxy proxy = new BirdCountServiceProxy();
+        for (int i = 0; i < TAP_COUNT; ++i) {
+            proxy.addSightingToCurrentBirdCount("S1", kestrel, 1);
+        }
+        proxy.addSightingToCurrentBirdCount("S1", blackbird, 2);
+        proxy.addSightingToCurrentBirdCount("S2", kestrel, 3);
+
+        proxy.flush(realService);
+
+        ArgumentCaptor<SightingBatch> batch = ArgumentCaptor.forClass(SightingBatch.class);
+        verify(realService, times(1)).addSightingsToCurrentBirdCount(batch.capture());
+        verify(realService, never()).addSightingToCurrentBirdCount(anyString(), any(Species.class), anyInt());
+
+        assertThat(batch.getValue().getSightingCount()).isEqualTo(TAP_COUNT + 2);
+        assertThat(batch.getValue().getAreaCodes()).containsExactly("S1", "S2");
+        assertThat(batch.getValue().getSightingsIn("S1")).containsEntry(kestrel, TAP_COUNT).containsEntry(blackbird, 2);
+        assertThat(batch.getValue().getSightingsIn("S2")).containsOnlyKeys(kestrel).containsEntry(kestrel, 3);
+    }
+
+    @Test
+    public void batchesDoNotCrossOtherOperations() {
+        BirdCountServiceProxy proxy = new BirdCountServiceProxy();
+        WeatherData weather = new WeatherData(null, null, null, null, null, null);
+        Date startDate = new Date();
+        proxy.addSightingToCurrentBirdCount("S1", kestrel, 1);
+        QueryCallback<BirdCount> callback = new QueryCallback<BirdCount>() {
+            @Override
+            public void onResult(BirdCount result) {
+            }
+        };
+        proxy.terminateBirdCount(callback);
+        proxy.startBirdCount(startDate, "Observer", weather);
+        proxy.addSightingToCurrentBirdCount("S1", kestrel, 1);
+
+        proxy.flush(realService);
+
+        InOrder inOrder = inOrder(realService);
+        inOrder.verify(realService).addSightingsToCurrentBirdCount(any(SightingBatch.class));
+        inOrder.verify(realService).terminateBirdCount(callback);
+        inOrder.verify(realService).startBirdCount(startDate, "Observer", weather);
+        inOrder.verify(realService).addSightingsToCurrentBirdCount(any(SightingBatch.class));
+    }
+
+}
@@ -0,0 +1,73 @@
+package de.jordsand.birdcensus.services.exporter.csv;
+
+import android.database.Cursor;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+import de.jordsand.birdcensus.database.BirdCountContract;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class CsvBirdCountExporterUnitTests {
+    private static final long FIRST_START = 1500000000000L;
+    private static final long SECOND_START = 1510000000000L;
+
+    private CsvBirdCountExporter.ColumnNames columnNames;
+    private Cursor observations;
+
+    @Before
+    public void setUp() {
+        columnNames = new CsvBirdCountExporter.ColumnNames("Start", "Area", "Species", "Scientific", "Count");
+
+        observations = mock(Cursor.class);
+        when(observations.getColumnIndexOrThrow(BirdCountContract.ObservationExport.COLUMN_NAME_START_TIME)).thenReturn(0);
+        when(observations.getColumnIndexOrThrow(BirdCountContract.ObservationExport.COLUMN_NAME_AREA)).thenReturn(1);
+        when(observations.getColumnIndexOrThrow(BirdCountContract.ObservationExport.COLUMN_NAME_SPECIES_NAME)).thenReturn(2);
+        when(observations.getColumnIndexOrThrow(BirdCountContract.ObservationExport.COLUMN_NAME_SPECIES_SCIENTIFIC_NAME)).thenReturn(3);
+        when(observations.getColumnIndexOrThrow(BirdCountContract.ObservationExport.COLUMN_NAME_COUNT)).thenReturn(4);
+    }
+
+    @Test
+    public void observationsAreStreamedFromCursor() {
+        when(observations.moveToNext()).thenReturn(true, true, true, false);
+        when(observations.getLong(0)).thenReturn(FIRST_START, FIRST_START, SECOND_START);
+        when(observations.getString(1)).thenReturn("S1", "S2", "S1");
+        when(observations.getString(2)).thenReturn("Turmfalke", "Amsel", "Amsel");
+        when(observations.getString(3)).thenReturn("Falco tinnunculus", "Turdus merula", "Turdus merula");
+        when(observations.getInt(4)).thenReturn(2, 1, 5);
+
+        StringWriter out = new StringWriter();
+        CsvBirdCountExporter exporter = new CsvBirdCountExporter(out, columnNames);
+        int printed = exporter.exportObservations(observations);
+
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm", Locale.US);
+        String first = format.format(new Date(FIRST_START));
+        String second = format.format(new Date(SECOND_START));
+
+        assertThat(printed).isEqualTo(3);
+        assertThat(out.toString().split("\r\n")).containsExactly(
+                "Start,Area,Species,Scientific,Count",
+                first + ",S1,Turmfalke,Falco tinnunculus,2",
+                first + ",S2,Amsel,Turdus merula,1",
+                second + ",S1,Amsel,Turdus merula,5");
+        verify(observations, never()).close();
+    }
+
+    @Test
+    public void emptyCursorOnlyPrintsHeader() {
+        when(observations.moveToNext()).thenReturn(false);
+
+        StringWriter out = new StringWriter();
+        int printed = new CsvBirdCountExporter(out, columnNames).exportObservations(observations);
+
+        assertThat(printed).isZero();
+        assertThat(out.toString()).isEqualTo("Start,Area,Species,Scientific,Count\r\n");
+    }
+}
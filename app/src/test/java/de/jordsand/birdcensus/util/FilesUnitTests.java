@@ -0,0 +1,109 @@
+package de.jordsand.birdcensus.util;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.zip.CRC32;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FilesUnitTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void streamCopyOnlyWritesTheBytesRead() throws IOException {
+        byte[] data = randomBytes(64 * 1024 + 17);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long copied = Files.copyFile(new ByteArrayInputStream(data), out);
+
+        assertThat(copied).isEqualTo(data.length);
+        assertThat(out.toByteArray()).isEqualTo(data);
+    }
+
+    @Test
+    public void streamCopyComputesTheChecksumOfTheData() throws IOException {
+        byte[] data = randomBytes(200 * 1024 + 3);
+        CRC32 expected = new CRC32();
+        expected.update(data, 0, data.length);
+
+        CRC32 checksum = new CRC32();
+        Files.copyFile(new ByteArrayInputStream(data), new ByteArrayOutputStream(), checksum);
+
+        assertThat(checksum.getValue()).isEqualTo(expected.getValue());
+    }
+
+    @Test
+    public void fileCopyTransfersTheWholeFile() throws IOException {
+        byte[] data = randomBytes(300 * 1024 + 5);
+        File src = write(data);
+        File dst = new File(folder.getRoot(), "copy");
+
+        long copied = Files.copyFile(src, dst);
+
+        assertThat(copied).isEqualTo(data.length);
+        assertThat(java.nio.file.Files.readAllBytes(dst.toPath())).isEqualTo(data);
+    }
+
+    @Test
+    public void fileStreamCopyContinuesFromTheCurrentPosition() throws IOException {
+        byte[] data = randomBytes(1000);
+        File dst = new File(folder.getRoot(), "copy");
+
+        FileInputStream inp = new FileInputStream(write(data));
+        FileOutputStream out = new FileOutputStream(dst);
+        try {
+            assertThat(inp.skip(100)).isEqualTo(100);
+            assertThat(Files.copyFile(inp, out)).isEqualTo(900);
+            assertThat(inp.read()).isEqualTo(-1);
+        } finally {
+            out.close();
+            inp.close();
+        }
+
+        byte[] tail = new byte[900];
+        System.arraycopy(data, 100, tail, 0, tail.length);
+        assertThat(java.nio.file.Files.readAllBytes(dst.toPath())).isEqualTo(tail);
+    }
+
+    @Test
+    public void checksumOfAFileMatchesTheChecksumOfItsContents() throws IOException {
+        byte[] data = randomBytes(70 * 1024);
+        CRC32 expected = new CRC32();
+        expected.update(data, 0, data.length);
+
+        CRC32 checksum = new CRC32();
+        long size = Files.checksum(write(data), checksum);
+
+        assertThat(size).isEqualTo(data.length);
+        assertThat(checksum.getValue()).isEqualTo(expected.getValue());
+    }
+
+    private File write(byte[] data) throws IOException {
+        File file = folder.newFile();
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(data);
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] data = new byte[length];
+        new Random(length).nextBytes(data);
+        return data;
+    }
+
+}